@@ -116,6 +116,7 @@ import org.eclipse.jdt.internal.compiler.problem.ShouldNotImplement;
 import org.eclipse.jdt.internal.compiler.util.Messages;
 import org.eclipse.jdt.internal.compiler.util.Util;
 import org.eclipse.objectteams.otdt.core.compiler.IOTConstants;
+import org.eclipse.objectteams.otdt.internal.core.compiler.bytecode.BootstrapMethodReference;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.MethodModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.ModelElement;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.RoleModel;
@@ -3456,9 +3457,33 @@ public class ClassFile implements TypeConstants, TypeIds {
 				int index = this.constantPool.literalIndex(baseClassName);
 				this.contents[localContentsOffset++] = (byte) (index >> 8);
 				this.contents[localContentsOffset++] = (byte) index;
-				
+
+//{ObjectTeams: bootstrap methods of decapsulating base access, or copied from a tsuper role:
+			} else if (functionalExpressionList.get(i) instanceof BootstrapMethodReference) {
+				BootstrapMethodReference reference = (BootstrapMethodReference) functionalExpressionList.get(i);
+				int entrySize = 4 + 2 * reference.arguments.length;
+				if (entrySize + localContentsOffset >= this.contents.length) {
+					resizeContents(entrySize);
+				}
+				int methodHandleIndex = this.constantPool.literalIndexForMethodHandle(ClassFileConstants.MethodHandleRefKindInvokeStatic,
+						reference.declaringClass, reference.selector, reference.signature, false);
+				this.contents[localContentsOffset++] = (byte) (methodHandleIndex >> 8);
+				this.contents[localContentsOffset++] = (byte) methodHandleIndex;
+
+				// u2 num_bootstrap_arguments
+				this.contents[localContentsOffset++] = (byte) (reference.arguments.length >> 8);
+				this.contents[localContentsOffset++] = (byte) reference.arguments.length;
+
+				for (Object argument : reference.arguments) {
+					int index = argument instanceof Integer
+							? this.constantPool.literalIndex(((Integer) argument).intValue())
+							: this.constantPool.literalIndex((String) argument);
+					this.contents[localContentsOffset++] = (byte) (index >> 8);
+					this.contents[localContentsOffset++] = (byte) index;
+				}
+// SH}
 			} else {
-			
+
 			FunctionalExpression functional = (FunctionalExpression) functionalExpressionList.get(i);
 			MethodBinding [] bridges = functional.getRequiredBridges();
 			TypeBinding[] markerInterfaces = null;
@@ -5799,6 +5824,10 @@ public class ClassFile implements TypeConstants, TypeIds {
 		}
 		if (expression instanceof ReferenceExpression) {
 			for (int i = 0; i < this.bootstrapMethods.size(); i++) {
+//{ObjectTeams: the list may also contain OT/J specific bootstrap methods:
+				if (!(this.bootstrapMethods.get(i) instanceof FunctionalExpression))
+					continue;
+// SH}
 				FunctionalExpression fexp = (FunctionalExpression) this.bootstrapMethods.get(i);
 				if (fexp.binding == expression.binding
 						&& TypeBinding.equalsEquals(fexp.expectedType(), expression.expectedType()))
@@ -5828,6 +5857,18 @@ public class ClassFile implements TypeConstants, TypeIds {
 		this.bootstrapMethods.add(reference);
 		return this.bootstrapMethods.size() -1;
 	}
+//{ObjectTeams: bootstrap methods of decapsulating base access, or copied from a tsuper role:
+	public int recordBootstrapMethod(BootstrapMethodReference reference) {
+		if (this.bootstrapMethods == null) {
+			this.bootstrapMethods = new ArrayList();
+		}
+		int index = this.bootstrapMethods.indexOf(reference);
+		if (index != -1)
+			return index;
+		this.bootstrapMethods.add(reference);
+		return this.bootstrapMethods.size() - 1;
+	}
+// SH}
 	
 	public void reset(/*@Nullable*/SourceTypeBinding typeBinding, CompilerOptions options) {
 		// the code stream is reinitialized for each method
@@ -251,7 +251,7 @@ public TypeBinding resolveType(BlockScope scope) {
 	try {
 		rhsType = this.expression.resolveType(scope);
 	} catch (ConstructorDecapsulationException e) {
-		this.expression = BaseAllocationExpression.convertToDynAccess(scope, (AllocationExpression) this.expression, e.accessId);
+		this.expression = BaseAllocationExpression.convertToDynAccess(scope, (AllocationExpression) this.expression);
 		rhsType = this.expression.resolvedType;
 	}
 // SH}
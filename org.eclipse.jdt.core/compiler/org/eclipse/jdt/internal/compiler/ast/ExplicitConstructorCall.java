@@ -505,7 +505,7 @@ public class ExplicitConstructorCall extends Statement implements Invocation {
 					}
 // giro:
 				  } catch (ConstructorDecapsulationException cde) {
-					  argument = BaseAllocationExpression.convertToDynAccess(scope, (AllocationExpression) argument, cde.accessId);
+					  argument = BaseAllocationExpression.convertToDynAccess(scope, (AllocationExpression) argument);
 					  if (argument.resolvedType == null)
 						  argHasError = true;
 					  else
@@ -132,7 +132,6 @@ import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.SyntheticOTTar
 import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.SyntheticRoleBridgeMethodBinding;
 import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.WeakenedTypeBinding;
 import org.eclipse.objectteams.otdt.internal.core.compiler.mappings.CalloutImplementor;
-import org.eclipse.objectteams.otdt.internal.core.compiler.mappings.CalloutImplementorDyn;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.MethodModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.TeamModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.statemachine.copyinheritance.CopyInheritance.RoleConstructorCall;
@@ -1161,20 +1160,16 @@ public TypeBinding resolveType(BlockScope scope) {
 		{
 			this.binding = ((ProblemMethodBinding)this.binding).closestMatch;
 			if (!this.binding.declaringClass.isRole()) { // access via interface is possible anyway, no access wrapper needed.
-				// need an accessor method that will be generated by the OTRE / OTREDyn
-				if (this.accessId == -1) // -1 happens for BaseAllocationExpression with role-as-base
-					this.accessId = scope.enclosingSourceType().roleModel.addInaccessibleBaseMethod(this.binding);
-				// pretend that accessor method were already there:
-				if (this.accessId == 0)
-					this.accessId = scope.enclosingSourceType().roleModel.addInaccessibleBaseMethod(this.binding);
 				if (weavingScheme == WeavingScheme.OTDRE) {
-					MethodBinding accessor = CalloutImplementorDyn.ensureAccessor(scope, this.binding.declaringClass, this.binding.isStatic());
-					OTDREMethodDecapsulation updatableAccessor = new OTDREMethodDecapsulation(accessor, this.binding.parameters, this.binding.returnType, this.accessId, scope, this);
-					ReferenceBinding enclosingType = scope.enclosingSourceType().enclosingType();
-					if (enclosingType != null && enclosingType.isTeam())
-						enclosingType.getTeamModel().recordUpdatableAccessId(updatableAccessor);
-					this.syntheticAccessor = updatableAccessor;
+					// no accessor method needed, access via invokedynamic:
+					this.syntheticAccessor = new OTDREMethodDecapsulation(this.binding, scope);
 				} else {
+					// need an accessor method that will be generated by the OTRE
+					if (this.accessId == -1) // -1 happens for BaseAllocationExpression with role-as-base
+						this.accessId = scope.enclosingSourceType().roleModel.addInaccessibleBaseMethod(this.binding);
+					// pretend that accessor method were already there:
+					if (this.accessId == 0)
+						this.accessId = scope.enclosingSourceType().roleModel.addInaccessibleBaseMethod(this.binding);
 					this.binding = new MethodBinding(this.binding, this.binding.declaringClass.getRealClass());
 					this.binding.selector = CharOperation.concat(IOTConstants.OT_DECAPS, this.selector);
 				}
@@ -947,12 +947,14 @@ private void accessAsCalloutToField(BlockScope scope, ReferenceBinding enclosing
 	ImplementationStrategy strategy = weaving == WeavingScheme.OTDRE ? ImplementationStrategy.DYN_ACCESS : ImplementationStrategy.DECAPS_WRAPPER;
 	final MethodBinding fakedAccessorBinding = FieldModel.getDecapsulatingFieldAccessor(scope, baseClass, baseclassField, true, strategy);
 
-	// record the need to have the OTRE create the accessor:
-	int accessid = enclosingReceiver.roleModel.addAccessedBaseField(baseclassField, TerminalTokens.TokenNameget, null);
-
-	SyntheticMethodBinding accessor = (strategy == ImplementationStrategy.DYN_ACCESS)
-			? new SyntheticOTTargetMethod.OTDREFieldDecapsulation(fakedAccessorBinding, baseclassField.type, accessid, 0/*get*/, scope, this)
-			: new SyntheticOTTargetMethod.CalloutToField(fakedAccessorBinding);
+	SyntheticMethodBinding accessor;
+	if (strategy == ImplementationStrategy.DYN_ACCESS) {
+		accessor = new SyntheticOTTargetMethod.OTDREFieldDecapsulation(fakedAccessorBinding, baseclassField, false/*get*/, scope);
+	} else {
+		// record the need to have the OTRE create the accessor:
+		enclosingReceiver.roleModel.addAccessedBaseField(baseclassField, TerminalTokens.TokenNameget, null);
+		accessor = new SyntheticOTTargetMethod.CalloutToField(fakedAccessorBinding);
+	}
 	
 	// convert to a synthetic method that generateCode can use:
 	setSyntheticAccessor(baseclassField, idx, accessor);
@@ -861,6 +861,15 @@ public class ConstantPool implements ClassFileConstants, TypeIds {
 	
 	public int literalIndexForMethodHandle(int referenceKind, TypeBinding declaringClass, char[] selector, char[] signature, boolean isInterface) {
 		int indexForMethod = literalIndexForMethod(declaringClass, selector, signature, isInterface);
+//{ObjectTeams: share with the variant below:
+		return literalIndexForMethodHandle(referenceKind, indexForMethod);
+	}
+	/** Variant for OT/J specific bootstrap methods, which are referenced by the constant pool name of their declaring class. */
+	public int literalIndexForMethodHandle(int referenceKind, char[] declaringClass, char[] selector, char[] signature, boolean isInterface) {
+		return literalIndexForMethodHandle(referenceKind, literalIndexForMethod(declaringClass, selector, signature, isInterface));
+	}
+	private int literalIndexForMethodHandle(int referenceKind, int indexForMethod) {
+// SH}
 
 		int index = this.currentIndex++;
 		int length = this.offsets.length;
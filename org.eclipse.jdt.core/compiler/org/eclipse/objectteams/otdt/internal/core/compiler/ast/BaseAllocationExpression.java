@@ -27,16 +27,13 @@ import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.ASTVisitor;
 import org.eclipse.jdt.internal.compiler.ast.AbstractMethodDeclaration;
 import org.eclipse.jdt.internal.compiler.ast.AllocationExpression;
-import org.eclipse.jdt.internal.compiler.ast.ArrayAllocationExpression;
 import org.eclipse.jdt.internal.compiler.ast.Assignment;
 import org.eclipse.jdt.internal.compiler.ast.CastExpression;
 import org.eclipse.jdt.internal.compiler.ast.ConstructorDeclaration;
 import org.eclipse.jdt.internal.compiler.ast.ExplicitConstructorCall;
 import org.eclipse.jdt.internal.compiler.ast.Expression;
-import org.eclipse.jdt.internal.compiler.ast.IntLiteral;
 import org.eclipse.jdt.internal.compiler.ast.MessageSend;
 import org.eclipse.jdt.internal.compiler.ast.QualifiedAllocationExpression;
-import org.eclipse.jdt.internal.compiler.ast.Reference;
 import org.eclipse.jdt.internal.compiler.ast.SingleNameReference;
 import org.eclipse.jdt.internal.compiler.ast.Statement;
 import org.eclipse.jdt.internal.compiler.ast.TypeDeclaration;
@@ -47,8 +44,6 @@ import org.eclipse.jdt.internal.compiler.flow.FlowContext;
 import org.eclipse.jdt.internal.compiler.flow.FlowInfo;
 import org.eclipse.jdt.internal.compiler.impl.Constant;
 import org.eclipse.jdt.internal.compiler.impl.ReferenceContext;
-import org.eclipse.jdt.internal.compiler.lookup.ArrayBinding;
-import org.eclipse.jdt.internal.compiler.lookup.BaseTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.Binding;
 import org.eclipse.jdt.internal.compiler.lookup.BlockScope;
 import org.eclipse.jdt.internal.compiler.lookup.MemberTypeBinding;
@@ -56,7 +51,6 @@ import org.eclipse.jdt.internal.compiler.lookup.MethodBinding;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.Scope;
 import org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
-import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.objectteams.otdt.core.compiler.IOTConstants;
 import org.eclipse.objectteams.otdt.core.exceptions.InternalCompilerError;
 import org.eclipse.objectteams.otdt.internal.core.compiler.control.ITranslationStates;
@@ -64,10 +58,9 @@ import org.eclipse.objectteams.otdt.internal.core.compiler.control.StateHelper;
 import org.eclipse.objectteams.otdt.internal.core.compiler.lifting.Lifting;
 import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.ITeamAnchor;
 import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.RoleTypeBinding;
-import org.eclipse.objectteams.otdt.internal.core.compiler.mappings.CalloutImplementorDyn;
+import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.SyntheticOTTargetMethod.OTDREConstructorDecapsulation;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.MethodModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.RoleModel;
-import org.eclipse.objectteams.otdt.internal.core.compiler.model.TeamModel.UpdatableIntLiteral;
 import org.eclipse.objectteams.otdt.internal.core.compiler.util.AstGenerator;
 
 /**
@@ -256,21 +249,23 @@ public class BaseAllocationExpression extends Assignment {
         }
     }
 
-	public static Expression convertToDynAccess(BlockScope scope, AllocationExpression expression, int accessId) {
+	/**
+	 * Convert an allocation expression, whose base constructor is not visible,
+	 * into an invokedynamic access, see {@link OTDREConstructorDecapsulation}.
+	 */
+	public static Expression convertToDynAccess(BlockScope scope, AllocationExpression expression) {
 		TypeBinding baseclass = expression.resolvedType;
+		MethodBinding constructor = expression.binding;
 		AstGenerator gen = new AstGenerator(expression);
-    	Expression receiver = gen.typeReference(baseclass);
-    	char[] selector = CalloutImplementorDyn.OT_ACCESS_STATIC;
-    	int modifiers = ClassFileConstants.AccPublic|ClassFileConstants.AccStatic;
+		Expression receiver = gen.typeReference(baseclass);
 		Expression[] arguments = expression.arguments;
+		TypeBinding[] parameters = constructor.parameters;
 		Expression enclosingInstance = null;
-		ReferenceBinding enclosingTeam = null;
 		if (expression instanceof QualifiedAllocationExpression) {
 			enclosingInstance = ((QualifiedAllocationExpression) expression).enclosingInstance;
-			// TODO: enclosing team (for accessId-updating)?
 		} else if (baseclass.isMemberType()) {
 			// extract the enclosing base instance from an outer playedBy:
-			enclosingTeam = scope.enclosingReceiverType().enclosingType();
+			ReferenceBinding enclosingTeam = scope.enclosingReceiverType().enclosingType();
 			if (enclosingTeam != null
 					&& TypeBinding.equalsEquals(baseclass.enclosingType(), enclosingTeam.baseclass)) {
 				enclosingInstance = gen.fieldReference(
@@ -280,6 +275,7 @@ public class BaseAllocationExpression extends Assignment {
 			}
 		}
 		if (enclosingInstance != null) {
+			// the enclosing instance is passed as the first argument of the constructor:
 			if (arguments == null) {
 				arguments = new Expression[] { enclosingInstance };
 			} else {
@@ -287,80 +283,24 @@ public class BaseAllocationExpression extends Assignment {
 				System.arraycopy(arguments, 0, arguments = new Expression[len+1], 1, len);
 				arguments[0] = enclosingInstance;
 			}
+			int len = parameters.length;
+			System.arraycopy(parameters, 0, parameters = new TypeBinding[len+1], 1, len);
+			parameters[0] = baseclass.enclosingType();
 		}
-		MessageSend allocSend = new MessageSend() {
-    		@Override
-			public boolean isDecapsulationAllowed(Scope scope2) {
-    			// this message send can decapsulate independent of scope
-    			return true;
-    		}
-    		@Override
-    		public DecapsulationState getBaseclassDecapsulation() {
-    			return DecapsulationState.ALLOWED;
-    		}
-    	};
-    	gen.setPositions(allocSend);
-    	allocSend.receiver = receiver;
-    	allocSend.selector = selector;
-    	allocSend.constant = Constant.NotAConstant;
-    	allocSend.actualReceiverType = baseclass;
-    	allocSend.accessId = accessId;
-   		allocSend.arguments = createResolvedAccessArguments(gen, accessId, arguments, enclosingTeam, scope);
-    	allocSend.binding = new MethodBinding(modifiers, new TypeBinding[] {
-    			TypeBinding.INT,
-    			TypeBinding.INT,
-    			scope.createArrayType(scope.getJavaLangObject(), 1),
-    			scope.getOrgObjectteamsITeam()
-    		}, 
-    		Binding.NO_EXCEPTIONS,
-    		(ReferenceBinding) baseclass);
-    	allocSend.binding.returnType = scope.getJavaLangObject();
-    	allocSend.binding.selector = selector;
-    	return gen.resolvedCastExpression(allocSend, baseclass, CastExpression.RAW);
-	}
-
-	private static Expression[] createResolvedAccessArguments(AstGenerator gen, int accessId, Expression[] arguments, ReferenceBinding enclosingTeam, BlockScope scope) {
-		UpdatableIntLiteral accessIdLiteral = gen.updatableIntLiteral(accessId);
-		accessIdLiteral.resolveType(scope);
-		if (enclosingTeam != null)
-			enclosingTeam.getTeamModel().recordUpdatableAccessId(accessIdLiteral);
-
-		IntLiteral opKindLiteral = gen.intLiteral(0);
-		opKindLiteral.resolveType(scope);
-		
-		Expression[] boxedArgs = null;
-		if (arguments != null) {
-			boxedArgs = new Expression[arguments.length];
-			for (int i = 0; i < arguments.length; i++) {
-				Expression argument = arguments[i];
-				if (argument.resolvedType.isPrimitiveType()) {
-					BaseTypeBinding baseType = (BaseTypeBinding) argument.resolvedType;
-					MessageSend boxingSend = gen.createBoxing(argument, baseType);
-					boxingSend.resolvedType = scope.environment().computeBoxingType(baseType);
-					boxingSend.binding = scope.getMethod(boxingSend.resolvedType, TypeConstants.VALUEOF, new TypeBinding[]{baseType}, boxingSend);
-					boxingSend.actualReceiverType = boxingSend.resolvedType;
-					boxingSend.argumentTypes = new TypeBinding[] { baseType };
-					boxingSend.constant = Constant.NotAConstant;
-					argument = boxingSend;
-				}
-				boxedArgs[i] = argument;
-			}
-		}
-		ArrayAllocationExpression packedArgs = gen.arrayAllocation(gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_OBJECT), 
-				boxedArgs != null ? 1 : 0, boxedArgs); // arguments are already resolved at this point
-		ArrayBinding objectArray = scope.createArrayType(scope.getJavaLangObject(), 1);
-		if (packedArgs.initializer != null)
-			packedArgs.initializer.binding = objectArray;
-		else
-			packedArgs.dimensions[0].resolveType(scope);
-		packedArgs.resolvedType = objectArray;
-		packedArgs.constant = Constant.NotAConstant;
-
-		Reference teamReference = gen.qualifiedThisReference(scope.enclosingSourceType().enclosingType());
-		teamReference.resolveType(scope);
-		
-		return new Expression[] { accessIdLiteral, opKindLiteral, packedArgs, teamReference };
+		MessageSend allocSend = new MessageSend();
+		gen.setPositions(allocSend);
+		allocSend.receiver = receiver;
+		allocSend.selector = NEW_SELECTOR;
+		allocSend.constant = Constant.NotAConstant;
+		allocSend.actualReceiverType = baseclass;
+		allocSend.arguments = arguments;
+		int modifiers = ClassFileConstants.AccPublic|ClassFileConstants.AccStatic|(constructor.modifiers & ClassFileConstants.AccVarargs);
+		allocSend.binding = new MethodBinding(modifiers, NEW_SELECTOR, baseclass, parameters, Binding.NO_EXCEPTIONS, (ReferenceBinding) baseclass);
+		allocSend.syntheticAccessor = new OTDREConstructorDecapsulation(allocSend.binding, scope);
+		allocSend.resolvedType = baseclass;
+		return allocSend;
 	}
+	private static final char[] NEW_SELECTOR = "new".toCharArray(); //$NON-NLS-1$
 
 	private boolean isArgOfOtherCtor(ConstructorDeclaration constructorDecl, BlockScope scope) {
     	// two marker exception types:
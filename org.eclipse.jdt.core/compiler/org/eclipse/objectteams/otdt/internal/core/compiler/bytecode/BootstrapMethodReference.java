@@ -0,0 +1,67 @@
+/**********************************************************************
+ * This file is part of "Object Teams Development Tooling"-Software
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ * 		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otdt.internal.core.compiler.bytecode;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * An entry of the BootstrapMethods attribute, which is either generated for an OT/J specific
+ * invokedynamic instruction, or copied along with a role method during copy inheritance.
+ * <p>
+ * The bootstrap method is a static method, static arguments are strings or ints.
+ * </p>
+ * Recorded in a class file via {@link org.eclipse.jdt.internal.compiler.ClassFile#recordBootstrapMethod(BootstrapMethodReference)}.
+ */
+public class BootstrapMethodReference {
+
+	public final char[] declaringClass; // constant pool name
+	public final char[] selector;
+	public final char[] signature;
+	public final Object[] arguments; // String or Integer
+
+	public BootstrapMethodReference(char[] declaringClass, char[] selector, char[] signature, Object[] arguments) {
+		this.declaringClass = declaringClass;
+		this.selector = selector;
+		this.signature = signature;
+		this.arguments = arguments;
+	}
+
+	@Override
+	public int hashCode() {
+		return CharOperation.hashCode(this.selector) * 31 + Arrays.hashCode(this.arguments);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof BootstrapMethodReference))
+			return false;
+		BootstrapMethodReference other = (BootstrapMethodReference) obj;
+		return CharOperation.equals(this.declaringClass, other.declaringClass)
+				&& CharOperation.equals(this.selector, other.selector)
+				&& CharOperation.equals(this.signature, other.signature)
+				&& Arrays.equals(this.arguments, other.arguments);
+	}
+
+	@Override
+	public String toString() {
+		return new String(this.declaringClass) + '.' + new String(this.selector) + new String(this.signature)
+				+ Arrays.toString(this.arguments);
+	}
+}
@@ -47,6 +47,7 @@ public class ConstantPoolObject implements ClassFileConstants {
 	private TypeBinding _typeBinding;
 	private MethodBinding _methodBinding;
 	private FieldBinding _fieldBinding;
+	private BootstrapMethodReference _bootstrapMethod;
 
 	private String _string;
 	private char[] _char;
@@ -54,6 +55,7 @@ public class ConstantPoolObject implements ClassFileConstants {
 	private long 	_long;
 	private float 	_float;
 	private double 	_double;
+	private char[]	_descriptor;
 
 	// needed to determine whether a string is referenced by a byte or wide index:
 	private int     _index;
@@ -132,6 +134,13 @@ public class ConstantPoolObject implements ClassFileConstants {
 		assert(this._fieldBinding!=null);
 	}
 
+	public ConstantPoolObject(int type, BootstrapMethodReference bootstrapMethod, char[] name, char[] descriptor){
+		this._type=type;
+		this._bootstrapMethod=bootstrapMethod;
+		this._char=name;
+		this._descriptor=descriptor;
+	}
+
 	public int getInteger(){
 		assert(this._type==IntegerTag);
 		return this._int;
@@ -182,6 +191,21 @@ public class ConstantPoolObject implements ClassFileConstants {
 		return this._methodBinding;
 	}
 
+	public BootstrapMethodReference getBootstrapMethod(){
+		assert(this._type==InvokeDynamicTag);
+		return this._bootstrapMethod;
+	}
+
+	public char[] getInvokeDynamicName(){
+		assert(this._type==InvokeDynamicTag);
+		return this._char;
+	}
+
+	public char[] getInvokeDynamicDescriptor(){
+		assert(this._type==InvokeDynamicTag);
+		return this._descriptor;
+	}
+
 	public void setMethod (MethodBinding newMeth) {
 		assert (this._type==MethodRefTag);
 		this._methodBinding = newMeth;
@@ -209,6 +233,7 @@ public class ConstantPoolObject implements ClassFileConstants {
 			case	ClassTag: str = new String("TypeBinding:")+this._typeBinding.toString() +"\n"; break;
 			case	MethodRefTag: str = new String("MethodBinding:")+this._methodBinding.toString() +" \n=>"+((this._methodBinding.declaringClass!=null)?this._methodBinding.declaringClass.toString():"")+"\n"; break;
 			case	FieldRefTag: str = new String("FieldBinding:")+this._fieldBinding.toString()+" \n=>"+((this._fieldBinding.declaringClass!=null)?this._fieldBinding.declaringClass.toString():"")+"\n"; break;
+			case	InvokeDynamicTag: str = new String("InvokeDynamic:")+new String(this._char)+new String(this._descriptor)+" \n=>"+this._bootstrapMethod.toString()+"\n"; break;
 			case	InterfaceMethodRefTag: str = new String("Interface:MethodBinding:")+" \n=>"+((this._methodBinding.declaringClass!=null)?this._methodBinding.declaringClass.toString():"")+"\n"; break;
 		}
 		return str;
@@ -32,6 +32,7 @@ import java.util.Iterator;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileStruct;
+import org.eclipse.jdt.internal.compiler.codegen.AttributeNamesConstants;
 import org.eclipse.jdt.internal.compiler.codegen.ConstantPool;
 import org.eclipse.jdt.internal.compiler.env.ITypeAnnotationWalker;
 import org.eclipse.jdt.internal.compiler.impl.Constant;
@@ -82,6 +83,7 @@ public class ConstantPoolObjectReader extends ClassFileStruct implements ClassFi
 
 	private LookupEnvironment _environment;
 	private TypeModel _srcModel;
+	private int _bootstrapMethodsOffset; // 0 means: not yet searched
 
 	/**
 	 * @param srcRole the source role being copied from
@@ -140,6 +142,7 @@ public class ConstantPoolObjectReader extends ClassFileStruct implements ClassFi
 			case MethodRefTag :	 			return new ConstantPoolObject(type, getMethodRef(ref));
 			case InterfaceMethodRefTag : 	return new ConstantPoolObject(type, getInterfaceMethodRef(ref));
 			case Utf8Tag : 				  	return new ConstantPoolObject(type, getUtf8(ref));
+			case InvokeDynamicTag :			return getInvokeDynamic(ref);
 			//case NameAndTypeTag : 		//...
 			default:
 				throw new RuntimeException();
@@ -334,6 +337,101 @@ public class ConstantPoolObjectReader extends ClassFileStruct implements ClassFi
 		return result;
 	}
 
+	/** Retrieve an invokedynamic entry together with its entry in the BootstrapMethods attribute. */
+	private ConstantPoolObject getInvokeDynamic(int index) {
+		int start = getConstantPoolStartPosition(index);
+		assert(u1At(start)==InvokeDynamicTag);
+		int bootstrap_index = u2At(start+1);
+		char[][] nameandtype = getNameAndType(u2At(start+3));
+		return new ConstantPoolObject(InvokeDynamicTag, getBootstrapMethod(bootstrap_index), nameandtype[0], nameandtype[1]);
+	}
+
+	/**
+	 * Read an entry of the BootstrapMethods attribute.
+	 * Only static bootstrap methods with string and int arguments are supported,
+	 * as generated for OT/J specific invokedynamic instructions.
+	 */
+	private BootstrapMethodReference getBootstrapMethod(int bootstrapIndex) {
+		int offset = getBootstrapMethodsOffset();
+		if (offset == -1 || bootstrapIndex >= u2At(offset))
+			throw new InternalCompilerError("Missing bootstrap method "+bootstrapIndex); //$NON-NLS-1$
+		offset += 2;
+		for (int i = 0; i < bootstrapIndex; i++)
+			offset += 4 + 2 * u2At(offset+2); // skip bootstrap_method_ref, num_bootstrap_arguments and arguments
+
+		int handleStart = getConstantPoolStartPosition(u2At(offset));
+		if (u1At(handleStart) != MethodHandleTag || u1At(handleStart+1) != MethodHandleRefKindInvokeStatic)
+			throw new InternalCompilerError("Unsupported bootstrap method "+bootstrapIndex); //$NON-NLS-1$
+		int methodStart = getConstantPoolStartPosition(u2At(handleStart+2));
+		int classStart = getConstantPoolStartPosition(u2At(methodStart+1));
+		char[] class_name = getUtf8(u2At(classStart+1));
+		char[][] nameandtype = getNameAndType(u2At(methodStart+3));
+
+		Object[] arguments = new Object[u2At(offset+2)];
+		for (int i = 0; i < arguments.length; i++) {
+			int arg = u2At(offset+4+2*i);
+			switch (getConstantPoolEntryType(arg)) {
+				case IntegerTag : 	arguments[i] = Integer.valueOf(getInteger(arg)); break;
+				case StringTag :	arguments[i] = getString(arg); break;
+				default:
+					throw new InternalCompilerError("Unsupported argument of bootstrap method "+new String(nameandtype[0])); //$NON-NLS-1$
+			}
+		}
+		return new BootstrapMethodReference(class_name, nameandtype[0], nameandtype[1], arguments);
+	}
+
+	/** Answer the position of num_bootstrap_methods in the BootstrapMethods attribute, or -1. */
+	private int getBootstrapMethodsOffset() {
+		if (this._bootstrapMethodsOffset != 0)
+			return this._bootstrapMethodsOffset;
+		// skip the constant pool:
+		int count = u2At(8);
+		int offset = 10;
+		for (int i = 1; i < count; i++) {
+			switch (u1At(offset)) {
+				case Utf8Tag : 			offset += 3 + u2At(offset+1); break;
+				case LongTag :
+				case DoubleTag :		offset += 9; i++; break;
+				case MethodHandleTag : 	offset += 4; break;
+				case ClassTag :
+				case StringTag :
+				case MethodTypeTag :
+				case ModuleTag :
+				case PackageTag :		offset += 3; break;
+				default :				offset += 5; break; // Integer, Float, member references, NameAndType, (Invoke)Dynamic
+			}
+		}
+		// skip access_flags, this_class, super_class and interfaces:
+		offset += 6;
+		offset += 2 + 2 * u2At(offset);
+		// skip fields and methods:
+		for (int kind = 0; kind < 2; kind++) {
+			int memberCount = u2At(offset);
+			offset += 2;
+			for (int i = 0; i < memberCount; i++)
+				offset = skipAttributes(offset + 6);
+		}
+		int attributeCount = u2At(offset);
+		offset += 2;
+		int result = -1;
+		for (int i = 0; i < attributeCount; i++) {
+			if (CharOperation.equals(getUtf8(u2At(offset)), AttributeNamesConstants.BootstrapMethodsName)) {
+				result = offset + 6;
+				break;
+			}
+			offset += 6 + (int) u4At(offset+2);
+		}
+		return this._bootstrapMethodsOffset = result;
+	}
+
+	private int skipAttributes(int offset) {
+		int attributeCount = u2At(offset);
+		offset += 2;
+		for (int i = 0; i < attributeCount; i++)
+			offset += 6 + (int) u4At(offset+2);
+		return offset;
+	}
+
 //*************************************************
 	// as used to retrieve the declaring class of various entries
 	// and for class entries without 'L' and ';'
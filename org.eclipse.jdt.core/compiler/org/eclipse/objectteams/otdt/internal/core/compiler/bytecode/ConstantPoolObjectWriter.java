@@ -84,6 +84,12 @@ public class ConstantPoolObjectWriter implements ClassFileConstants  {
 														true); // interface
 			case Utf8Tag :
 				return this.dstClassFile.constantPool.literalIndex(cpo.getUtf8());
+			case InvokeDynamicTag :
+				int bootstrapIndex = this.dstClassFile.recordBootstrapMethod(cpo.getBootstrapMethod());
+				return this.dstClassFile.constantPool.literalIndexForInvokeDynamic(
+														bootstrapIndex,
+														cpo.getInvokeDynamicName(),
+														cpo.getInvokeDynamicDescriptor());
 			case NameAndTypeTag :		//...
 			default:
 				throw new RuntimeException();
@@ -59,6 +59,7 @@ public class OTByteCodes implements Opcodes {
 			case OPC_invokevirtual:
 			case OPC_invokestatic:
 			case OPC_invokespecial:
+			case OPC_invokedynamic: // two zero bytes covered by getParamLength.
 			case OPC_new:
 			case OPC_anewarray:
 			case OPC_getfield:
@@ -103,6 +104,7 @@ public class OTByteCodes implements Opcodes {
 			case OPC_if_icmplt:   case OPC_if_icmpne:
 
 			case OPC_invokeinterface: // this has two non-cp parameters.
+			case OPC_invokedynamic: // two zero bytes
 			case OPC_iinc:
 				return 2;
 			case OPC_goto_w:    case OPC_jsr_w:
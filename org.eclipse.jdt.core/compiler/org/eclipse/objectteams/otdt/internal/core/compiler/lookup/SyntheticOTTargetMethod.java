@@ -15,19 +15,20 @@
  **********************************************************************/
 package org.eclipse.objectteams.otdt.internal.core.compiler.lookup;
 
-import org.eclipse.jdt.internal.compiler.ast.ASTNode;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.codegen.CodeStream;
 import org.eclipse.jdt.internal.compiler.codegen.Opcodes;
 import org.eclipse.jdt.internal.compiler.lookup.BinaryTypeBinding;
-import org.eclipse.jdt.internal.compiler.lookup.BlockScope;
+import org.eclipse.jdt.internal.compiler.lookup.Binding;
 import org.eclipse.jdt.internal.compiler.lookup.FieldBinding;
 import org.eclipse.jdt.internal.compiler.lookup.MethodBinding;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
+import org.eclipse.jdt.internal.compiler.lookup.Scope;
 import org.eclipse.jdt.internal.compiler.lookup.SourceTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.SyntheticMethodBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeIds;
-import org.eclipse.objectteams.otdt.internal.core.compiler.model.TeamModel;
+import org.eclipse.objectteams.otdt.internal.core.compiler.bytecode.BootstrapMethodReference;
 
 /**
  * A synthetic method binding, which used as an invocation target needs to
@@ -77,172 +78,152 @@ public abstract class SyntheticOTTargetMethod extends SyntheticMethodBinding {
 	
 	/**
 	 * Represents a decapsulating field access while targeting OTDRE.
-	 * We need to generate a special sequence to call _OT$access(int,int,Object[],ITeam)
-	 * Currently only supports read access.
-	 * Typical use is when a base predicate refers to a private base field.
+	 * We generate an invokedynamic instruction of the exact type of the access,
+	 * to be linked by the DecapsulationBootstrap of the OTDRE.
+	 * Typical uses are a callout to a private base field, and a base predicate referring to a private base field.
 	 */
 	public static class OTDREFieldDecapsulation extends SyntheticOTTargetMethod {
 
-		private int accessId;
-		private int opKind;
-		private ReferenceBinding enclosingTeam;
-		private TypeBinding originalType;
-		private ASTNode site;
-		private BlockScope scope;
-		
+		private FieldBinding field;
+		private boolean isSetter;
+		private Scope scope;
+
 		/**
 		 * Create a binding for a field access using decapsulation.
-		 * @param fakedMethod this method is member of the base class, representing the otdre-generated access method.
-		 * @param originalType return type of the original feature (field)
-		 * @param accessId ID by which the base field is identified inside the access method
-		 * @param opKind 0 = get, 1 = set
+		 * @param fakedMethod this method is member of the base class, representing the access to the field.
+		 * @param field the accessed base field
+		 * @param isSetter false = get, true = set
 		 * @param scope where this access has been seen
-		 * @param site the exact node where decapsulation happened
 		 */
-		public OTDREFieldDecapsulation(MethodBinding fakedMethod, TypeBinding originalType, int accessId, int opKind, BlockScope scope, ASTNode site) {
+		public OTDREFieldDecapsulation(MethodBinding fakedMethod, FieldBinding field, boolean isSetter, Scope scope) {
 			super(fakedMethod, SyntheticMethodBinding.InferredCalloutToField);
-			this.accessId = accessId;
-			this.opKind = opKind;
-			ReferenceBinding enclosingRole = scope.enclosingReceiverType();
-			this.enclosingTeam = enclosingRole.enclosingType();
-			this.originalType = originalType;
-			this.site = site;
+			this.field = field;
+			this.isSetter = isSetter;
 			this.scope = scope;
 		}
 
 		@Override
 		public byte prepareOrGenerateInvocation(CodeStream codeStream, byte opcode) {
-			// accessId
-			codeStream.bipush((byte) this.accessId);
-			// 0 = get, 1 = set
-			if (this.opKind == 0)
-				codeStream.iconst_0();
-			else
-				codeStream.iconst_1();
-			// no args to pack for read access:
-			codeStream.aconst_null(); 
-			// enclosing team instance:
-			Object[] emulationPath = this.scope.getEmulationPath(this.enclosingTeam, true /*only exact match*/, false/*consider enclosing arg*/);
-			codeStream.generateOuterAccess(emulationPath, this.site, this.enclosingTeam, this.scope);
-			// invoke it:
-			byte invoke = this.targetMethod.isStatic() ? Opcodes.OPC_invokestatic : Opcodes.OPC_invokevirtual;
-			codeStream.invoke(invoke, this.targetMethod, this.targetMethod.declaringClass);
-			// convert result?:
-			if (this.originalType != TypeBinding.VOID) {
-				if (this.originalType.isBaseType()) {
-					codeStream.checkcast(this.scope.environment().computeBoxingType(this.originalType));
-					codeStream.generateUnboxingConversion(this.originalType.id);
-				} else {
-					codeStream.checkcast(this.originalType);
-				}
+			// receiver (unless static) is on the stack, followed by the value to assign, if any
+			int kind;
+			TypeBinding[] parameters;
+			TypeBinding returnType;
+			if (this.isSetter) {
+				kind = this.field.isStatic() ? ClassFileConstants.MethodHandleRefKindPutStatic : ClassFileConstants.MethodHandleRefKindPutField;
+				parameters = new TypeBinding[] { this.field.type };
+				returnType = TypeBinding.VOID;
 			} else {
-				// what? - not hit for field read :)
+				kind = this.field.isStatic() ? ClassFileConstants.MethodHandleRefKindGetStatic : ClassFileConstants.MethodHandleRefKindGetField;
+				parameters = Binding.NO_PARAMETERS;
+				returnType = this.field.type;
 			}
+			generateDecapsulatingAccess(codeStream, this.scope, kind, this.field.declaringClass, this.field.name, parameters, returnType);
 			return 0; // signal we're done
 		}
 	}
 
 	/**
-	 * Represents a decapsulating method access while targeting OTDRE (not an explicit callout).
-	 * We need to generate a special sequence to call _OT$access(int,int,Object[],ITeam)
+	 * Represents a decapsulating method access while targeting OTDRE.
+	 * We generate an invokedynamic instruction of the exact type of the target method,
+	 * to be linked by the DecapsulationBootstrap of the OTDRE.
 	 */
-	public static class OTDREMethodDecapsulation extends SyntheticOTTargetMethod implements TeamModel.UpdatableAccessId {
+	public static class OTDREMethodDecapsulation extends SyntheticOTTargetMethod {
+
+		private Scope scope;
 
-		private int accessId;
-		private ReferenceBinding enclosingTeam;
-		private TypeBinding[] originalParameters;
-		private TypeBinding originalReturnType;
-		private ASTNode site;
-		private BlockScope scope;
-		
 		/**
 		 * Create a binding for a method access using decapsulation.
-		 * @param targetMethod this method is member of the base class, representing the otdre-generated access method.
-		 * @param originalParameters parameters of the original target method (before replacing with _OT$access)
-		 * @param originalReturn return type of the original target method (before replacing with _OT$access)
-		 * @param accessId ID by which the base field is identified inside the access method
+		 * @param targetMethod the inaccessible base method
 		 * @param scope where this access has been seen
-		 * @param site the exact node where decapsulation happened
 		 */
-		public OTDREMethodDecapsulation(MethodBinding targetMethod, TypeBinding[] originalParameters, TypeBinding originalReturn, int accessId, BlockScope scope, ASTNode site) {
-			super(targetMethod, SyntheticMethodBinding.MethodDecapsulation);
-			this.accessId = accessId;
-			ReferenceBinding enclosingRole = scope.enclosingReceiverType();
-			this.enclosingTeam = enclosingRole.enclosingType();
-			this.originalParameters = originalParameters;
-			this.originalReturnType = originalReturn;
-			this.site = site;
+		public OTDREMethodDecapsulation(MethodBinding targetMethod, Scope scope) {
+			super(targetMethod.original(), SyntheticMethodBinding.MethodDecapsulation);
 			this.scope = scope;
 		}
 
 		@Override
 		public byte prepareOrGenerateInvocation(CodeStream codeStream, byte opcode) {
-			TypeBinding[] tgtParams = this.originalParameters;
-			byte len = (byte) tgtParams.length;
-			// argument array:
-			codeStream.bipush(len);
-			codeStream.anewarray(this.scope.getJavaLangObject());
-			// fold array store into arguments on stack:
-			for (byte i = (byte) (len-1); i >= 0; i--) {
-				// argi, array
-				if (size(tgtParams[i]) == 1) {
-					codeStream.dup_x1();
-					// array, argi, array
-					codeStream.swap();
-				} else {
-					codeStream.dup_x2();
-					// array, argi, array
-					codeStream.dup_x2();
-					// array, array, argi, array
-					codeStream.pop();
-				}
-				// array, array, argi
-				if (tgtParams[i].isPrimitiveType())
-					codeStream.generateBoxingConversion(tgtParams[i].id); // no longer need to handle 2-byte values
-				codeStream.bipush(i);
-				// array, array, argi, i
-				codeStream.swap();
-				// array, array, i, argi
-				codeStream.aastore();
-				// array
-			}
-			// array (containing all arguments)
+			// receiver (unless static) and all arguments are on the stack
+			MethodBinding method = this.targetMethod;
+			int kind = method.isStatic() ? ClassFileConstants.MethodHandleRefKindInvokeStatic : ClassFileConstants.MethodHandleRefKindInvokeVirtual;
+			generateDecapsulatingAccess(codeStream, this.scope, kind, method.declaringClass, method.selector, method.parameters, method.returnType);
+			return 0; // signal we're done
+		}
+	}
+
+	/**
+	 * Represents a decapsulating constructor invocation (base constructor call) while targeting OTDRE.
+	 * We generate an invokedynamic instruction that takes the constructor arguments and answers the new instance,
+	 * to be linked by the DecapsulationBootstrap of the OTDRE.
+	 */
+	public static class OTDREConstructorDecapsulation extends SyntheticOTTargetMethod {
 
-			// accessId:
-			codeStream.bipush((byte) this.accessId);
-			codeStream.swap();
-			// accessId, array
-			
-			// opKind (ignored):
-			codeStream.iconst_0();
-			codeStream.swap();
-			// accessId, opKind, array
+		private Scope scope;
 
-			// enclosing team instance:
-			Object[] emulationPath = this.scope.getEmulationPath(this.enclosingTeam, true /*only exact match*/, false/*consider enclosing arg*/);
-			codeStream.generateOuterAccess(emulationPath, this.site, this.enclosingTeam, this.scope);
-			// invoke it:
-			byte invoke = this.targetMethod.isStatic() ? Opcodes.OPC_invokestatic : Opcodes.OPC_invokevirtual;
-			codeStream.invoke(invoke, this, this.targetMethod.declaringClass);
-			// convert result?:
-			if (this.originalReturnType != TypeBinding.VOID) {
-				if (this.originalReturnType.isBaseType()) {
-					codeStream.checkcast(this.scope.environment().computeBoxingType(this.originalReturnType));
-					codeStream.generateUnboxingConversion(this.originalReturnType.id);
-				} else {
-					codeStream.checkcast(this.originalReturnType);
-				}
-			} else {
-				codeStream.pop();
-			}
-			return 0; // signal we're done
+		/**
+		 * Create a binding for a constructor invocation using decapsulation.
+		 * @param allocator static method binding with all parameters of the constructor (incl. an enclosing instance),
+		 * 	answering the base class
+		 * @param scope where this invocation has been seen
+		 */
+		public OTDREConstructorDecapsulation(MethodBinding allocator, Scope scope) {
+			super(allocator, SyntheticMethodBinding.MethodDecapsulation);
+			this.scope = scope;
 		}
 
 		@Override
-		public void update(int offset) {
-			this.accessId += offset;
+		public byte prepareOrGenerateInvocation(CodeStream codeStream, byte opcode) {
+			// all arguments are on the stack
+			MethodBinding allocator = this.targetMethod;
+			generateDecapsulatingAccess(codeStream, this.scope, ClassFileConstants.MethodHandleRefKindNewInvokeSpecial,
+					allocator.declaringClass, allocator.selector, allocator.parameters, allocator.returnType);
+			return 0; // signal we're done
+		}
+	}
+
+	/**
+	 * Generate an invokedynamic instruction that is linked to a direct method handle for the given base member.
+	 * The receiver of an instance member is passed as the first argument.
+	 * Types that cannot be seen from the current scope are passed as java.lang.Object.
+	 * @param kind the reference kind of the member handle, see {@link ClassFileConstants#MethodHandleRefKindGetField} ff.
+	 */
+	static void generateDecapsulatingAccess(CodeStream codeStream, Scope scope, int kind, ReferenceBinding declaringClass,
+			char[] name, TypeBinding[] parameters, TypeBinding returnType)
+	{
+		boolean hasReceiver = kind == ClassFileConstants.MethodHandleRefKindGetField
+								|| kind == ClassFileConstants.MethodHandleRefKindPutField
+								|| kind == ClassFileConstants.MethodHandleRefKindInvokeVirtual;
+		ReferenceBinding baseClass = (ReferenceBinding) declaringClass.erasure();
+		StringBuilder signature = new StringBuilder().append('(');
+		int argsSize = 0;
+		if (hasReceiver) {
+			signature.append(visibleSignature(baseClass, scope));
+			argsSize++;
+		}
+		for (TypeBinding parameter : parameters) {
+			signature.append(visibleSignature(parameter.erasure(), scope));
+			argsSize += size(parameter);
 		}
+		signature.append(')').append(returnType.erasure().signature());
+
+		BootstrapMethodReference bootstrap = new BootstrapMethodReference(
+				DECAPSULATION_BOOTSTRAP, ACCESS, ACCESS_SIGNATURE,
+				new Object[] { Integer.valueOf(kind), new String(baseClass.constantPoolName()) });
+		int bootstrapIndex = codeStream.classFile.recordBootstrapMethod(bootstrap);
+		codeStream.invokeDynamic(bootstrapIndex, argsSize, size(returnType), name, signature.toString().toCharArray());
 	}
+
+	private static char[] visibleSignature(TypeBinding type, Scope scope) {
+		TypeBinding leafType = type.leafComponentType();
+		if (leafType instanceof ReferenceBinding && !((ReferenceBinding) leafType).canBeSeenBy(scope))
+			return scope.getJavaLangObject().signature();
+		return type.signature();
+	}
+
+	static final char[] DECAPSULATION_BOOTSTRAP = "org/eclipse/objectteams/otredyn/runtime/dynamic/DecapsulationBootstrap".toCharArray(); //$NON-NLS-1$
+	static final char[] ACCESS = "access".toCharArray(); //$NON-NLS-1$
+	static final char[] ACCESS_SIGNATURE = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;ILjava/lang/String;)Ljava/lang/invoke/CallSite;".toCharArray(); //$NON-NLS-1$
+
 	static int size(TypeBinding type) {
 		switch (type.id) {
 			case TypeIds.T_double :
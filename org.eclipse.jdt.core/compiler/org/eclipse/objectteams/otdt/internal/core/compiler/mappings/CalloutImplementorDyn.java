@@ -15,23 +15,29 @@
  **********************************************************************/
 package org.eclipse.objectteams.otdt.internal.core.compiler.mappings;
 
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.ast.Expression;
 import org.eclipse.jdt.internal.compiler.ast.MessageSend;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.lookup.BaseTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.Binding;
+import org.eclipse.jdt.internal.compiler.lookup.BlockScope;
+import org.eclipse.jdt.internal.compiler.lookup.FieldBinding;
 import org.eclipse.jdt.internal.compiler.lookup.MethodBinding;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.Scope;
 import org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+import org.eclipse.objectteams.otdt.core.compiler.IOTConstants;
 import org.eclipse.objectteams.otdt.internal.core.compiler.ast.FieldAccessSpec;
 import org.eclipse.objectteams.otdt.internal.core.compiler.ast.MethodSpec;
 import org.eclipse.objectteams.otdt.internal.core.compiler.ast.PotentialLowerExpression;
+import org.eclipse.objectteams.otdt.internal.core.compiler.lookup.SyntheticOTTargetMethod.OTDREFieldDecapsulation;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.RoleModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.model.TeamModel;
 import org.eclipse.objectteams.otdt.internal.core.compiler.util.AstGenerator;
+import org.eclipse.objectteams.otdt.internal.core.compiler.util.AstGenerator.IRunInScope;
 
 /**
  * This class only contains those parts of callout generation that for
@@ -46,9 +52,60 @@ public class CalloutImplementorDyn {
 	public static final char[] OT_ACCESS_STATIC = "_OT$accessStatic".toCharArray(); //$NON-NLS-1$
 	
 
-	public static Expression baseAccessExpression(Scope scope, RoleModel roleModel, ReferenceBinding baseType, 
-												  Expression receiver, MethodSpec baseSpec, Expression[] arguments,
-												  AstGenerator gen) 
+	/**
+	 * Create the expression by which a callout wrapper accesses an inaccessible base feature.
+	 * Unless the base is a role, this expression will be compiled to an invokedynamic instruction
+	 * of the exact type of the base feature, see {@link org.eclipse.objectteams.otdt.internal.core.compiler.lookup.SyntheticOTTargetMethod}.
+	 */
+	public static Expression baseAccessExpression(Scope scope, RoleModel roleModel, ReferenceBinding baseType,
+												  final Expression receiver, MethodSpec baseSpec, final Expression[] arguments,
+												  AstGenerator gen)
+	{
+		if (baseType.isRole())
+			return packedAccessExpression(scope, roleModel, baseType, receiver, baseSpec, arguments, gen);
+		if (baseSpec instanceof FieldAccessSpec) {
+			final FieldBinding field = ((FieldAccessSpec) baseSpec).resolvedField;
+			final boolean isSetter = ((FieldAccessSpec) baseSpec).isSetter();
+			MethodBinding accessor = typedFieldAccessor(baseType, field, isSetter);
+			MessageSend messageSend = gen.messageSendWithResolveHook(receiver, accessor, arguments, new IRunInScope() {
+				@Override
+				public void run(BlockScope blockScope) {
+					if (!field.isStatic())
+						receiver.resolveType(blockScope);
+					if (isSetter) {
+						Expression value = arguments[0];
+						if (value.resolvedType != null)
+							value.computeConversion(blockScope, field.type, value.resolvedType);
+					}
+				}
+			});
+			messageSend.syntheticAccessor = new OTDREFieldDecapsulation(accessor, field, isSetter, scope);
+			return messageSend;
+		}
+		// regular message send, which will be translated by MessageSend.resolveType() when detecting decapsulation:
+		MessageSend messageSend = gen.messageSend(receiver, baseSpec.selector, arguments);
+		messageSend.accessId = baseSpec.accessId;
+		return messageSend;
+	}
+
+	/** Create a method binding representing a typed access to the given field, which is not added to its declaring class. */
+	private static MethodBinding typedFieldAccessor(ReferenceBinding baseType, FieldBinding field, boolean isSetter) {
+		if (baseType.isRoleType())
+			baseType = baseType.getRealClass();
+		int modifiers = ClassFileConstants.AccPublic|ClassFileConstants.AccSynthetic;
+		if (field.isStatic())
+			modifiers |= ClassFileConstants.AccStatic;
+		if (isSetter)
+			return new MethodBinding(modifiers, CharOperation.concat(IOTConstants.OT_SETFIELD, field.name),
+									 TypeBinding.VOID, new TypeBinding[] { field.type }, Binding.NO_EXCEPTIONS, baseType);
+		return new MethodBinding(modifiers, CharOperation.concat(IOTConstants.OT_GETFIELD, field.name),
+								 field.type, Binding.NO_PARAMETERS, Binding.NO_EXCEPTIONS, baseType);
+	}
+
+	/** Base access for a base class that is a role: pack arguments for invoking the _OT$access method generated by the OTDRE. */
+	private static Expression packedAccessExpression(Scope scope, RoleModel roleModel, ReferenceBinding baseType,
+													 Expression receiver, MethodSpec baseSpec, Expression[] arguments,
+													 AstGenerator gen)
 	{
 		char[] selector = ensureAccessor(scope, baseType, baseSpec.isStatic()).selector;
 		TeamModel teamModel = roleModel.getTeamModel();
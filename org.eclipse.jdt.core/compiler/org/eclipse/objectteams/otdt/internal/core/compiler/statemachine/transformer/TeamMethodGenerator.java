@@ -18,7 +18,6 @@ package org.eclipse.objectteams.otdt.internal.core.compiler.statemachine.transfo
 
 import static org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants.AccFinal;
 import static org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants.AccPrivate;
-import static org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants.AccProtected;
 import static org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants.AccPublic;
 import static org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants.AccSynchronized;
 import static org.eclipse.jdt.internal.compiler.lookup.ExtraCompilerModifiers.AccVisibilityMASK;
@@ -34,7 +33,6 @@ import org.eclipse.jdt.internal.compiler.ast.Argument;
 import org.eclipse.jdt.internal.compiler.ast.Expression;
 import org.eclipse.jdt.internal.compiler.ast.FieldDeclaration;
 import org.eclipse.jdt.internal.compiler.ast.MethodDeclaration;
-import org.eclipse.jdt.internal.compiler.ast.QualifiedTypeReference;
 import org.eclipse.jdt.internal.compiler.ast.Statement;
 import org.eclipse.jdt.internal.compiler.ast.TypeDeclaration;
 import org.eclipse.jdt.internal.compiler.ast.TypeReference;
@@ -83,9 +81,9 @@ import org.eclipse.objectteams.otdt.internal.core.compiler.util.AstGenerator;
  * @since 1.4.0
  */
 public class TeamMethodGenerator {
-	static final char[][] JAVA_LANG_WEAKHASHMAP = new char[][] {"java".toCharArray(), "util".toCharArray(), "WeakHashMap".toCharArray()};  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	static final char[][] JAVA_LANG_THREAD 		= new char[][] {"java".toCharArray(), "lang".toCharArray(), "Thread".toCharArray()}; 	   //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-	static final char[][] JAVA_LANG_THREADLOCAL = new char[][] {"java".toCharArray(), "lang".toCharArray(), "ThreadLocal".toCharArray()};  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	static final char[][] ORG_OBJECTTEAMS_TEAMACTIVATION = new char[][] {"org".toCharArray(), "objectteams".toCharArray(), "TeamActivation".toCharArray()};  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	static final char[][] ORG_OBJECTTEAMS_ACTIVATIONSCOPE = new char[][] {"org".toCharArray(), "objectteams".toCharArray(), "ActivationScope".toCharArray()};  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	
 	/** Simple structure to represent one method of o.o.Team. */
 	static class MethodDescriptor {
@@ -180,6 +178,8 @@ public class TeamMethodGenerator {
 					return gen.baseTypeReference(TypeConstants.VOID);
 				case OBJECT:
 					return gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_OBJECT);
+				case ACTIVATION_SCOPE:
+					return gen.qualifiedTypeReference(ORG_OBJECTTEAMS_ACTIVATIONSCOPE);
 				default:
 					throw new InternalCompilerError("Unexpected return type "+this.returnType); //$NON-NLS-1$
 			}
@@ -189,7 +189,7 @@ public class TeamMethodGenerator {
 		NONE {
 			@Override public int length() { return 0; }
 		}, 
-		THREAD, BOOLEAN, INT, OBJECT, 
+		THREAD, BOOLEAN, INT, OBJECT, ACTIVATION_SCOPE,
 		OTDYNARGS1 { @Override int length() { return 6; } },
 		OTDYNARGS2 { @Override int length() { return 8; } },
 		OTDYNARGS3 { @Override int length() { return 4; } },
@@ -206,13 +206,14 @@ public class TeamMethodGenerator {
     	new MethodDescriptor("activate",   							"(Ljava/lang/Thread;)V",Type.THREAD,	Type.NONE,		AccPublic),
     	new MethodDescriptor("deactivate", 							"()V", 					Type.NONE,		Type.NONE,		AccPublic),
     	new MethodDescriptor("deactivate", 							"(Ljava/lang/Thread;)V",Type.THREAD,	Type.NONE,		AccPublic),
+    	new MethodDescriptor("openActivationScope",					"()Lorg/objectteams/ActivationScope;",
+    																						Type.NONE,		Type.ACTIVATION_SCOPE,	AccPublic),
     	new MethodDescriptor("isActive",   							"()Z", 					Type.NONE, 		Type.BOOLEAN,	AccPublic|AccFinal),
     	new MethodDescriptor("isActive",   							"(Ljava/lang/Thread;)Z",Type.THREAD,	Type.BOOLEAN,	AccPublic|AccFinal),
     	new MethodDescriptor("isExecutingCallin", 					"()Z", 					Type.NONE, 		Type.BOOLEAN,	AccPublic),
     	new MethodDescriptor("deactivateForEndedThread",        	"(Ljava/lang/Thread;)V",Type.THREAD,	Type.NONE,		AccPublic),
     	new MethodDescriptor("internalIsActiveSpecificallyFor", 	"(Ljava/lang/Thread;)Z",Type.THREAD,	Type.BOOLEAN,	AccPublic),
     	new MethodDescriptor("_OT$setExecutingCallin",				"(Z)Z",					Type.BOOLEAN,	Type.BOOLEAN,	AccPublic),
-    	new MethodDescriptor("_OT$activateForAllThreads",          	"()V", 					Type.NONE, 		Type.NONE,		AccPrivate),
     	new MethodDescriptor("_OT$saveActivationState",				"()I",					Type.NONE,		Type.INT, 		AccPublic|AccSynchronized),
     	new MethodDescriptor("_OT$restoreActivationState",			"(I)V",					Type.INT,		Type.NONE,		AccPublic),
 		new MethodDescriptor("doRegistration", 						"()V", 					Type.NONE, 		Type.NONE,		AccPrivate),
@@ -424,11 +425,11 @@ public class TeamMethodGenerator {
 	/** create field ASTs. */
     @SuppressWarnings("nls")
 	void addFields(TypeDeclaration teamDecl, AstGenerator gen) {
-		// private WeakHashMap<Thread, Boolean> _OT$activatedThreads = new WeakHashMap<Thread, Boolean>();
+		// private TeamActivation _OT$activation = new TeamActivation();
     	addPrivateField(teamDecl, gen,
-    			weakHashMapTypeReference(gen), 
-    			"_OT$activatedThreads".toCharArray(),
-    			gen.allocation(weakHashMapTypeReference(gen), null));
+    			gen.qualifiedTypeReference(ORG_OBJECTTEAMS_TEAMACTIVATION), 
+    			"_OT$activation".toCharArray(),
+    			gen.allocation(gen.qualifiedTypeReference(ORG_OBJECTTEAMS_TEAMACTIVATION), null));
     	
     	// private Object _OT$registrationLock= new Object();
     	addPrivateField(teamDecl, gen,
@@ -436,12 +437,6 @@ public class TeamMethodGenerator {
     			"_OT$registrationLock".toCharArray(),
     			gen.allocation(gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_OBJECT), null));
     	
-    	// private boolean _OT$lazyGlobalActiveFlag = false;
-    	addPrivateField(teamDecl, gen,
-    			gen.baseTypeReference(TypeConstants.BOOLEAN),
-    			"_OT$lazyGlobalActiveFlag".toCharArray(),
-    			gen.booleanLiteral(false));
-
     	// private boolean _OT$isExecutingCallin = false;
     	addPrivateField(teamDecl, gen,
     			gen.baseTypeReference(TypeConstants.BOOLEAN),
@@ -453,33 +448,6 @@ public class TeamMethodGenerator {
     			gen.baseTypeReference(TypeConstants.INT),
     			"_OT$registrationState".toCharArray(),
     			gen.intLiteral(0));
-    	
-    	// private boolean _OT$globalActive = false;
-    	addPrivateField(teamDecl, gen,
-    			gen.baseTypeReference(TypeConstants.BOOLEAN),
-    			"_OT$globalActive".toCharArray(),
-    			gen.booleanLiteral(false));
- 
-		// private ThreadLocal<Integer> _OT$implicitActivationsPerThread = new ThreadLocal<Integer>() {
-		// 		protected synchronized Integer initialValue() {
-		// 			return Integer.valueOf(0);
-		// 		}
-		// };
-    	TypeDeclaration anonThreadLocal = gen.anonymousType(teamDecl.compilationResult);
-    	anonThreadLocal.methods = new MethodDeclaration[] {
-    		gen.method(	teamDecl.compilationResult, 
-    				   	AccProtected|AccSynchronized, 
-    				   	gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_INTEGER), 
-    				   	"initialValue".toCharArray(), 
-    				   	null/*arguments*/,
-    				   	new Statement[] {
-        					gen.returnStatement(gen.intLiteral(0)) // rely on autoboxing	
-        			   	})
-    	};
-    	addPrivateField(teamDecl, gen,
-    			threadLocalReference(gen),
-    			"_OT$implicitActivationsPerThread".toCharArray(),
-    			gen.anonymousAllocation(threadLocalReference(gen), null/*arguments*/, anonThreadLocal));
     }
 	void addPrivateField(TypeDeclaration teamDecl, AstGenerator gen, TypeReference type, char[] name, Expression init) {
     	FieldDeclaration field = gen.field(AccPrivate, type, name, init);
@@ -488,22 +456,6 @@ public class TeamMethodGenerator {
     	if (!teamHasProblems)
     		field.binding.modifiers |= ExtraCompilerModifiers.AccLocallyUsed;     	
     }
-	QualifiedTypeReference weakHashMapTypeReference(AstGenerator gen) {
-		return gen.parameterizedQualifiedTypeReference(
-				JAVA_LANG_WEAKHASHMAP, 
-				new TypeReference[]{
-					gen.qualifiedTypeReference(JAVA_LANG_THREAD),
-					gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_BOOLEAN)
-				});
-	}
-	QualifiedTypeReference threadLocalReference(AstGenerator gen) {
-		return gen.parameterizedQualifiedTypeReference(
-				JAVA_LANG_THREADLOCAL,
-				new TypeReference[] {
-					gen.qualifiedTypeReference(TypeConstants.JAVA_LANG_INTEGER)
-				});
-	}
-    
 	/** 
 	 * Add fake method bindings for methods that will be generated by the OTRE.
 	 * These bindings are needed by the TeamConstantPoolMapper.
@@ -27,11 +27,11 @@ package org.eclipse.objectteams.otdt.debug.internal.breakpoints;
  */
 public interface IOOTBreakPoints 
 {
-  int LINE_TeamConstructor = 63;
-  int LINE_ConfinedGetTeam = 94;
-  int LINE_ActivateMethod = 166;
-  int LINE_DeactivateMethod = 197;
-  int LINE_ImplicitActivateMethod = 244;
-  int LINE_ImplicitDeactivateMethod = 279;
-  int LINE_FinalizeMethod = 494;
+  int LINE_TeamConstructor = 62;
+  int LINE_ConfinedGetTeam = 93;
+  int LINE_ActivateMethod = 153;
+  int LINE_DeactivateMethod = 176;
+  int LINE_ImplicitActivateMethod = 224;
+  int LINE_ImplicitDeactivateMethod = 254;
+  int LINE_FinalizeMethod = 457;
 }
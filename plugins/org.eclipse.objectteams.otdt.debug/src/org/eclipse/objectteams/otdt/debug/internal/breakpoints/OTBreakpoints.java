@@ -50,11 +50,11 @@ public class OTBreakpoints {
 		TeamConstructor(		".TeamBreakpoint.Constructor", 				LINE_TeamConstructor),
 	    /** associated with "doRegistration();" */
 		TeamActivate(			".TeamBreakpoint.ActivateMethod", 			LINE_ActivateMethod),
-	    /** associated with "_OT$lazyGlobalActiveFlag = false;" */
+	    /** associated with "if (shouldUnregister)" */
 		TeamDeactivate(			".TeamBreakpoint.DeactivateMethod", 		LINE_DeactivateMethod),
-	    /** associated with "implicitActivationsPerThread.set(Integer.valueOf(implActCount + 1 ));" */
+	    /** associated with "_OT$activation.incrementImplicitActivations();" */
 		TeamImplicitActivate(	".TeamBreakpoint.ImplicitActivateMethod", 	LINE_ImplicitActivateMethod),
-	    /** associated with "implicitActivationsPerThread.set(Integer.valueOf(implActCount - 1));" */
+	    /** associated with "_OT$activation.decrementImplicitActivations();" */
 		TeamImplicitDeactivate(	".TeamBreakpoint.ImplicitDeactivateMethod", LINE_ImplicitDeactivateMethod),
 		/** associated with implicit "return;" */
 		TeamFinalize(			".TeamBreakpoint.FinalizeMethod",			LINE_FinalizeMethod),
@@ -1,159 +1,148 @@
-/**********************************************************************
- * This file is part of "Object Teams Development Tooling"-Software
- * 
- * Copyright 2008, 2014 Oliver Frank and others.
- * 
- * All rights reserved. This program and the accompanying materials
- * are made available under the terms of the Eclipse Public License v1.0
- * which accompanies this distribution, and is available at
- * http://www.eclipse.org/legal/epl-v10.html
- * 
- * Please visit http://www.eclipse.org/objectteams for updates and contact.
- * 
- * Contributors:
- * 		Oliver Frank - Initial API and implementation
- * 		Stephan Herrmann - adjusted for ASM 5.0
- **********************************************************************/
-package org.eclipse.objectteams.internal.osgi.weaving;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import org.eclipse.jdt.annotation.NonNull;
-import org.eclipse.objectteams.internal.osgi.weaving.OTWeavingHook.WeavingScheme;
-import org.eclipse.objectteams.otredyn.bytecode.asm.Attributes;
-import org.objectweb.asm.Attribute;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Label;
-import org.objectweb.asm.Opcodes;
-
-/**
- * This class performs some fast readClass analyses
- * to determine further processing.
- * 
- * @author Oliver Frank
- * @since 1.2.3
- */
-public class ASMByteCodeAnalyzer {
-	private static final int ACC_TEAM = 0x8000;
-
-	public static class ClassInformation {
-		private int modifiers;
-		private String superClassName;
-		private String[] superInterfaceNames;
-
-		ClassInformation(ClassReader classReader) {
-			this.modifiers = classReader.getAccess();
-			this.superClassName = classReader.getSuperName();
-			this.superInterfaceNames = classReader.getInterfaces();
-		}
-
-		public boolean isTeam() {
-			return (modifiers & ACC_TEAM) != 0;
-		}
-
-		public boolean isInterface() {
-			return (modifiers & Opcodes.ACC_INTERFACE) != 0;
-		}
-
-		public String getSuperClassName() {
-			if (superClassName != null)
-				return superClassName.replace('/', '.');
-			return null;
-		}
-		
-		public String[] getSuperInterfaceNames() {
-			if (superInterfaceNames != null)
-				for (int i = 0; i < superInterfaceNames.length; i++) {
-					superInterfaceNames[i] = superInterfaceNames[i].replace('/', '.');
-				}
-			return superInterfaceNames;
-		}
-	}
-
-	private Map<String, ClassInformation> classInformationMap =
-			new ConcurrentHashMap<String, ClassInformation>(512, 0.75f, 4);
-
-	public ClassInformation getClassInformation(InputStream classStream, String className) {
-		try {
-			return getClassInformation(null, classStream, className);
-		} catch (IOException e) {
-			return null;
-		}
-	}
-	
-	public ClassInformation getClassInformation(byte[] classBytes, String className) {
-		try {
-			return getClassInformation(classBytes, null, className);
-		} catch (IOException e) {
-			return null;
-		}
-	}
-
-	private ClassInformation getClassInformation(byte[] classBytes,
-			InputStream classStream, String className) throws IOException 
-	{
-		ClassInformation classInformation = classInformationMap.get(className);
-		if (classInformation != null) {
-			return classInformation;
-		}
-		ClassReader classReader = classBytes != null ? new ClassReader(classBytes) : new ClassReader(classStream);
-		classInformation = new ClassInformation(classReader);
-		classInformationMap.put(className, classInformation);
-		return classInformation;
-	}
-
-	public static WeavingScheme determineWeavingScheme(byte[] classBytes, String className) {
-		return determineWeavingScheme(classBytes, null, className);
-	}
-	public static @NonNull WeavingScheme determineWeavingScheme(InputStream classStream, String className) {
-		return determineWeavingScheme(null, classStream, className);
-	}
-	static @NonNull WeavingScheme determineWeavingScheme(byte[] classBytes, InputStream classStream, String className) {
-
-		class OTCompilerVersion extends Attribute {
-			WeavingScheme weavingScheme;
-			public OTCompilerVersion() {
-				super(Attributes.ATTRIBUTE_OT_COMPILER_VERSION);
-			}
-			@Override
-			protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff, Label[] labels) {
-				int encodedVersion  = cr.readUnsignedShort(off);
-				weavingScheme = ((encodedVersion & Attributes.OTDRE_FLAG) != 0) ? WeavingScheme.OTDRE : WeavingScheme.OTRE;
-				return this;
-			}
-		}
-		class MyClassVisitor extends ClassVisitor {
-			OTCompilerVersion compilerVersion;
-
-			private MyClassVisitor() {
-				super(org.eclipse.objectteams.otredyn.bytecode.asm.AsmBoundClass.ASM_API);
-			}
-
-			@Override
-			public void visitAttribute(Attribute attr) {
-				if (attr instanceof OTCompilerVersion)
-					compilerVersion = (OTCompilerVersion) attr;
-			}
-		}
-
-		try {
-			ClassReader classReader = classBytes != null ? new ClassReader(classBytes) : new ClassReader(classStream);
-			// TODO: consider optimizing by copying reduced internals
-			MyClassVisitor classVisitor = new MyClassVisitor();
-			classReader.accept(classVisitor, new Attribute[] { new OTCompilerVersion() }, ClassReader.SKIP_CODE);
-			OTCompilerVersion version = classVisitor.compilerVersion;
-			if (version != null) {
-				WeavingScheme scheme = version.weavingScheme;
-				if (scheme != null)
-					return scheme;
-			}
-		} catch (IOException e) {
-			// ignore
-		}
-		return WeavingScheme.Unknown;
-	}
-}
+/**********************************************************************
+ * This file is part of "Object Teams Development Tooling"-Software
+ * 
+ * Copyright 2008, 2014 Oliver Frank and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ * 
+ * Contributors:
+ * 		Oliver Frank - Initial API and implementation
+ * 		Stephan Herrmann - adjusted for ASM 5.0
+ **********************************************************************/
+package org.eclipse.objectteams.internal.osgi.weaving;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.objectteams.internal.osgi.weaving.OTWeavingHook.WeavingScheme;
+import org.eclipse.objectteams.otredyn.bytecode.asm.Attributes;
+import org.eclipse.objectteams.otredyn.bytecode.asm.SupertypeCache;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+
+/**
+ * This class performs some fast readClass analyses
+ * to determine further processing.
+ * 
+ * @author Oliver Frank
+ * @since 1.2.3
+ */
+public class ASMByteCodeAnalyzer {
+
+	/** View of the shared class information (see {@link SupertypeCache}), using external (dot-separated) names. */
+	public static class ClassInformation {
+		private final org.eclipse.objectteams.otredyn.bytecode.asm.ASMByteCodeAnalyzer.ClassInformation info;
+
+		ClassInformation(org.eclipse.objectteams.otredyn.bytecode.asm.ASMByteCodeAnalyzer.ClassInformation info) {
+			this.info = info;
+		}
+
+		public boolean isTeam() {
+			return this.info.isTeam();
+		}
+
+		public boolean isInterface() {
+			return this.info.isInterface();
+		}
+
+		public String getSuperClassName() {
+			String superClassName = this.info.getSuperClassName();
+			if (superClassName != null)
+				return superClassName.replace('/', '.');
+			return null;
+		}
+		
+		public String[] getSuperInterfaceNames() {
+			String[] superInterfaceNames = this.info.getSuperInterfaceNames(); // a copy
+			if (superInterfaceNames != null)
+				for (int i = 0; i < superInterfaceNames.length; i++) {
+					superInterfaceNames[i] = superInterfaceNames[i].replace('/', '.');
+				}
+			return superInterfaceNames;
+		}
+
+		/**
+		 * Answer whether this class directly extends Thread or implements Runnable.
+		 * Compares internal names, without copying or converting any names of the class header.
+		 */
+		public boolean isThreadOrRunnable() {
+			return !this.info.isInterface()
+					&& ("java/lang/Thread".equals(this.info.getSuperClassName())
+						|| this.info.hasSuperInterface("java/lang/Runnable"));
+		}
+	}
+
+	/**
+	 * Answer information about the given class, reading it via the given loader as a resource if not yet known.
+	 * @return the information or null if the class file cannot be found or read
+	 */
+	public ClassInformation getClassInformation(ClassLoader resourceLoader, String className) {
+		org.eclipse.objectteams.otredyn.bytecode.asm.ASMByteCodeAnalyzer.ClassInformation info =
+				SupertypeCache.getClassInformation(resourceLoader, className);
+		return info != null ? new ClassInformation(info) : null;
+	}
+	
+	/** Answer information about the given class, reading it from the given bytes if not yet known. */
+	public ClassInformation getClassInformation(ClassLoader loader, byte[] classBytes, String className) {
+		return new ClassInformation(SupertypeCache.getClassInformation(loader, className, classBytes));
+	}
+
+	public static WeavingScheme determineWeavingScheme(byte[] classBytes, String className) {
+		return determineWeavingScheme(classBytes, null, className);
+	}
+	public static @NonNull WeavingScheme determineWeavingScheme(InputStream classStream, String className) {
+		return determineWeavingScheme(null, classStream, className);
+	}
+	static @NonNull WeavingScheme determineWeavingScheme(byte[] classBytes, InputStream classStream, String className) {
+
+		class OTCompilerVersion extends Attribute {
+			WeavingScheme weavingScheme;
+			public OTCompilerVersion() {
+				super(Attributes.ATTRIBUTE_OT_COMPILER_VERSION);
+			}
+			@Override
+			protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff, Label[] labels) {
+				int encodedVersion  = cr.readUnsignedShort(off);
+				weavingScheme = ((encodedVersion & Attributes.OTDRE_FLAG) != 0) ? WeavingScheme.OTDRE : WeavingScheme.OTRE;
+				return this;
+			}
+		}
+		class MyClassVisitor extends ClassVisitor {
+			OTCompilerVersion compilerVersion;
+
+			private MyClassVisitor() {
+				super(org.eclipse.objectteams.otredyn.bytecode.asm.AsmBoundClass.ASM_API);
+			}
+
+			@Override
+			public void visitAttribute(Attribute attr) {
+				if (attr instanceof OTCompilerVersion)
+					compilerVersion = (OTCompilerVersion) attr;
+			}
+		}
+
+		try {
+			ClassReader classReader = classBytes != null ? new ClassReader(classBytes) : new ClassReader(classStream);
+			// TODO: consider optimizing by copying reduced internals
+			MyClassVisitor classVisitor = new MyClassVisitor();
+			classReader.accept(classVisitor, new Attribute[] { new OTCompilerVersion() }, ClassReader.SKIP_CODE);
+			OTCompilerVersion version = classVisitor.compilerVersion;
+			if (version != null) {
+				WeavingScheme scheme = version.weavingScheme;
+				if (scheme != null)
+					return scheme;
+			}
+		} catch (IOException e) {
+			// ignore
+		}
+		return WeavingScheme.Unknown;
+	}
+}
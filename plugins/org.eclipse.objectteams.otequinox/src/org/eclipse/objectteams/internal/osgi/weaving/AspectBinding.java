@@ -24,9 +24,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IStatus;
@@ -103,7 +114,7 @@ public class AspectBinding {
 
 		/** After scanning class file attributes: add the names of all bound base classes. */
 		public void addBaseClassNames(Collection<String> baseClassNames) {
-			AspectBinding.this.allBaseClassNames.addAll(baseClassNames);
+			boolean changed = AspectBinding.this.allBaseClassNames.addAll(baseClassNames);
 			for (String baseClassName : baseClassNames) {
 				if (this.baseClassNames.add(baseClassName)) {
 					Set<TeamBinding> teams = baseBundle.teamsPerBase.get(baseClassName);
@@ -112,6 +123,8 @@ public class AspectBinding {
 					teams.add(this);
 				}
 			}
+			if (changed)
+				bindingsChanged();
 		}
 
 		void connectEquivalent(TeamBinding equivalent) {
@@ -278,12 +291,61 @@ public class AspectBinding {
 	public TeamBinding[]   teams;
 	public Set<String> allBaseClassNames = new HashSet<>();
 
-	public boolean hasScannedTeams;
+	/** Set once the base classes of all teams have been added to {@link #allBaseClassNames}. */
+	public volatile boolean hasScannedTeams;
 	public AspectPermission forcedExportsPermission = AspectPermission.UNDEFINED;
 	public boolean hasBeenDenied = false;
 	public WeavingScheme weavingScheme = WeavingScheme.Unknown;
 	
 	Set<TeamBinding> teamsInProgress = new HashSet<>(); // TODO cleanup teams that are done
+
+	/** Teams being read by the scan pool, in the order of submission. Guarded by this. */
+	private final Map<TeamBinding, Future<Collection<String>>> pendingScans = new LinkedHashMap<>();
+
+	/** Number of threads for scanning team classes in parallel, from property {@code otequinox.scan.threads}. */
+	static final int SCAN_THREADS = Integer.getInteger("otequinox.scan.threads",
+														Math.min(4, Runtime.getRuntime().availableProcessors())).intValue();
+
+	/** Marks threads of the scan pool, which must scan any further teams themselves. */
+	private static class ScanThread extends Thread {
+		ScanThread(Runnable runnable) {
+			super(runnable, "OT/Equinox team scanner");
+			setDaemon(true);
+		}
+	}
+
+	private static @Nullable ExecutorService scanPool;
+
+	/** Answer the bounded pool for parallel team scanning, whose threads terminate when idle. */
+	private static synchronized ExecutorService getScanPool() {
+		ExecutorService pool = scanPool;
+		if (pool == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(SCAN_THREADS, SCAN_THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						@Override @NonNullByDefault(false)
+						public Thread newThread(Runnable runnable) {
+							return new ScanThread(runnable);
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			scanPool = pool = executor;
+		}
+		return pool;
+	}
+
+	/** Incremented whenever base classes are added to, or denied for, any aspect binding. */
+	private static final AtomicInteger bindingsVersion = new AtomicInteger();
+
+	/** Answer a number that changes whenever the set of adapted base classes changes. */
+	static int getBindingsVersion() {
+		return bindingsVersion.get();
+	}
+
+	/** Invalidate anything derived from {@link #allBaseClassNames} or {@link #hasBeenDenied}. */
+	static void bindingsChanged() {
+		bindingsVersion.incrementAndGet();
+	}
 	
 	public AspectBinding(String aspectId, @Nullable Bundle aspectBundle, BaseBundle baseBundle, IConfigurationElement[] forcedExportsConfs, int count) 
 	{
@@ -374,12 +436,107 @@ public class AspectBinding {
 	/**
 	 * Read OT attributes of all teams in this aspectBinding 
 	 * and collect affected base classes into the teamBindings.
-	 * @return the names of all base classes bound via this aspect binding
+	 * <p>
+	 * For the OTDRE the scan only serves to find the bound base classes, so results from
+	 * the given index are used instead of reading a team class, if neither the aspect bundle
+	 * nor the team class have changed since they were indexed. The OTRE additionally requires
+	 * the callin bindings collected while scanning, hence the index is not used in that case.
+	 * </p><p>
+	 * Teams still being read by the scan pool for another thread are read again, unless their scan is done,
+	 * so that their base classes are included in the result.
+	 * </p>
+	 * @param index persistent scan results, may be null
+	 * @return a snapshot of the names of all base classes bound via this aspect binding
 	 */
-	public synchronized Collection<String> scanTeamClasses(Bundle bundle, DelegatingTransformer transformer) {
+	public synchronized Collection<String> scanTeamClasses(Bundle bundle, DelegatingTransformer transformer, @Nullable TeamScanIndex index) {
 		long time = 0;
 		if (Util.PROFILE) time= System.nanoTime();
+		if (this.weavingScheme != WeavingScheme.OTDRE)
+			index = null;
+		ClassScanner scanner = new ClassScanner();
+		for (TeamBinding team : prepareScan(bundle, transformer, index))
+			addScannedBaseClassNames(bundle, team, readBaseClassNames(bundle, team.teamName, scanner, transformer), index);
+		// don't wait for the pool while holding the lock, its threads may need the lock to weave:
+		for (Iterator<Map.Entry<TeamBinding, Future<Collection<String>>>> pending = this.pendingScans.entrySet().iterator(); pending.hasNext(); ) {
+			Map.Entry<TeamBinding, Future<Collection<String>>> scan = pending.next();
+			pending.remove();
+			TeamBinding team = scan.getKey();
+			Collection<String> baseClassNames = scan.getValue().isDone()
+					? getScanResult(scan.getValue(), team.teamName)
+					: readBaseClassNames(bundle, team.teamName, scanner, transformer);
+			addScannedBaseClassNames(bundle, team, baseClassNames, index);
+		}
+		this.hasScannedTeams = true;
+		if (Util.PROFILE) Util.profile(time, ProfileKind.Scan, bundle.getSymbolicName());
+		return new ArrayList<>(this.allBaseClassNames);
+	}
+
+	/**
+	 * Variant of {@link #scanTeamClasses(Bundle, DelegatingTransformer, TeamScanIndex)} which,
+	 * for the OTDRE, reads the team classes in parallel using {@link #SCAN_THREADS} threads.
+	 * Each team is read with its own transformer, the results are added to the team bindings
+	 * only after all teams have been read, while holding the lock of this aspect binding.
+	 * The lock is not held while waiting for the scanning threads, which may need it to weave
+	 * further classes. Concurrent callers wait for the same pending scans, a team counts as scanned
+	 * only once its results have been added.
+	 * @return a snapshot of the names of all base classes bound via this aspect binding
+	 */
+	public Collection<String> scanTeamClasses(Bundle bundle, WeavingScheme weavingScheme, OTWeavingHook hook,
+			BundleWiring baseWiring, @Nullable TeamScanIndex index)
+	{
+		DelegatingTransformer transformer = DelegatingTransformer.newTransformer(weavingScheme, hook, baseWiring);
+		// the OTRE collects callin bindings in a global structure, and scanning threads must not wait for more scans:
+		if (weavingScheme != WeavingScheme.OTDRE || SCAN_THREADS <= 1 || Thread.currentThread() instanceof ScanThread)
+			return scanTeamClasses(bundle, transformer, index);
+
+		long time = 0;
+		if (Util.PROFILE) time= System.nanoTime();
+		List<Map.Entry<TeamBinding, Future<Collection<String>>>> scans;
+		synchronized (this) {
+			for (TeamBinding team : prepareScan(bundle, transformer, index))
+				this.pendingScans.put(team, submitScan(bundle, team.teamName, hook, baseWiring));
+			scans = new ArrayList<>(this.pendingScans.entrySet()); // including scans submitted by other threads
+		}
+		// wait without holding the lock:
+		List<Collection<String>> results = new ArrayList<>(scans.size());
+		for (Map.Entry<TeamBinding, Future<Collection<String>>> scan : scans) {
+			String teamName = scan.getKey().teamName;
+			Collection<String> baseClassNames;
+			try {
+				baseClassNames = scan.getValue().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				baseClassNames = readBaseClassNames(bundle, teamName, new ClassScanner(), transformer);
+			} catch (ExecutionException e) {
+				log(e, "Failed to scan team class "+teamName);
+				baseClassNames = null;
+			}
+			results.add(baseClassNames);
+		}
+		// publish the results in the order of teams, unless another thread has already done so:
+		synchronized (this) {
+			for (int i = 0; i < scans.size(); i++) {
+				TeamBinding team = scans.get(i).getKey();
+				Collection<String> baseClassNames = results.get(i);
+				if (this.pendingScans.remove(team) != null)
+					addScannedBaseClassNames(bundle, team, baseClassNames, index);
+			}
+			this.hasScannedTeams = true;
+			if (Util.PROFILE) Util.profile(time, ProfileKind.Scan, bundle.getSymbolicName());
+			return new ArrayList<>(this.allBaseClassNames);
+		}
+	}
+
+	/**
+	 * Take the base classes of unchanged teams from the index, and answer the teams whose classes
+	 * need to be read, skipping teams already being read by the scan pool. Teams are marked as
+	 * scanned once their base classes have been added. Caller must hold the lock of this.
+	 */
+	private List<TeamBinding> prepareScan(Bundle bundle, DelegatingTransformer transformer, @Nullable TeamScanIndex index) {
+		if (this.weavingScheme != WeavingScheme.OTDRE)
+			index = null;
 		ClassScanner scanner = new ClassScanner();
+		List<TeamBinding> teamsToRead = new ArrayList<>();
 		for (@SuppressWarnings("null")@NonNull TeamBinding team : getAllTeamBindings()) {
 			if (team.hasScannedBases) { // not a surprise for members of equivalentSet or classes already processed by weave()
 				if (!team.hasScannedRoles) { // weave() only scans bases, not roles!
@@ -388,23 +545,73 @@ public class AspectBinding {
 				}
 				continue;
 			}
-			team.hasScannedBases = true;
-			team.hasScannedRoles = true;
-			try {
-				String teamName = scanner.readOTAttributes(bundle, team.teamName, transformer);
-				Collection<String> baseClassNames = scanner.getCollectedBaseClassNames();
-				if (team.baseClassNames.isEmpty()) {
-					for (TeamBinding equivalent : team.equivalenceSet)
-						equivalent.addBaseClassNames(baseClassNames);
+			if (this.pendingScans.containsKey(team))
+				continue;
+			if (index != null) {
+				List<String> indexedBaseClassNames = index.getBaseClassNames(bundle, team.teamName);
+				if (indexedBaseClassNames != null) {
+					if (team.baseClassNames.isEmpty()) {
+						for (TeamBinding equivalent : team.equivalenceSet)
+							equivalent.addBaseClassNames(indexedBaseClassNames);
+					}
+					team.hasScannedBases = true;
+					team.hasScannedRoles = true;
+					log(IStatus.INFO, "Found team class "+team.teamName+" in scan index, "+indexedBaseClassNames.size()+" base classes");
+					continue;
 				}
-				log(IStatus.INFO, "Scanned team class "+teamName+", found "+baseClassNames.size()+" base classes");
-			} catch (Exception e) {
-				log(e, "Failed to scan team class "+team.teamName);
 			}
+			teamsToRead.add(team);
 		}
-		this.hasScannedTeams = true;
-		if (Util.PROFILE) Util.profile(time, ProfileKind.Scan, bundle.getSymbolicName());
-		return this.allBaseClassNames;
+		return teamsToRead;
+	}
+
+	private Future<Collection<String>> submitScan(final Bundle bundle, final String teamName, final OTWeavingHook hook, final BundleWiring baseWiring) {
+		return getScanPool().submit(new Callable<Collection<String>>() {
+			@Override
+			public @Nullable Collection<String> call() {
+				DelegatingTransformer teamTransformer = DelegatingTransformer.newTransformer(WeavingScheme.OTDRE, hook, baseWiring);
+				return readBaseClassNames(bundle, teamName, new ClassScanner(), teamTransformer);
+			}
+		});
+	}
+
+	/** Read the OT attributes of one team, answer the names of its bound base classes, or null if scanning failed. */
+	static @Nullable Collection<String> readBaseClassNames(Bundle bundle, String teamName, ClassScanner scanner, DelegatingTransformer transformer) {
+		try {
+			String realTeamName = scanner.readOTAttributes(bundle, teamName, transformer);
+			Collection<String> baseClassNames = scanner.getCollectedBaseClassNames();
+			log(IStatus.INFO, "Scanned team class "+realTeamName+", found "+baseClassNames.size()+" base classes");
+			return baseClassNames;
+		} catch (Exception e) {
+			log(e, "Failed to scan team class "+teamName);
+			return null;
+		}
+	}
+
+	/** Answer the result of a scan that is done, or null if scanning failed. */
+	private static @Nullable Collection<String> getScanResult(Future<Collection<String>> scan, String teamName) {
+		try {
+			return scan.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log(e, "Failed to scan team class "+teamName);
+		}
+		return null;
+	}
+
+	/** Add the base classes read from a team class, and mark the team as scanned even if reading failed. Caller must hold the lock of this. */
+	private void addScannedBaseClassNames(Bundle bundle, TeamBinding team, @Nullable Collection<String> baseClassNames, @Nullable TeamScanIndex index) {
+		team.hasScannedBases = true;
+		team.hasScannedRoles = true;
+		if (baseClassNames == null)
+			return;
+		if (team.baseClassNames.isEmpty()) {
+			for (TeamBinding equivalent : team.equivalenceSet)
+				equivalent.addBaseClassNames(baseClassNames);
+		}
+		if (index != null)
+			index.recordBaseClassNames(bundle, team.teamName, baseClassNames);
 	}
 
 	private List<TeamBinding> getAllTeamBindings() {
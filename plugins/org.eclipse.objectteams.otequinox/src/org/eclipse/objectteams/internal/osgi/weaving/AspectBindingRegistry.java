@@ -180,7 +180,7 @@ public class AspectBindingRegistry {
 					log(IStatus.ERROR, "base bundle "+baseBundleId+" is not resolved - weaving may be incomplete.");
 				} else {
 					BundleWiring baseBundleWiring = baseBundles[0].adapt(BundleWiring.class);
-					Collection<String> boundBases = binding.scanTeamClasses(aspectBundle, DelegatingTransformer.newTransformer(binding.weavingScheme, hook, baseBundleWiring));
+					Collection<String> boundBases = binding.scanTeamClasses(aspectBundle, DelegatingTransformer.newTransformer(binding.weavingScheme, hook, baseBundleWiring), hook.getTeamScanIndex());
 					addBoundBaseClasses(boundBases);
 				}
 			}
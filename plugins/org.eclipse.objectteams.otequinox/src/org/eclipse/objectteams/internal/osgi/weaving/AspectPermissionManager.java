@@ -409,6 +409,7 @@ public class AspectPermissionManager {
 	void stopAspectBundle(AspectBinding aspectBinding, String aspectBundleName, String reason) {
 		try {
 			aspectBinding.hasBeenDenied = true;
+			AspectBinding.bindingsChanged();
 			Bundle aspectBundle = aspectBinding.aspectBundle;
 			if (aspectBundle != null) {
 				aspectBundle.stop();
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.annotation.NonNull;
@@ -46,7 +47,7 @@ public class BaseBundleLoadTrigger {
 	private String baseBundleName;	
 	@Nullable private BaseBundle baseBundle; // null when representing an aspectBundle with SELF-adapting teams
 	private boolean otreAdded = false;
-	private List<AspectBinding> aspectBindings = new ArrayList<>();
+	private List<AspectBinding> aspectBindings = new CopyOnWriteArrayList<>(); // iterated by concurrent weaving threads
 
 	public BaseBundleLoadTrigger(String bundleSymbolicName, @Nullable BaseBundle baseBundle, AspectBindingRegistry aspectBindingRegistry, 
 			@SuppressWarnings("deprecation") @Nullable org.osgi.service.packageadmin.PackageAdmin admin) 
@@ -118,7 +119,7 @@ public class BaseBundleLoadTrigger {
 				}
 				// (2) scan all teams in affecting aspect bindings:
 				if (!aspectBinding.hasScannedTeams) {
-					Collection<String> boundBases = aspectBinding.scanTeamClasses(aspectBundle, DelegatingTransformer.newTransformer(weavingScheme, hook, baseClass.getBundleWiring()));
+					Collection<String> boundBases = aspectBinding.scanTeamClasses(aspectBundle, weavingScheme, hook, baseClass.getBundleWiring(), hook.getTeamScanIndex());
 					aspectBindingRegistry.addBoundBaseClasses(boundBases);
 				}
 				
@@ -128,6 +128,21 @@ public abstract class DelegatingTransformer {
 			}
 		}
 		
+		public void redefine(ClassDefinition[] definitions) throws ClassNotFoundException, UnmodifiableClassException {
+			try {
+				long start = System.nanoTime();
+				reflectivelyInvoke(definitions);
+				if (Util.PROFILE) Util.profile(start, ProfileKind.RedefineClasses, definitions.length+" classes");
+				for (ClassDefinition definition : definitions)
+					DebugHooks.afterRedefineClasses(definition.getDefinitionClass().getName());
+			} catch (ClassFormatError|UnmodifiableClassException e) {
+				// error output during redefinition tends to swallow the stack, print it now:
+				System.err.println("Error redefining "+definitions.length+" classes");
+				e.printStackTrace();
+				throw e;
+			}
+		}
+		
 		static void reflectivelyInvoke(ClassDefinition[] definitions) throws ClassNotFoundException, ClassFormatError, UnmodifiableClassException {
 			try {
 				Class<?> agentClass = ClassLoader.getSystemClassLoader().loadClass(OT_EQUINOX_DEBUG_AGENT);
@@ -20,9 +20,10 @@ import static org.eclipse.objectteams.otequinox.Constants.TRANSFORMER_PLUGIN_ID;
 import static org.eclipse.objectteams.otequinox.Constants.ORG_OBJECTTEAMS_TEAM;
 import static org.eclipse.objectteams.otequinox.TransformerPlugin.log;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.instrument.IllegalClassFormatException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +34,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtensionRegistry;
@@ -72,10 +76,15 @@ import org.osgi.resource.Wire;
  * <li>If later one of the not-found classes has been defined we use that trigger to
  * re-attempt instantiating the dependent team(s).</li>
  * </ul>
+ * <p>
+ * {@link #weave(WovenClass)} and {@link #modified(WovenClass)} may be called concurrently
+ * from many bundle class loaders, hence all bookkeeping uses concurrent data structures
+ * rather than a lock shared by all weaving threads.
+ * </p>
  */
 public class OTWeavingHook implements WeavingHook, WovenClassListener {
 
-	static @NonNull WeavingScheme DEFAULT_WEAVING_SCHEME = WeavingScheme.Unknown;
+	static volatile @NonNull WeavingScheme DEFAULT_WEAVING_SCHEME = WeavingScheme.Unknown;
 	enum WeavingScheme { Unknown, OTRE, OTDRE };
 
 	static final ThreadWeaving WEAVE_THREAD_NOTIFICATION;
@@ -124,29 +133,47 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 	private @NonNull AspectBindingRegistry aspectBindingRegistry = new AspectBindingRegistry();
 	
 	/** Map of trip wires to be fired when a particular base bundle is loaded. */
-	private @NonNull HashMap<String, BaseBundleLoadTrigger> baseTripWires = new HashMap<>();
+	private @NonNull ConcurrentMap<String, BaseBundleLoadTrigger> baseTripWires = new ConcurrentHashMap<>();
 
 	/** Set of classes for which processing has started but which are not yet defined in the class loader. */
-	private @NonNull Set<String> beingDefined = new HashSet<>();
+	private @NonNull Set<String> beingDefined = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
 	/** Map of tasks per qualified class name: reweaving requested during defineClass(). */
-	private @NonNull Map<String, IReweavingTask> pendingReweavingTasks = new HashMap<>();
+	private @NonNull ConcurrentMap<String, IReweavingTask> pendingReweavingTasks = new ConcurrentHashMap<>();
 
-	/** Records of teams that have been deferred due to unresolved class dependencies: */
-	private @NonNull List<WaitingTeamRecord> deferredTeams = new ArrayList<>();
+	/** Records of teams that have been deferred due to unresolved class dependencies (rarely modified). */
+	private @NonNull List<WaitingTeamRecord> deferredTeams = new CopyOnWriteArrayList<>();
 
 	private @NonNull ASMByteCodeAnalyzer byteCodeAnalyzer = new ASMByteCodeAnalyzer();
 
 	private AspectPermissionManager permissionManager;
 
 	/** A registered lifting participant is directly handled by us. */
-	private @Nullable IConfigurationElement liftingParticipantConfig;
-	private @Nullable Class<?> ooTeam;
+	private volatile @Nullable IConfigurationElement liftingParticipantConfig;
+	private volatile @Nullable Class<?> ooTeam;
+
+	/** Base classes per team from previous sessions, avoids re-scanning unchanged aspect bundles. */
+	private volatile @Nullable TeamScanIndex teamScanIndex;
 
 	/** Call-back once the extension registry is up and running. */
 	public void activate(@NonNull BundleContext bundleContext, ServiceReference<IExtensionRegistry> serviceReference) throws OTAgentNotInstalled {
+		TeamScanIndex index = TeamScanIndex.create(bundleContext.getBundle());
+		this.teamScanIndex = index;
 		loadAspectBindingRegistry(bundleContext, serviceReference);
 		TransformerPlugin.initialize(bundleContext, this.aspectBindingRegistry, this.permissionManager);
+		index.save(); // persist what has been scanned during startup
+	}
+
+	/** Call-back when the OT/Equinox bundle is stopped. */
+	public void deactivate() {
+		TeamScanIndex index = this.teamScanIndex;
+		if (index != null)
+			index.save();
+	}
+
+	/** Answer the persistent index of team scan results, null if not yet activated. */
+	@Nullable TeamScanIndex getTeamScanIndex() {
+		return this.teamScanIndex;
 	}
 
 	// ====== Aspect Bindings & Permissions: ======
@@ -196,7 +223,7 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 		installLiftingParticipant();
 	}
 	
-	private void installLiftingParticipant() {
+	private synchronized void installLiftingParticipant() { // invoked from activate() and modified()
 		Class<?> teamClass = this.ooTeam;
 		IConfigurationElement config = this.liftingParticipantConfig;
 		if (teamClass != null && config != null) {
@@ -221,7 +248,7 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 			@NonNull String baseBundleId, BaseBundle baseBundle) 
 	{
 		if (!baseTripWires.containsKey(baseBundleId))
-			baseTripWires.put(baseBundleId, new BaseBundleLoadTrigger(baseBundleId, baseBundle, aspectBindingRegistry, packageAdmin));
+			baseTripWires.putIfAbsent(baseBundleId, new BaseBundleLoadTrigger(baseBundleId, baseBundle, aspectBindingRegistry, packageAdmin));
 	}
 
 	/**
@@ -229,11 +256,13 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 	 * @return true if all involved aspect bindings have been denied (permissions).
 	 */
 	boolean triggerBaseTripWires(@Nullable String bundleName, @NonNull WovenClass baseClass) {
+		if (bundleName == null)
+			return false;
 		BaseBundleLoadTrigger activation = baseTripWires.get(bundleName);
 		if (activation != null) {
 			activation.fire(baseClass, beingDefined, this);
 			if (activation.isDone())
-				baseTripWires.remove(bundleName);
+				baseTripWires.remove(bundleName, activation);
 			return activation.areAllAspectsDenied();
 		}
 		return false;
@@ -374,7 +403,9 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 	boolean scheduleReweaving(String className, IReweavingTask task) {
 		if (beingDefined.contains(className)) {
 			pendingReweavingTasks.put(className, task);
-			return true;
+			// modified() removes from beingDefined before it polls pendingReweavingTasks:
+			if (beingDefined.contains(className) || !pendingReweavingTasks.remove(className, task))
+				return true; // will be or has been picked up by modified()
 		}
 		return false;
 	}
@@ -392,36 +423,126 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 		if (Util.PROFILE) start = System.nanoTime();
 
 		try {
-			for (AspectBinding aspectBinding : aspectBindings) {
-				if (aspectBinding.allBaseClassNames.contains(className) && !aspectBinding.hasBeenDenied)
-					return true;					
+			ConcurrentMap<String, Boolean> answers = searchSupers && resourceLoader != null ? getAdaptedBaseAnswers(resourceLoader) : null;
+			return isAdaptedBaseClass(aspectBindings, className, searchSupers, bytes, resourceLoader, answers);
+		} finally {
+			if (bytes != null && Util.PROFILE) { // only report at top invocation
+				Util.profile(start, ProfileKind.SuperClassFetching, className);
 			}
+		}
+	}
+
+	private boolean isAdaptedBaseClass(List<AspectBinding> aspectBindings, String className, boolean searchSupers, byte[] bytes,
+			ClassLoader resourceLoader, @Nullable ConcurrentMap<String, Boolean> answers)
+	{
+		if ("java.lang.Object".equals(className))
+			return false;
+		if (answers != null) {
+			Boolean known = answers.get(className);
+			if (known != null)
+				return known.booleanValue();
+		}
+		boolean result = false;
+		for (AspectBinding aspectBinding : aspectBindings) {
+			if (aspectBinding.allBaseClassNames.contains(className) && !aspectBinding.hasBeenDenied) {
+				result = true;
+				break;
+			}
+		}
+		if (!result) {
 			// attempt recursion to superclass (not superInterfaces atm):
 			ClassInformation classInfo = null;
 			if (bytes != null) {
-				classInfo = this.byteCodeAnalyzer.getClassInformation(bytes, className);
+				classInfo = this.byteCodeAnalyzer.getClassInformation(resourceLoader, bytes, className);
 			} else {
-				try (InputStream is = resourceLoader.getResourceAsStream(className.replace('.', '/')+".class")) {
-					if (is != null)
-						classInfo = this.byteCodeAnalyzer.getClassInformation(is, className);
-				} catch (IOException e) {
-					return false;
-				}
+				classInfo = this.byteCodeAnalyzer.getClassInformation(resourceLoader, className);
 			}
-			if (searchSupers && classInfo != null && !classInfo.isInterface()) {
+			if (classInfo == null)
+				return false; // don't cache, class may not yet be available
+			if (searchSupers && !classInfo.isInterface()) {
 				// TODO(performance): check common prefix to recognize when crossing the plugin-boundary?
 				String superClassName = classInfo.getSuperClassName();
 				if (superClassName != null)
-					return isAdaptedBaseClass(aspectBindings, superClassName, searchSupers, null, resourceLoader);
+					result = isAdaptedBaseClass(aspectBindings, superClassName, searchSupers, null, resourceLoader, answers);
 			}
-			return false;
-		} finally {
-			if (bytes != null && Util.PROFILE) { // only report at top invocation
-				Util.profile(start, ProfileKind.SuperClassFetching, className);
+		}
+		if (answers != null)
+			answers.put(className, Boolean.valueOf(result));
+		return result;
+	}
+
+	/** Answers of {@link #isAdaptedBaseClass} for one class loader, valid while the aspect bindings are unchanged. */
+	private static class AdaptedBaseAnswers {
+		final int bindingsVersion;
+		final ConcurrentMap<String, Boolean> answers = new ConcurrentHashMap<>();
+
+		AdaptedBaseAnswers(int bindingsVersion) {
+			this.bindingsVersion = bindingsVersion;
+		}
+	}
+
+	/** Key of {@link #adaptedBaseAnswers}, referencing its class loader weakly and comparing by identity. */
+	private static class LoaderKey extends WeakReference<ClassLoader> {
+		final int hash;
+
+		LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+			super(loader, queue);
+			this.hash = System.identityHashCode(loader);
+		}
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (obj instanceof LoaderKey) {
+				ClassLoader loader = get();
+				return loader != null && loader == ((LoaderKey) obj).get();
 			}
+			return obj instanceof LoaderLookup && get() == ((LoaderLookup) obj).loader;
+		}
+	}
+
+	/** Strong key for lookups in {@link #adaptedBaseAnswers}, equal to the {@link LoaderKey} of the same loader. */
+	private static class LoaderLookup {
+		final ClassLoader loader;
+
+		LoaderLookup(ClassLoader loader) {
+			this.loader = loader;
+		}
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.loader);
+		}
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof LoaderKey && ((LoaderKey) obj).get() == this.loader;
 		}
 	}
 
+	/**
+	 * Cached answers per bundle wiring, represented by its class loader (weakly referenced).
+	 * Lookups take no lock, entries of collected class loaders are expunged when new entries are added.
+	 */
+	private final ConcurrentMap<Object, AdaptedBaseAnswers> adaptedBaseAnswers = new ConcurrentHashMap<>();
+	private final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<>();
+
+	private ConcurrentMap<String, Boolean> getAdaptedBaseAnswers(ClassLoader loader) {
+		int version = AspectBinding.getBindingsVersion();
+		AdaptedBaseAnswers cached = this.adaptedBaseAnswers.get(new LoaderLookup(loader));
+		if (cached != null && cached.bindingsVersion == version)
+			return cached.answers;
+		Reference<? extends ClassLoader> collected;
+		while ((collected = this.collectedLoaders.poll()) != null)
+			this.adaptedBaseAnswers.remove(collected);
+		// racing threads may replace each other's fresh answers, which only costs recomputation:
+		AdaptedBaseAnswers fresh = new AdaptedBaseAnswers(version);
+		this.adaptedBaseAnswers.put(new LoaderKey(loader, this.collectedLoaders), fresh);
+		return fresh.answers;
+	}
+
 	private void recordBaseClasses(DelegatingTransformer transformer, @NonNull String aspectBundle, String className) {
 		Collection<String> adaptedBases = transformer.fetchAdaptedBases();
 		if (adaptedBases == null || adaptedBases.isEmpty()) return;
@@ -448,9 +569,7 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 	 * Callback during {@link BaseBundleLoadTrigger#fire()}
 	 */
 	public void addDeferredTeamClasses(List<WaitingTeamRecord> teamClasses) {
-		synchronized (deferredTeams) {
-			deferredTeams.addAll(teamClasses);
-		}
+		deferredTeams.addAll(teamClasses);
 	}
 
 	/**
@@ -459,14 +578,12 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 	 */
 	public void instantiateScheduledTeams(String triggerClassName) {
 		List<WaitingTeamRecord> scheduledTeams = null;
-		synchronized(deferredTeams) {
-			for (WaitingTeamRecord record : new ArrayList<>(deferredTeams)) {
-				if (record.notFoundClass.equals(triggerClassName)) {
-					if (scheduledTeams == null)
-						scheduledTeams = new ArrayList<>();
-					if (deferredTeams.remove(record))
-						scheduledTeams.add(record);
-				}
+		for (WaitingTeamRecord record : deferredTeams) { // iterates a snapshot
+			if (record.notFoundClass.equals(triggerClassName)) {
+				if (scheduledTeams == null)
+					scheduledTeams = new ArrayList<>();
+				if (deferredTeams.remove(record)) // only one thread will succeed
+					scheduledTeams.add(record);
 			}
 		}
 		if (scheduledTeams == null) return;
@@ -540,27 +657,13 @@ public class OTWeavingHook implements WeavingHook, WovenClassListener {
 		default:
 			ClassInformation classInfo = null;
 			if (bytes != null) {
-				classInfo = this.byteCodeAnalyzer.getClassInformation(bytes, className);
+				classInfo = this.byteCodeAnalyzer.getClassInformation(resourceLoader, bytes, className);
 			} else {
-				try (InputStream is = resourceLoader.getResourceAsStream(className.replace('.', '/')+".class")) {
-					if (is != null) {
-						classInfo = this.byteCodeAnalyzer.getClassInformation(is, className);
-					}
-				} catch (IOException e) {
-					return false;
-				}
-			}
-			if (classInfo != null && !classInfo.isInterface()) {
-				String superClassName = classInfo.getSuperClassName();
-				if ("java.lang.Thread".equals(superClassName))
-					return true; // ensure TeamActivation will weave the calls to TeamThreadManager
-				String[] superInterfaceNames = classInfo.getSuperInterfaceNames();
-				if (superInterfaceNames != null)
-					for (int i = 0; i < superInterfaceNames.length; i++) {
-						if ("java.lang.Runnable".equals(superInterfaceNames[i]))
-							return true; // ensure TeamActivation will weave the calls to TeamThreadManager
-					}
+				classInfo = this.byteCodeAnalyzer.getClassInformation(resourceLoader, className);
 			}
+			// header only, shared with isAdaptedBaseClass() via SupertypeCache:
+			if (classInfo != null && classInfo.isThreadOrRunnable())
+				return true; // ensure TeamActivation will weave the calls to TeamThreadManager
 		}
 		return false;
 	}
@@ -0,0 +1,215 @@
+/**********************************************************************
+ * This file is part of "Object Teams Development Tooling"-Software
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ * 		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.internal.osgi.weaving;
+
+import static org.eclipse.objectteams.otequinox.TransformerPlugin.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.osgi.framework.Bundle;
+
+/**
+ * Persistent index of the base classes bound by each team of an aspect bundle,
+ * as found by {@link AspectBinding#scanTeamClasses}.
+ * <p>
+ * Entries are keyed by bundle id and the bundle's last modified stamp, so any update
+ * of an aspect bundle invalidates its entries. Directory bundles (as used during development)
+ * keep their bundle stamp when classes are recompiled, so their teams are additionally keyed by
+ * the last modified time of the class file, which is read from the file system without opening
+ * the class. Teams whose class file has no known timestamp are not indexed. The index is stored
+ * in the data area of the OT/Equinox bundle, it is read during activation and written on shutdown.
+ * </p>
+ */
+@NonNullByDefault
+public class TeamScanIndex {
+
+	private static final String FILE_NAME = "teamScanIndex";
+	private static final int VERSION = 3;
+	/** Timestamp of a team class inside a bundle archive, which only changes together with the bundle stamp. */
+	static final long IN_ARCHIVE = -1;
+
+	/** Scan results of one aspect bundle. */
+	static class BundleEntry {
+		final long lastModified;
+		final ConcurrentMap<String, TeamEntry> teams = new ConcurrentHashMap<>();
+
+		BundleEntry(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+	/** Scan result of one team, valid while its class file has the recorded timestamp. */
+	static class TeamEntry {
+		final long classLastModified;
+		final List<String> baseClassNames;
+
+		TeamEntry(long classLastModified, List<String> baseClassNames) {
+			this.classLastModified = classLastModified;
+			this.baseClassNames = baseClassNames;
+		}
+	}
+
+	private final @Nullable File file;
+	private final ConcurrentMap<Long, BundleEntry> entries = new ConcurrentHashMap<>();
+	private volatile boolean dirty;
+
+	/**
+	 * Create an index backed by the given file.
+	 * @param file where to store the index, null if no persistent storage is available
+	 */
+	public TeamScanIndex(@Nullable File file) {
+		this.file = file;
+	}
+
+	/** Create an index in the data area of the given bundle and read its persisted state. */
+	public static TeamScanIndex create(Bundle ownBundle) {
+		TeamScanIndex index = new TeamScanIndex(ownBundle.getDataFile(FILE_NAME));
+		index.load();
+		return index;
+	}
+
+	/**
+	 * Answer the base classes recorded for the given team,
+	 * or null if the team has not been scanned in the current version of its bundle.
+	 */
+	public @Nullable List<String> getBaseClassNames(Bundle aspectBundle, String teamName) {
+		BundleEntry entry = this.entries.get(aspectBundle.getBundleId());
+		if (entry == null || entry.lastModified != aspectBundle.getLastModified())
+			return null;
+		TeamEntry team = entry.teams.get(teamName);
+		if (team == null || team.classLastModified != getTeamClassLastModified(aspectBundle, teamName))
+			return null;
+		return team.baseClassNames;
+	}
+
+	/** Record the base classes found when scanning the given team. */
+	public synchronized void recordBaseClassNames(Bundle aspectBundle, String teamName, Collection<String> baseClassNames) {
+		long classLastModified = getTeamClassLastModified(aspectBundle, teamName);
+		if (classLastModified == 0)
+			return; // changes could not be detected
+		long id = aspectBundle.getBundleId();
+		long lastModified = aspectBundle.getLastModified();
+		BundleEntry entry = this.entries.get(id);
+		if (entry == null || entry.lastModified != lastModified) // new or updated bundle, drop any stale entry
+			this.entries.put(id, entry = new BundleEntry(lastModified));
+		entry.teams.put(teamName, new TeamEntry(classLastModified, new ArrayList<>(baseClassNames)));
+		this.dirty = true;
+	}
+
+	/**
+	 * Answer the last modified time of the class file of the given team in a directory bundle,
+	 * {@link #IN_ARCHIVE} for a bundle archive, or 0 if not known.
+	 */
+	static long getTeamClassLastModified(Bundle aspectBundle, String teamName) {
+		try {
+			File bundleFile = FileLocator.getBundleFile(aspectBundle);
+			if (bundleFile == null)
+				return 0;
+			if (!bundleFile.isDirectory())
+				return IN_ARCHIVE;
+			Pair<URL, String> resource = TeamLoader.findTeamClassResource(teamName, aspectBundle);
+			if (resource == null)
+				return 0;
+			// for a directory bundle this resolves to the class file itself, nothing is extracted:
+			URL fileURL = FileLocator.toFileURL(resource.first);
+			if (!"file".equals(fileURL.getProtocol()))
+				return 0;
+			return new File(fileURL.getPath()).lastModified();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/** Read the persisted index, any failure results in an empty index. */
+	void load() {
+		File file = this.file;
+		if (file == null || !file.isFile())
+			return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != VERSION)
+				return;
+			int bundleCount = in.readInt();
+			for (int i = 0; i < bundleCount; i++) {
+				long id = in.readLong();
+				BundleEntry entry = new BundleEntry(in.readLong());
+				int teamCount = in.readInt();
+				for (int j = 0; j < teamCount; j++) {
+					String teamName = in.readUTF();
+					long classLastModified = in.readLong();
+					int baseCount = in.readInt();
+					List<String> baseClassNames = new ArrayList<>(baseCount);
+					for (int k = 0; k < baseCount; k++)
+						baseClassNames.add(in.readUTF());
+					entry.teams.put(teamName, new TeamEntry(classLastModified, baseClassNames));
+				}
+				this.entries.put(id, entry);
+			}
+			log(IStatus.INFO, "Read team scan index for "+bundleCount+" aspect bundles");
+		} catch (IOException e) {
+			this.entries.clear();
+			log(e, "Failed to read team scan index "+file);
+		}
+	}
+
+	/** Write the index if it has changed since it was read. */
+	public synchronized void save() {
+		File file = this.file;
+		if (file == null || !this.dirty)
+			return;
+		this.dirty = false;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(VERSION);
+			List<Map.Entry<Long, BundleEntry>> bundles = new ArrayList<>(this.entries.entrySet());
+			out.writeInt(bundles.size());
+			for (Map.Entry<Long, BundleEntry> bundle : bundles) {
+				out.writeLong(bundle.getKey());
+				BundleEntry entry = bundle.getValue();
+				out.writeLong(entry.lastModified);
+				List<Map.Entry<String, TeamEntry>> teams = new ArrayList<>(entry.teams.entrySet());
+				out.writeInt(teams.size());
+				for (Map.Entry<String, TeamEntry> team : teams) {
+					out.writeUTF(team.getKey());
+					TeamEntry teamEntry = team.getValue();
+					out.writeLong(teamEntry.classLastModified);
+					out.writeInt(teamEntry.baseClassNames.size());
+					for (String baseClassName : teamEntry.baseClassNames)
+						out.writeUTF(baseClassName);
+				}
+			}
+		} catch (IOException e) {
+			file.delete(); // don't leave a truncated index behind
+			log(e, "Failed to write team scan index "+file);
+		}
+	}
+}
@@ -133,6 +133,8 @@ public class TransformerPlugin implements BundleActivator, IAspectRegistry {
 		throw new IllegalStateException("TransformerPlugin has not been started");
 	}
 
+	private @Nullable OTWeavingHook weavingHook;
+
 	private static List<IStatus> pendingLogEntries = new ArrayList<>();
 	private static @Nullable URL agentURL; // null signals an error
 	
@@ -151,6 +153,7 @@ public class TransformerPlugin implements BundleActivator, IAspectRegistry {
 			final OTWeavingHook otWeavingHook = new OTWeavingHook();
 			final ServiceRegistration<?> registration = bundleContext.registerService(new String[] { WeavingHook.class.getName(), WovenClassListener.class.getName() },
 					otWeavingHook, null);
+			this.weavingHook = otWeavingHook;
 			
 			// but wait until the extension registry is available for reading aspectBindings:
 			try {
@@ -242,6 +245,9 @@ public class TransformerPlugin implements BundleActivator, IAspectRegistry {
 	 * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(@Nullable BundleContext bundleContext) throws Exception {
+		OTWeavingHook hook = this.weavingHook;
+		if (hook != null)
+			hook.deactivate();
 		plugin = null;
 	}
 
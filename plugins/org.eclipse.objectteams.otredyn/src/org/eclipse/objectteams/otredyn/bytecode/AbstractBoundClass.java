@@ -16,7 +16,9 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode;
 
+import java.lang.instrument.ClassDefinition;
 import java.lang.instrument.IllegalClassFormatException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -192,6 +194,9 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	//internal FQN (e.g. "foo/bar/MyClass.class")
 	private String internalName;
 	
+	/** Expected size of task maps, sufficient for a class with a few bindings. */
+	private static final int MIN_TASKS = 2;
+
 	// A globally unique identifier for the class
 	private String id;
 	private String superClassName;
@@ -199,8 +204,8 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	private String[] internalSuperInterfaces;
 	private AbstractBoundClass superclass;
 	private AbstractBoundClass enclosingClass;
-	private Map<String, Method> methods;
-	private Map<String, Field> fields;
+	private MemberTable<Method> methods;
+	private MemberTable<Field> fields;
 	protected Map<AbstractBoundClass, Object> subclasses;
 	
 	// Is the java class, that was represented by the AbstractBoundClass
@@ -213,8 +218,11 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	private int otClassFlags;
 	private boolean implicitTeamActivationEnabled = false;
 	private Set<String> methodsForImplicitActivation;
+	/** Binding tasks to be woven at load time, see {@link #addEagerJoinpoint(String, String, boolean, boolean)}. */
+	private List<WeavingTask> eagerBindingTasks;
 
-	protected ClassLoader loader;
+	// weak, so that the repository can drop classes of a collected class loader
+	private final WeakReference<ClassLoader> loader;
 
 	// callback
 	protected IWeavingContext weavingContext;
@@ -234,14 +242,15 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		this.name = name;
 		this.internalName = name.replace('.', '/');
 		this.id = id;
-		this.loader = loader;
-		completedBindingTasks = new IdentityHashMap<Method, WeavingTask>();
-		openBindingTasks = new IdentityHashMap<Method, WeavingTask>();
-		openAccessTasks = new IdentityHashMap<Member, WeavingTask>();
-		completedAccessTasks = new IdentityHashMap<Member, WeavingTask>();
-		methods = new HashMap<String, Method>();
-		fields = new HashMap<String, Field>();
-		subclasses = new IdentityHashMap<AbstractBoundClass, Object>();
+		this.loader = loader != null ? new WeakReference<ClassLoader>(loader) : null;
+		// most classes never receive any tasks, so start with minimal tables:
+		completedBindingTasks = new IdentityHashMap<Method, WeavingTask>(MIN_TASKS);
+		openBindingTasks = new IdentityHashMap<Method, WeavingTask>(MIN_TASKS);
+		openAccessTasks = new IdentityHashMap<Member, WeavingTask>(MIN_TASKS);
+		completedAccessTasks = new IdentityHashMap<Member, WeavingTask>(MIN_TASKS);
+		methods = new MemberTable<Method>(true);
+		fields = new MemberTable<Field>(false);
+		subclasses = Collections.synchronizedMap(new IdentityHashMap<AbstractBoundClass, Object>(MIN_TASKS)); // updated when linking concurrently loaded subclasses
 		
 		// don't fetch a anonymous subclass for a anonymous subclass
 		if (!name.equals(ClassRepository.ANONYMOUS_SUBCLASS_NAME)) {
@@ -272,7 +281,7 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	 * @return
 	 */
 	public ClassLoader getClassLoader() {
-		return this.loader;
+		return this.loader != null ? this.loader.get() : null;
 	}
 	
 	/**
@@ -365,6 +374,18 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		return this.methodsForImplicitActivation.contains(methodNameAndDesc);
 	}
 
+	/**
+	 * Register a method to be prepared for callin bindings at load time, although no binding is known yet.
+	 * This method is intended to be called while parsing the bytecode.
+	 * @see org.eclipse.objectteams.otredyn.bytecode.asm.WeavableRegionReader#isEagerlyWoven(String)
+	 */
+	public void addEagerJoinpoint(String methodName, String desc, boolean isStatic, boolean isPrivate) {
+		if (this.eagerBindingTasks == null)
+			this.eagerBindingTasks = new ArrayList<WeavingTask>();
+		int flags = (isStatic ? IBinding.STATIC_BASE : 0) | (isPrivate ? IBinding.PRIVATE_BASE : 0);
+		this.eagerBindingTasks.add(new WeavingTask(WeavingTaskType.WEAVE_BINDING, methodName, desc, flags, false, false));
+	}
+
 	public void setWeavingContext(IWeavingContext weavingContext) {
 		this.weavingContext = weavingContext;
 	}
@@ -380,6 +401,11 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	 * @throws IllegalClassFormatException various bytecode problems, e.g., unexpected RET instruction etc.
 	 */
 	public void transformAtLoadTime() throws IllegalClassFormatException {
+		if (this.eagerBindingTasks != null) {
+			for (WeavingTask task : this.eagerBindingTasks)
+				addBindingWeavingTask(task);
+			this.eagerBindingTasks = null;
+		}
 		handleTaskList(null);
 	}
 
@@ -404,7 +430,7 @@ public abstract class AbstractBoundClass implements IBoundClass {
 			
 			//if superclassId is null the class could be "Object" or an interface
 			if (superclassId != null) {
-				superclass = ClassRepository.getInstance().getBoundClass(superClassName, superclassId, loader);
+				superclass = ClassRepository.getInstance().getBoundClass(superClassName, superclassId, getClassLoader());
 				superclass.addSubclass(this);
 				// FIXME(SH): can we avoid adding all subclasses to j.l.Object?
 			}
@@ -436,7 +462,7 @@ public abstract class AbstractBoundClass implements IBoundClass {
 			String enclosingClassID = ClassIdentifierProviderFactory.getClassIdentifierProvider().getSuperclassIdentifier(id, enclosingClassName);
 			
 			if (enclosingClassID != null) {
-				enclosingClass = ClassRepository.getInstance().getBoundClass(enclosingClassName, enclosingClassID, loader);
+				enclosingClass = ClassRepository.getInstance().getBoundClass(enclosingClassName, enclosingClassID, getClassLoader());
 				enclosingClass.addSubclass(this);
 			}
 		}
@@ -514,14 +540,13 @@ public abstract class AbstractBoundClass implements IBoundClass {
 			System.err.println("OTDRE: Method "+name+" in class "+this.name+" has no descriptor");
 			return;
 		}
-		String methodKey = getMethodKey(name, desc);
-		Method method = methods.get(methodKey);
+		Method method = methods.get(name, desc);
 		// Does this method already exists?
 		// Methods are created by getMethod, if the class is not loaded
 		if (method == null) {
 			method = new Method(name, desc, isStatic, accessFlags);
 			method.setImplemented(true);
-			methods.put(methodKey, method);
+			methods.put(method);
 		} else {
 			// Yes, so set additional information.
 			method.setImplemented(true);
@@ -529,12 +554,6 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		}
 	}
 
-	/** Method signature sans the return type. */
-	private String getMethodKey(String name, String desc) {
-		int pos = desc.indexOf(')');
-		return name+desc.substring(0,pos+1);
-	}
-
 	/**
 	 * Adds a field to this class.
 	 * This method is intended to be called, 
@@ -545,10 +564,10 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	 * @param accessFlag ACC_PUBLIC, ACC_PROTECTED, ACC_PRIVATE or 0.
 	 */
 	public void addField(String name, String desc, boolean isStatic, int accessFlags) {
-		Field field = fields.get(name);
+		Field field = fields.get(name, desc);
 		if (field == null) {
 			field = new Field(name, desc, isStatic, accessFlags);
-			fields.put(name, field);
+			fields.put(field);
 		} else {
 			field.setStatic(isStatic);
 		}
@@ -557,8 +576,7 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	public Method getMethod(String name, String desc, int flags, boolean allowCovariantReturn) {
 		if (this.parsed) {
 			// in this state the current class may already be inside synchronized handleTaskList(), try without lock:
-			String methodKey = getMethodKey(name, desc);
-			Method method = methods.get(methodKey);
+			Method method = methods.get(name, desc);
 			if (method != null) {
 				if (allowCovariantReturn || method.getSignature().equals(desc))
 					return method;
@@ -567,14 +585,13 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		}
 		synchronized(this) {
 			parseBytecode();
-			String methodKey = getMethodKey(name, desc);
-			Method method = methods.get(methodKey);
+			Method method = methods.get(name, desc);
 			if (!allowCovariantReturn && method != null && !method.getSignature().equals(desc))
 				return null; // don't use this
 			if (method == null) {
 				// class was not yet loaded
 				method = new Method(name, desc, ((flags&IBinding.STATIC_BASE) != 0), 0/*accessFlags*/);
-				methods.put(methodKey, method);
+				methods.put(method);
 			}
 			return method;
 		}
@@ -591,15 +608,14 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	// same as above but specifically request a static/non-static method
 	public synchronized Method getMethod(String name, String desc, boolean allowCovariantReturn, boolean isStatic) {
 		parseBytecode();
-		String methodKey = getMethodKey(name, desc);
-		Method method = methods.get(methodKey);
+		Method method = methods.get(name, desc);
 		if (!allowCovariantReturn && method != null && !method.getSignature().equals(desc))
 			method = null; // don't use this
 		if (method == null) {
 			// class was not yet loaded
 			method = new Method(name, desc);
 			method.setStatic(isStatic);
-			methods.put(methodKey, method);
+			methods.put(method);
 		}
 		boolean actualStatic = method.isStatic();
 		if (name.equals("<init>"))
@@ -610,11 +626,11 @@ public abstract class AbstractBoundClass implements IBoundClass {
 
 	public synchronized Field getField(String name, String desc) {
 		parseBytecode();
-		Field field = fields.get(name);
+		Field field = fields.get(name, desc);
 		if (field == null) {
 			// class was not yet loaded
 			field = new Field(name, desc);
-			fields.put(name, field);
+			fields.put(field);
 		}
 		return field;
 	}
@@ -634,6 +650,15 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		subclasses.put(subclass, null);
 	}
 
+	/**
+	 * Remove this class from the subclasses of its superclass, if the superclass is known.
+	 * Used when this class is dropped from the {@link ClassRepository}.
+	 */
+	synchronized void unlinkFromSuperclass() {
+		if (this.superclass != null)
+			this.superclass.removeSubclass(this);
+	}
+
 	/**
 	 * Remove subclass from this class. It's only needed
 	 * to remove a anonymous subclass, if a real subclass is loaded
@@ -649,7 +674,9 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	 * @return
 	 */
 	private Collection<AbstractBoundClass> getSubclasses() {
-		return new ArrayList<AbstractBoundClass>(subclasses.keySet());
+		synchronized (subclasses) {
+			return new ArrayList<AbstractBoundClass>(subclasses.keySet());
+		}
 	}
 
 	/**
@@ -697,12 +724,14 @@ public abstract class AbstractBoundClass implements IBoundClass {
 					prepareLiftingParticipant();
 				} else if (isFirstTransformation()) {
 					// No, so only do load time transforming, if this method is called
-					// at load time
-					startTransformation();
-					prepareAsPossibleBaseClass();
-					prepareTeamActivation();
-					prepareLiftingParticipant();
-					endTransformation(definedClass);
+					// at load time, unless a previous run has left the result in the cache
+					if (definedClass != null || !useCachedLoadTimeTransformation()) {
+						startTransformation();
+						prepareAsPossibleBaseClass();
+						prepareTeamActivation();
+						prepareLiftingParticipant();
+						endTransformation(definedClass);
+					}
 				}
 		
 				// collect other classes for which new tasks are recorded, to flush those tasks in bulk at the end
@@ -932,20 +961,34 @@ public abstract class AbstractBoundClass implements IBoundClass {
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All classes redefined by the current thread until the outermost transaction ends
+	 * are redefined together, see {@link RedefinitionBatch}.
+	 * </p>
+	 */
 	@Override
 	public synchronized void startTransaction() {
 		this.transactionCount ++;
+		RedefinitionBatch.begin();
 	}
 
 	@Override
-	public synchronized void commitTransaction() {
-		--this.transactionCount;
-		if (this.transactionCount == 0 && this.isLoaded) {
-			try {
-				handleTaskList(null);
-			} catch (IllegalClassFormatException e) {
-				e.printStackTrace(); // we're called from TeamManager, which can neither log nor handle exceptions
+	public void commitTransaction() {
+		try {
+			synchronized (this) {
+				--this.transactionCount;
+				if (this.transactionCount == 0 && this.isLoaded) {
+					try {
+						handleTaskList(null);
+					} catch (IllegalClassFormatException e) {
+						e.printStackTrace(); // we're called from TeamManager, which can neither log nor handle exceptions
+					}
+				}
 			}
+		} finally {
+			RedefinitionBatch.end(); // outside the lock of this class
 		}
 	}
 	
@@ -1098,12 +1141,12 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	private void weaveBindingInStaticMethod(WeavingTask task) {
 		prepareForFirstStaticTransformation();
 		Method method = getMethod(task);
-		int joinpointId = TeamManager
-				.getJoinpointId(getMethodIdentifier(method));
+		String joinpointDescr = getMethodIdentifier(method);
+		int joinpointId = TeamManager.getJoinpointId(joinpointDescr);
 		int boundMethodId = method.getGlobalId(this);
 
 		moveCodeToCallOrig(method, boundMethodId, false);
-		createDispatchCodeInOrgMethod(method, joinpointId, boundMethodId);
+		createDispatchCodeInOrgMethod(method, joinpointId, boundMethodId, joinpointDescr);
 	}
 
 	/**
@@ -1118,10 +1161,11 @@ public abstract class AbstractBoundClass implements IBoundClass {
 			prepareForFirstStaticTransformation();
 
 		Method method = getMethod(task);
-		int joinpointId = TeamManager.getJoinpointId(task.getMethodIdentifier(this));
+		String joinpointDescr = task.getMethodIdentifier(this);
+		int joinpointId = TeamManager.getJoinpointId(joinpointDescr);
 		int boundMethodId = method.getGlobalId(this);
 		if (task.doAllTransformations()) {
-			createDispatchCodeInCallAllBindings(joinpointId, boundMethodId);
+			createDispatchCodeInCallAllBindings(method, joinpointId, boundMethodId, joinpointDescr);
 			// TODO(SH): instead of iterating superclasses fetch it from the Binding
 			boolean isWeavable = true; // weavable unless we find it to be declared in an unweavable super
 			AbstractBoundClass superClass = getSuperclass();
@@ -1140,12 +1184,11 @@ public abstract class AbstractBoundClass implements IBoundClass {
 			if (isWeavable)
 				createSuperCallInCallOrig(boundMethodId);
 			else {
-				String joinpointDescr = getMethodIdentifier(method);
 				// can't weave into the declaring class, add an override here:
-				createCallAllBindingsCallInOrgMethod(method, boundMethodId, joinpointDescr, true/*needToAddMethod*/);
+				createCallAllBindingsCallInOrgMethod(method, boundMethodId, getMethodIdentifier(method), true/*needToAddMethod*/);
 			}
 		} else {
-			createDispatchCodeInCallAllBindings(joinpointId, boundMethodId);
+			createDispatchCodeInCallAllBindings(method, joinpointId, boundMethodId, joinpointDescr);
 		}
 	}
 
@@ -1170,16 +1213,15 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	private void weaveBindingInImplementedMethod(WeavingTask task) {
 		prepareForFirstTransformation();
 		Method method = getMethod(task);
-		int joinpointId = TeamManager
-				.getJoinpointId(getMethodIdentifier(method));
+		String joinpointDescr = getMethodIdentifier(method);
+		int joinpointId = TeamManager.getJoinpointId(joinpointDescr);
 		int boundMethodId = method.getGlobalId(this);
 		if (task.doAllTransformations()) {
-			String joinpointDescr = getMethodIdentifier(method);
 			moveCodeToCallOrig(method, boundMethodId, task.requiresBaseSuperCall());
-			createDispatchCodeInCallAllBindings(joinpointId, boundMethodId);
+			createDispatchCodeInCallAllBindings(method, joinpointId, boundMethodId, joinpointDescr);
 			createCallAllBindingsCallInOrgMethod(method, boundMethodId, joinpointDescr, false);
 		} else {
-			createDispatchCodeInCallAllBindings(joinpointId, joinpointId);
+			createDispatchCodeInCallAllBindings(method, joinpointId, joinpointId, joinpointDescr);
 		}
 	}
 
@@ -1220,13 +1262,28 @@ public abstract class AbstractBoundClass implements IBoundClass {
 
 	protected abstract void prepareLiftingParticipant();
 
+	/**
+	 * Try to replace the load time transformation (without any bindings) by its result from the {@link WovenBytecodeCache}.
+	 * @return true if the cached result has been installed as the bytecode of this class.
+	 */
+	protected abstract boolean useCachedLoadTimeTransformation();
+
+	/** Answer the definition for redefining this class with its current bytecode. */
+	protected abstract ClassDefinition getClassDefinition(Class<?> definedClass) throws ClassNotFoundException;
+
+	/**
+	 * Redefine this class with its current bytecode, or, if that fails, schedule the redefinition for later.
+	 * @return true if the class has been redefined
+	 */
+	protected abstract boolean redefineSeparately(Class<?> definedClass);
+
 	protected abstract void createSuperCallInCallOrig(int boundMethodId);
 
 	protected abstract void createCallAllBindingsCallInOrgMethod(
 			Method boundMethod, int joinpointId, String joinpointDescr, boolean needToAddMethod);
 
-	protected abstract void createDispatchCodeInCallAllBindings(
-			int joinpointId, int boundMethodId);
+	protected abstract void createDispatchCodeInCallAllBindings(Method boundMethod,
+			int joinpointId, int boundMethodId, String joinpointDescr);
 
 	protected abstract void moveCodeToCallOrig(Method boundMethod, int boundMethodId, boolean baseSuperRequired);
 
@@ -1239,7 +1296,7 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	public boolean isLoaded() { return isLoaded; }
 
 	protected abstract void createDispatchCodeInOrgMethod(Method boundMethod,
-			int joinpointId, int boundMethodId);
+			int joinpointId, int boundMethodId, String joinpointDescr);
 
 	protected abstract void prepareForFirstMemberAccess();
 
@@ -1251,6 +1308,12 @@ public abstract class AbstractBoundClass implements IBoundClass {
 	
 	public abstract byte[] getBytecode();
 
+	/**
+	 * Free the memory held for the bytes of this class after loading,
+	 * if the bytes can be obtained again when needed.
+	 */
+	public abstract void releaseUnwovenBytecode();
+
 	public void dump(byte[] classfileBuffer, String postfix) {}
 
 	public Collection<String> getBoundBaseClasses() { return null; }
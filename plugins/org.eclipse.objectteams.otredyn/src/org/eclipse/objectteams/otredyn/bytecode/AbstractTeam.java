@@ -87,9 +87,11 @@ public abstract class AbstractTeam extends AbstractBoundClass implements IBoundT
 	/** Answer known tsub-versions of the given role. */
 	private List<String> getTSubRoles(String simpleRoleName) {
 		List<String> result = new ArrayList<String>();
-		for (AbstractBoundClass subTeam : this.subclasses.keySet()) {
-			if (!subTeam.isAnonymous())
-				result.add(subTeam.getName()+'$'+simpleRoleName);
+		synchronized (this.subclasses) {
+			for (AbstractBoundClass subTeam : this.subclasses.keySet()) {
+				if (!subTeam.isAnonymous())
+					result.add(subTeam.getName()+'$'+simpleRoleName);
+			}
 		}
 		return result;
 	}
@@ -105,11 +107,11 @@ public abstract class AbstractTeam extends AbstractBoundClass implements IBoundT
 			return Collections.emptyList();
 		String teamName = name.substring(0, dollar);
 		// FIXME: use the idProvider, but: we don't yet have that team class :(
-		IBoundTeam myTeam = classRepository.getTeam(teamName.replace('/', '.'), teamName.replace('.', '/'), this.loader);
+		IBoundTeam myTeam = classRepository.getTeam(teamName.replace('/', '.'), teamName.replace('.', '/'), getClassLoader());
 		List<String> tsubRoleNames = ((AbstractTeam)myTeam).getTSubRoles(name.substring(dollar+1));
 		List<IBoundClass> tsubBases = new ArrayList<IBoundClass>();
 		for  (String tsubRoleName : tsubRoleNames)
-			tsubBases.add(classRepository.getBoundClass(tsubRoleName.replace('/', '.'), tsubRoleName.replace('.', '/'), this.loader));
+			tsubBases.add(classRepository.getBoundClass(tsubRoleName.replace('/', '.'), tsubRoleName.replace('.', '/'), getClassLoader()));
 		return tsubBases;
 	}
 }
@@ -19,17 +19,16 @@ package org.eclipse.objectteams.otredyn.bytecode;
 /**
  * This class creates and provides a singleton instance of
  * IBytecodeProvider. 
- * Actually it returns a instance of InMemeoryBytecodeProvider.
- * In the future, this class should decides (e.g. by a system property), 
- * which BytecodeProvider should be used   
+ * By default it returns a instance of InMemeoryBytecodeProvider.
+ * If system property {@code ot.bytecode.store} is set to {@code offheap},
+ * an {@link OffHeapBytecodeProvider} is used instead.
  * @author Oliver Frank
  */
 public class BytecodeProviderFactory {
-	private static IBytecodeProvider instance;
-	public static synchronized IBytecodeProvider getBytecodeProvider() {
-		if (instance == null) {
-			instance = new InMemoryBytecodeProvider();
-		}
+	private static final IBytecodeProvider instance = "offheap".equals(System.getProperty("ot.bytecode.store"))
+			? new OffHeapBytecodeProvider()
+			: new InMemoryBytecodeProvider();
+	public static IBytecodeProvider getBytecodeProvider() {
 		return instance;
 	}
 }
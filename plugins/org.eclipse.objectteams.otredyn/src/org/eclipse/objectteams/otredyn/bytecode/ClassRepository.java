@@ -16,9 +16,15 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode;
 
-import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.objectteams.otredyn.bytecode.asm.AsmClassRepository;
 import org.eclipse.objectteams.otredyn.runtime.IClassRepository;
@@ -30,10 +36,34 @@ import org.eclipse.objectteams.otredyn.runtime.TeamManager;
  * instance that should do this. It is a singelton, thats
  * why the constructor should not called directly.
  * The instance is provided by getInstance. 
+ * <p>
+ * The repository is accessed by all class loading threads, it uses no global lock:
+ * bound classes are created atomically per id, and anonymous subclasses are replaced atomically per superclass.
+ * </p><p>
+ * Bound classes refer to their class loader only weakly. When a class loader has been garbage collected,
+ * all classes created for that loader are dropped from the repository.
+ * </p>
  * @author Oliver Frank
  */
 public abstract class ClassRepository implements IClassRepository {
-	private static ClassRepository instance;
+	/** Holder of the singleton, created when first requested. */
+	private static class Instance {
+		static final ClassRepository INSTANCE = new AsmClassRepository();
+	}
+
+	/**
+	 * Connects the singleton to the TeamManager, in a separate class initialization:
+	 * Team classes loaded during setup are transformed by the same thread,
+	 * which then needs to see the already created instance.
+	 */
+	private static class Setup {
+		static {
+			TeamManager.setup(Instance.INSTANCE);
+		}
+		static void ensure() {
+			// triggers class initialization
+		}
+	}
 	
 	protected ClassRepository() {
 		
@@ -41,22 +71,31 @@ public abstract class ClassRepository implements IClassRepository {
 	
 	/**
 	 * Returns a singleton instance of the ClassRepository.
+	 * Initialization is left to the JVM's class initialization, so no lock is needed once the instance is set up.
 	 * @return
 	 */
-	public static synchronized ClassRepository getInstance() {
-		if (instance == null) {
-			instance = new AsmClassRepository();
-			TeamManager.setup(instance);
-		}
-		
-		return instance;
+	public static ClassRepository getInstance() {
+		Setup.ensure();
+		return Instance.INSTANCE;
 	}
 	
 	protected static final String ANONYMOUS_SUBCLASS_NAME = "AnonymousSubclass";
 	
-	private Map<String, AbstractTeam> boundClassMap = new HashMap<String, AbstractTeam>();
-	private Map<AbstractBoundClass, AbstractBoundClass> anonymousSubclassMap = new IdentityHashMap<AbstractBoundClass, AbstractBoundClass>();
+	private ConcurrentMap<String, AbstractTeam> boundClassMap = new ConcurrentHashMap<String, AbstractTeam>();
+	// AbstractBoundClass does not override equals()/hashCode(), so keys are compared by identity
+	private ConcurrentMap<AbstractBoundClass, AbstractBoundClass> anonymousSubclassMap = new ConcurrentHashMap<AbstractBoundClass, AbstractBoundClass>();
+	
+	/** The classes created for one class loader, to be dropped when the loader has been collected. */
+	private static class LoaderClasses extends WeakReference<ClassLoader> {
+		final List<AbstractBoundClass> classes = new ArrayList<AbstractBoundClass>();
+		LoaderClasses(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+			super(loader, queue);
+		}
+	}
 	
+	private final Map<ClassLoader, LoaderClasses> classesPerLoader = new WeakHashMap<ClassLoader, LoaderClasses>();
+	private final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<ClassLoader>();
+
 	/**
 	 * Returns a instance of AbstractBoundClass for the
 	 * given FQN and id. If there is no instance it
@@ -69,11 +108,12 @@ public abstract class ClassRepository implements IClassRepository {
 	 * @param id a globally unique identifier for the class 
 	 * @return
 	 */
-	public synchronized AbstractBoundClass getBoundClass(String className, String id, ClassLoader loader) {
+	public AbstractBoundClass getBoundClass(String className, String id, ClassLoader loader) {
 		AbstractTeam clazz = boundClassMap.get(id);
 		if (clazz == null) {
-			clazz = createClass(className, id, BytecodeProviderFactory.getBytecodeProvider(), loader);
-			boundClassMap.put(id, clazz);
+			expungeCollectedLoaders();
+			clazz = boundClassMap.computeIfAbsent(id,
+					key -> createAndRegisterClass(className, key, BytecodeProviderFactory.getBytecodeProvider(), loader));
 		}
 		
 		return clazz;
@@ -84,7 +124,7 @@ public abstract class ClassRepository implements IClassRepository {
 	 * but don't create a new bound class if none has been registered before.
 	 * @param id a globally unique identifier for the class 
 	 */
-	public synchronized AbstractBoundClass peekBoundClass(String id) {
+	public AbstractBoundClass peekBoundClass(String id) {
 		return boundClassMap.get(id);
 	}
 
@@ -100,23 +140,56 @@ public abstract class ClassRepository implements IClassRepository {
 	 * @param id a globally unique identifier for the class 
 	 * @return
 	 */
-	public synchronized AbstractBoundClass getBoundClass(String className, String id, byte[] classBytes, ClassLoader loader) 
+	public AbstractBoundClass getBoundClass(String className, String id, byte[] classBytes, ClassLoader loader) 
 	{
-		AbstractTeam clazz = boundClassMap.get(id);
 		// set the bytecode in the BytecodeProvider
 		IBytecodeProvider bytecodeProvider = BytecodeProviderFactory.getBytecodeProvider();
 		bytecodeProvider.setBytecode(id, classBytes);
+		AbstractTeam clazz = boundClassMap.get(id);
 		if (clazz == null) {
-			clazz = createClass(className, id, bytecodeProvider, loader);
+			expungeCollectedLoaders();
+			clazz = boundClassMap.computeIfAbsent(id, key -> createAndRegisterClass(className, key, bytecodeProvider, loader));
 		} 
-		
-		boundClassMap.put(id, clazz);
 
 		clazz.setLoaded();
 		
 		return clazz;
 	}
 
+	private AbstractTeam createAndRegisterClass(String className, String id, IBytecodeProvider bytecodeProvider, ClassLoader loader) {
+		AbstractTeam clazz = createClass(className, id, bytecodeProvider, loader);
+		if (loader != null) {
+			synchronized (classesPerLoader) {
+				LoaderClasses loaderClasses = classesPerLoader.get(loader);
+				if (loaderClasses == null) {
+					loaderClasses = new LoaderClasses(loader, collectedLoaders);
+					classesPerLoader.put(loader, loaderClasses);
+				}
+				loaderClasses.classes.add(clazz);
+			}
+		}
+		return clazz;
+	}
+
+	/** Drop all classes whose class loader has been garbage collected. */
+	private void expungeCollectedLoaders() {
+		Reference<? extends ClassLoader> collected;
+		while ((collected = collectedLoaders.poll()) != null) {
+			IBytecodeProvider bytecodeProvider = BytecodeProviderFactory.getBytecodeProvider();
+			List<AbstractBoundClass> classes;
+			synchronized (classesPerLoader) {
+				classes = ((LoaderClasses) collected).classes;
+			}
+			for (AbstractBoundClass clazz : classes) {
+				// the same id may meanwhile denote a class of another loader:
+				if (boundClassMap.remove(clazz.getId(), clazz))
+					bytecodeProvider.setBytecode(clazz.getId(), null);
+				anonymousSubclassMap.remove(clazz);
+				clazz.unlinkFromSuperclass();
+			}
+		}
+	}
+
 	/**
 	 * This method links a class with its superclass.
 	 * It checks if the superclass was already loaded.
@@ -127,25 +200,29 @@ public abstract class ClassRepository implements IClassRepository {
 	public void linkClassWithSuperclass(AbstractBoundClass clazz) {
 		// FIXME(SH): also link with tsuper classes??
 		AbstractBoundClass superclass = clazz.getSuperclass();
-		AbstractBoundClass anonymousSubclass = null;
-		if (superclass != null) {
-			anonymousSubclass = anonymousSubclassMap.get(superclass);
-		}
+		if (superclass == null)
+			return;
 		
-		//Is there an anonmous subclass, that corresponds with this class
-		if (anonymousSubclass != null) {
+		while (true) {
+			AbstractBoundClass anonymousSubclass = anonymousSubclassMap.get(superclass);
+			//Is there an anonmous subclass, that corresponds with this class
+			if (anonymousSubclass == null)
+				return;
 			//Yes, so merge the tasks
 			AbstractBoundClass newAnonymousSubclass = createClass(ANONYMOUS_SUBCLASS_NAME, 
 															      ANONYMOUS_SUBCLASS_NAME, 
 															      BytecodeProviderFactory.getBytecodeProvider(),
 															      clazz.getClassLoader());
+			// only the thread that succeeds in replacing may consume the tasks of the previous anonymous subclass:
+			if (!anonymousSubclassMap.replace(superclass, anonymousSubclass, newAnonymousSubclass))
+				continue; // another subclass has been linked concurrently, retry with its new anonymous subclass
 			superclass.removeSubclass(anonymousSubclass);
 			superclass.addSubclass(newAnonymousSubclass);
 			superclass.addSubclass(clazz);
 			newAnonymousSubclass.mergeTasks(anonymousSubclass);
 			clazz.mergeTasks(anonymousSubclass);
 			anonymousSubclass.performWiringTasks(superclass, clazz);
-			anonymousSubclassMap.put(superclass, newAnonymousSubclass);
+			return;
 		}
 	}
 
@@ -181,12 +258,14 @@ public abstract class ClassRepository implements IClassRepository {
 			AbstractBoundClass abstractBoundClass) {
 		AbstractBoundClass anonymousSubclass = anonymousSubclassMap.get(abstractBoundClass);
 		if (anonymousSubclass == null) {
-			anonymousSubclass = createClass(ANONYMOUS_SUBCLASS_NAME, 
-										    ANONYMOUS_SUBCLASS_NAME, 
-										    BytecodeProviderFactory.getBytecodeProvider(),
-										    abstractBoundClass.getClassLoader());
-			anonymousSubclass.setSuperClassName(abstractBoundClass.getName());
-			anonymousSubclassMap.put((AbstractTeam) abstractBoundClass, anonymousSubclass);
+			anonymousSubclass = anonymousSubclassMap.computeIfAbsent(abstractBoundClass, superclass -> {
+				AbstractBoundClass newAnonymousSubclass = createClass(ANONYMOUS_SUBCLASS_NAME, 
+															      ANONYMOUS_SUBCLASS_NAME, 
+															      BytecodeProviderFactory.getBytecodeProvider(),
+															      superclass.getClassLoader());
+				newAnonymousSubclass.setSuperClassName(superclass.getName());
+				return newAnonymousSubclass;
+			});
 		}
 		return anonymousSubclass;
 	}
@@ -37,7 +37,7 @@ public interface IBytecodeProvider {
 	 * Attention: This may be an expensive operation 
 	 * (e.g. if the bytecode is written to the hard disk).
 	 * @param classId
-	 * @param bytecode
+	 * @param bytecode the bytes or null to remove the bytes of the class
 	 */
 	public void setBytecode(String classId, byte[] bytecode);
 }
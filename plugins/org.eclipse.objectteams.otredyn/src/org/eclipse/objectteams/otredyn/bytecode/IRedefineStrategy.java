@@ -16,6 +16,7 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode;
 
+import java.lang.instrument.ClassDefinition;
 import java.lang.instrument.UnmodifiableClassException;
 
 /**
@@ -32,4 +33,12 @@ public interface IRedefineStrategy {
 	 * @throws UnmodifiableClassException it is impossible to redefine the class
 	 */
 	public void redefine(Class<?> clazz, byte[] bytecode) throws ClassNotFoundException, UnmodifiableClassException;
+
+	/**
+	 * Redefines several classes at runtime using one request.
+	 * @param definitions the existing classes and their new bytecode
+	 * @throws ClassNotFoundException a class was not loaded yet
+	 * @throws UnmodifiableClassException it is impossible to redefine one of the classes
+	 */
+	public void redefine(ClassDefinition[] definitions) throws ClassNotFoundException, UnmodifiableClassException;
 }
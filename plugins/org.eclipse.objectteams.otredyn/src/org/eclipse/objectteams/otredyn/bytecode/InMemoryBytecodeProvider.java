@@ -16,36 +16,142 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode;
 
-import java.util.HashMap;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is an implementaion of IBytecodeProvider
- * It keeps the bytecode of all classes in memory.
+ * It keeps the bytecode of all classes in memory, up to a limit.
+ * It may be accessed concurrently by all class loading threads.
+ * <p>
+ * When the bytes held in memory exceed the limit given by system property {@code ot.bytecode.store.max}
+ * (in bytes, default: {@value #DEFAULT_MAX_RESIDENT}, negative for no limit), bytes of classes are evicted,
+ * in no particular order, until a quarter of the limit is free again.
+ * Evicted bytes are appended to a temporary file, which is deleted when the JVM exits,
+ * and they are read back from there when needed, e.g., for redefining the class.
+ * Woven bytes cannot simply be dropped like unwoven bytes (see {@link AbstractBoundClass#releaseUnwovenBytecode()}),
+ * because they cannot be re-read from the class loader.
+ * </p>
  * @author Oliver Frank
  */
 public class InMemoryBytecodeProvider implements IBytecodeProvider {
 
-	private Map<String, byte[]> bytecodeMap = new HashMap<String, byte[]>();
+	private static final long DEFAULT_MAX_RESIDENT = 64L*1024*1024;
+
+	/** Initialized from property {@code ot.bytecode.store.max}. */
+	private static final long MAX_RESIDENT = Long.getLong("ot.bytecode.store.max", DEFAULT_MAX_RESIDENT).longValue();
+
+	/** Location of bytes that have been evicted to the spill file. */
+	private static class Spilled {
+		final long position;
+		final int length;
+		Spilled(long position, int length) {
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	// values are either byte[] (held in memory) or Spilled
+	private Map<String, Object> bytecodeMap = new ConcurrentHashMap<String, Object>();
+	private final AtomicLong residentBytes = new AtomicLong();
+
+	// guarded by this, spillFile is created on the first eviction
+	private volatile FileChannel spillFile;
+	private long spillEnd;
+	private boolean spillFailed;
 	
 	/**
 	 * Returns the bytecode of a class with the given id.
-	 * In this implementation, this is not an expensive operation. 
+	 * In this implementation, this is not an expensive operation,
+	 * unless the bytes have been evicted from memory.
 	 * @return the bytecode of the class or null, if the class
 	 * was not loaded yet.
 	 */
 	public byte[] getBytecode(String className) {
-		return bytecodeMap.get(className);
+		Object stored = bytecodeMap.get(className);
+		if (stored instanceof Spilled)
+			return readSpilled((Spilled) stored);
+		return (byte[]) stored;
 	}
 
 	/**
 	 * Sets the bytecode of the class with the given id
 	 * in the BytecodeProvider
-	 * In this implementation, this is not an expensive operation.
+	 * In this implementation, this is not an expensive operation,
+	 * unless it triggers eviction.
 	 * @param classId
 	 * @param bytecode
 	 */
 	public void setBytecode(String className, byte[] bytecode) {
-		bytecodeMap.put(className, bytecode);
+		Object previous;
+		if (bytecode == null)
+			previous = bytecodeMap.remove(className);
+		else
+			previous = bytecodeMap.put(className, bytecode);
+		long delta = (bytecode != null ? bytecode.length : 0) - (previous instanceof byte[] ? ((byte[]) previous).length : 0);
+		if (residentBytes.addAndGet(delta) > MAX_RESIDENT && MAX_RESIDENT >= 0)
+			evict();
+	}
+
+	/** Answer the number of bytes currently held in memory. */
+	public long getResidentBytes() {
+		return residentBytes.get();
+	}
+
+	@SuppressWarnings("resource") // channel is kept open until the JVM exits
+	private synchronized void evict() {
+		if (spillFailed)
+			return;
+		long target = MAX_RESIDENT - MAX_RESIDENT/4;
+		try {
+			if (spillFile == null) {
+				File file = File.createTempFile("otdre-bytecode", ".bin");
+				file.deleteOnExit();
+				spillFile = new RandomAccessFile(file, "rw").getChannel();
+			}
+			for (Map.Entry<String, Object> entry : bytecodeMap.entrySet()) {
+				if (residentBytes.get() <= target)
+					break;
+				if (!(entry.getValue() instanceof byte[]))
+					continue;
+				byte[] bytes = (byte[]) entry.getValue();
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				long position = spillEnd;
+				while (buffer.hasRemaining())
+					position += spillFile.write(buffer, position);
+				Spilled spilled = new Spilled(spillEnd, bytes.length);
+				spillEnd = position;
+				// bytes that have been replaced meanwhile stay in memory (and their space in the file is wasted):
+				if (bytecodeMap.replace(entry.getKey(), bytes, spilled))
+					residentBytes.addAndGet(-bytes.length);
+			}
+		} catch (IOException e) {
+			spillFailed = true; // don't try again
+			System.err.println("OTDRE: Cannot evict bytecode to a temporary file, keeping all bytecode in memory: "+e);
+		}
+	}
+
+	private byte[] readSpilled(Spilled spilled) {
+		byte[] bytes = new byte[spilled.length];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		try {
+			long position = spilled.position;
+			while (buffer.hasRemaining()) {
+				int n = spillFile.read(buffer, position);
+				if (n < 0)
+					throw new EOFException();
+				position += n;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("OTDRE: Cannot read evicted bytecode", e);
+		}
+		return bytes;
 	}
 }
@@ -16,11 +16,9 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.eclipse.objectteams.otredyn.runtime.IBoundClass;
 import org.eclipse.objectteams.otredyn.runtime.IMember;
+import org.eclipse.objectteams.otredyn.runtime.IdRegistry;
 import org.objectweb.asm.Opcodes;
 
 /**
@@ -31,14 +29,6 @@ import org.objectweb.asm.Opcodes;
  */
 public abstract class Member implements IMember {
 
-	/**
-	 * Map of globally unique Ids by keys that are constructed from the resolved target member.
-	 * NOTE that internally we temporarily set bit 0x80000000 to signal that a member is a constructor.
-	 * See https://bugs.eclipse.org/494415
-	 */
-	private static Map<String, Integer> idMap = new HashMap<String, Integer>();
-	private static int currentId = 1; // distinguish from uninitialized 0 (for debugging purposes)
-	
 	private String name;
 	private String signature;
 	private boolean isStatic;
@@ -81,21 +71,15 @@ public abstract class Member implements IMember {
 	
 	/**
 	 * Returns a globally unique id for a given key.
+	 * Keys are constructed from the resolved target member.
+	 * NOTE that internally we temporarily set bit 0x80000000 to signal that a member is a constructor.
+	 * See https://bugs.eclipse.org/494415
 	 * @param key
 	 * @return
+	 * @see IdRegistry#MEMBER_IDS
 	 */
 	protected int getId(String key) {
-		Integer id = idMap.get(key);
-		if (id == null) {
-			synchronized (idMap) {
-				int thisId = currentId;
-				currentId += 2; // 2-increment to keep space for base-super calls
-				idMap.put(key, thisId);
-				return thisId;
-			}
-		}
-
-		return id;
+		return IdRegistry.MEMBER_IDS.getId(key);
 	}
 	
 	public abstract int getGlobalId(IBoundClass clazz);
@@ -0,0 +1,118 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.bytecode;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Compact table of the methods or fields of one class, replacing a {@code HashMap<String,Member>}.
+ * <p>
+ * Members are stored in a single open addressing array, hashed by name. There are no entry objects and no key strings:
+ * methods are matched by name and parameter types (i.e., their signature sans the return type), fields by name.
+ * </p><p>
+ * Writers must hold the monitor of the owning class. Readers may proceed without a lock,
+ * they see either the previous or the new member of a slot, and only fully initialized members.
+ * </p>
+ * @param <M> either {@link Method} or {@link Field}
+ */
+class MemberTable<M extends Member> {
+
+	private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Member[].class);
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private final boolean matchParameters;
+	private volatile Member[] table;
+	private int size;
+
+	/**
+	 * @param matchParameters true if members are methods, which are distinguished by name and parameter types,
+	 * 	false if members are fields, which are distinguished by name only
+	 */
+	MemberTable(boolean matchParameters) {
+		this.matchParameters = matchParameters;
+		this.table = new Member[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Answer the member of the given name and, for methods, the same parameter types as the given descriptor.
+	 * @param name name of the member
+	 * @param desc descriptor of the member, the return type of a method descriptor is not considered
+	 * @return the member or null
+	 */
+	@SuppressWarnings("unchecked")
+	M get(String name, String desc) {
+		Member[] tab = this.table;
+		int mask = tab.length - 1;
+		for (int i = name.hashCode() & mask; ; i = (i + 1) & mask) {
+			Member member = (Member) SLOT.getAcquire(tab, i);
+			if (member == null)
+				return null;
+			if (matches(member, name, desc))
+				return (M) member;
+		}
+	}
+
+	/** Add the given member, replacing any member with the same key. */
+	void put(M member) {
+		Member[] tab = this.table;
+		int mask = tab.length - 1;
+		String name = member.getName();
+		String desc = member.getSignature();
+		for (int i = name.hashCode() & mask; ; i = (i + 1) & mask) {
+			Member current = tab[i];
+			if (current == null) {
+				if (2 * (this.size + 1) > tab.length) {
+					grow(tab);
+					put(member);
+					return;
+				}
+				this.size++;
+				SLOT.setRelease(tab, i, member);
+				return;
+			}
+			if (matches(current, name, desc)) {
+				SLOT.setRelease(tab, i, member);
+				return;
+			}
+		}
+	}
+
+	/** Rehash into a table of twice the size, which is published only when complete. */
+	private void grow(Member[] tab) {
+		Member[] newTab = new Member[2 * tab.length];
+		int mask = newTab.length - 1;
+		for (Member member : tab) {
+			if (member == null)
+				continue;
+			int i = member.getName().hashCode() & mask;
+			while (newTab[i] != null)
+				i = (i + 1) & mask;
+			newTab[i] = member;
+		}
+		this.table = newTab;
+	}
+
+	private boolean matches(Member member, String name, String desc) {
+		if (!member.getName().equals(name))
+			return false;
+		if (!this.matchParameters)
+			return true;
+		int end = desc.indexOf(')') + 1;
+		return member.getSignature().regionMatches(0, desc, 0, end);
+	}
+}
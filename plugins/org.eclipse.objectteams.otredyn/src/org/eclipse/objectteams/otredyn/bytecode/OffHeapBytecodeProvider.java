@@ -0,0 +1,70 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.bytecode;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This implementation of IBytecodeProvider keeps the bytecode of all classes outside the Java heap.
+ * Bytes are appended to large direct buffers (slabs), the heap only holds one small buffer view per class.
+ * A slab is freed when no class refers to it any longer.
+ * <p>
+ * This provider is selected by system property {@code ot.bytecode.store=offheap}.
+ * </p>
+ */
+public class OffHeapBytecodeProvider implements IBytecodeProvider {
+
+	private static final int SLAB_SIZE = 1 << 20;
+
+	private final Map<String, ByteBuffer> bytecodeMap = new ConcurrentHashMap<String, ByteBuffer>();
+
+	/** The slab that is currently filled. */
+	private ByteBuffer currentSlab;
+
+	public byte[] getBytecode(String classId) {
+		ByteBuffer stored = bytecodeMap.get(classId);
+		if (stored == null)
+			return null;
+		byte[] bytes = new byte[stored.remaining()];
+		stored.duplicate().get(bytes);
+		return bytes;
+	}
+
+	public void setBytecode(String classId, byte[] bytecode) {
+		if (bytecode == null)
+			bytecodeMap.remove(classId);
+		else
+			bytecodeMap.put(classId, store(bytecode));
+	}
+
+	private synchronized ByteBuffer store(byte[] bytecode) {
+		ByteBuffer slice;
+		if (bytecode.length > SLAB_SIZE / 4) {
+			slice = ByteBuffer.allocateDirect(bytecode.length); // don't waste the rest of a slab
+		} else {
+			if (currentSlab == null || currentSlab.remaining() < bytecode.length)
+				currentSlab = ByteBuffer.allocateDirect(SLAB_SIZE);
+			slice = currentSlab.slice();
+			slice.limit(bytecode.length);
+			currentSlab.position(currentSlab.position() + bytecode.length);
+		}
+		slice.put(bytecode);
+		slice.flip();
+		return slice;
+	}
+}
@@ -40,4 +40,15 @@ public class OtreRedefineStrategy implements IRedefineStrategy {
 		}
 	}
 
+	public void redefine(ClassDefinition[] definitions) throws ClassNotFoundException, UnmodifiableClassException {
+		try {
+			otreAgent.getInstrumentation().redefineClasses(definitions);
+		} catch (ClassFormatError cfe) {
+			// error output during redefinition tends to swallow the stack, print it now:
+			System.err.println("OTDRE: Error redifining "+definitions.length+" classes");
+			cfe.printStackTrace();
+			throw cfe;
+		}
+	}
+
 }
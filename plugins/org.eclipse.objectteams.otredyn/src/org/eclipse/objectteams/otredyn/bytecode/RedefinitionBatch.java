@@ -0,0 +1,98 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.bytecode;
+
+import java.lang.instrument.ClassDefinition;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the classes that need to be redefined during one transaction of the current thread
+ * (see {@link AbstractBoundClass#startTransaction()}), so that all are redefined using one
+ * request to the {@link IRedefineStrategy}.
+ * Every redefinition stops the VM at a safepoint and deoptimizes dependent code,
+ * so activating a team that affects many base classes should redefine them all at once.
+ * <p>
+ * Transactions may be nested, also across different classes: the batch is flushed
+ * when the outermost transaction of the current thread ends.
+ * If redefining the batch fails, each class is redefined separately, so that
+ * the usual fallback (deferred redefinition) applies to those classes that fail.
+ * </p>
+ */
+public class RedefinitionBatch {
+
+	private static final ThreadLocal<RedefinitionBatch> current = new ThreadLocal<RedefinitionBatch>();
+
+	private int depth;
+	/** Classes to redefine, mapped to the defined class, if known. */
+	private final Map<AbstractBoundClass, Class<?>> classes = new LinkedHashMap<AbstractBoundClass, Class<?>>();
+
+	/** Start a (possibly nested) batch for the current thread. */
+	static void begin() {
+		RedefinitionBatch batch = current.get();
+		if (batch == null) {
+			batch = new RedefinitionBatch();
+			current.set(batch);
+		}
+		batch.depth++;
+	}
+
+	/** End a batch for the current thread, redefining all collected classes when the outermost batch ends. */
+	static void end() {
+		RedefinitionBatch batch = current.get();
+		if (batch == null)
+			return;
+		if (--batch.depth == 0) {
+			current.remove(); // redefinitions triggered during flush are not batched
+			batch.flush();
+		}
+	}
+
+	/**
+	 * If a batch is active for the current thread, record the given class for redefinition at the end of the batch.
+	 * @param clazz the class to be redefined with its then current bytecode
+	 * @param definedClass the loaded class, or null if it should be looked up via the class loader
+	 * @return true if the class has been recorded, false if it should be redefined immediately
+	 */
+	public static boolean add(AbstractBoundClass clazz, Class<?> definedClass) {
+		RedefinitionBatch batch = current.get();
+		if (batch == null)
+			return false;
+		if (definedClass != null || !batch.classes.containsKey(clazz))
+			batch.classes.put(clazz, definedClass);
+		return true;
+	}
+
+	private void flush() {
+		if (this.classes.isEmpty())
+			return;
+		if (this.classes.size() > 1) {
+			List<ClassDefinition> definitions = new ArrayList<ClassDefinition>(this.classes.size());
+			try {
+				for (Map.Entry<AbstractBoundClass, Class<?>> entry : this.classes.entrySet())
+					definitions.add(entry.getKey().getClassDefinition(entry.getValue()));
+				RedefineStrategyFactory.getRedefineStrategy().redefine(definitions.toArray(new ClassDefinition[definitions.size()]));
+				return;
+			} catch (Throwable t) {
+				// fall through to redefining each class separately
+			}
+		}
+		for (Map.Entry<AbstractBoundClass, Class<?>> entry : this.classes.entrySet())
+			entry.getKey().redefineSeparately(entry.getValue());
+	}
+}
@@ -0,0 +1,213 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.bytecode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of woven class files, shared by subsequent runs of the JVM (and by concurrently running JVMs).
+ * <p>
+ * The cache is enabled by setting system property {@code ot.weaving.cache} to the path of the cache file.
+ * Property {@code ot.weaving.cache.max} limits the size of the file in bytes (default: 256 MB),
+ * when the limit is reached, no further entries are added.
+ * </p><p>
+ * The file is append-only: after a header it contains a sequence of records
+ * <pre>  key (32 bytes) | length (int) | crc32 (int) | woven bytes</pre>
+ * Records are appended while holding an exclusive lock on the file.
+ * At start-up the file is mapped into memory and only the record headers are scanned,
+ * the checksum of a record is verified when it is used.
+ * </p><p>
+ * Keys are SHA-256 digests computed by the client starting from {@link #newKey()},
+ * which already includes the cache format and the versions of the OTDRE and ASM in use.
+ * Clients must feed all inputs that influence the woven bytes into the key.
+ * </p>
+ */
+public class WovenBytecodeCache {
+
+	/** Initialized from property {@code ot.weaving.cache}. */
+	private static final String CACHE_FILE = System.getProperty("ot.weaving.cache");
+	/** Initialized from property {@code ot.weaving.cache.max}. */
+	private static final long MAX_SIZE = Math.min(Long.getLong("ot.weaving.cache.max", 256L*1024*1024).longValue(), Integer.MAX_VALUE); // must be mappable
+
+	private static final int MAGIC = 0x4F54574B; // "OTWK"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int KEY_SIZE = 32;
+	private static final int RECORD_HEADER_SIZE = KEY_SIZE + 4 + 4;
+
+	private static WovenBytecodeCache instance;
+	private static boolean initialized;
+
+	/** Answer the cache or null if no cache is configured or the cache file cannot be used. */
+	public static synchronized WovenBytecodeCache getInstance() {
+		if (!initialized) {
+			initialized = true;
+			if (CACHE_FILE != null) {
+				try {
+					instance = new WovenBytecodeCache(new File(CACHE_FILE));
+				} catch (IOException | NoSuchAlgorithmException e) {
+					System.err.println("OTDRE: Cannot use weaving cache "+CACHE_FILE+", continuing without: "+e);
+				}
+			}
+		}
+		return instance;
+	}
+
+	private final FileChannel channel;
+	/** Snapshot of the file at start-up. */
+	private final MappedByteBuffer mapped;
+	/** Position in {@link #mapped} of the record header for each key found at start-up. */
+	private final Map<ByteBuffer, Integer> index = new HashMap<ByteBuffer, Integer>();
+	/** Digest of cache format, OTDRE and ASM versions, prefix of all keys. */
+	private final byte[] environment;
+	private boolean full;
+
+	@SuppressWarnings("resource") // channel is kept open until the JVM exits
+	private WovenBytecodeCache(File file) throws IOException, NoSuchAlgorithmException {
+		this.channel = new RandomAccessFile(file, "rw").getChannel();
+		try (FileLock lock = this.channel.lock()) {
+			if (!hasValidHeader()) {
+				this.channel.truncate(0);
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+				this.channel.write(header, 0);
+			}
+			this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(this.channel.size(), Integer.MAX_VALUE));
+		}
+		scanRecords();
+		this.full = this.mapped.capacity() >= MAX_SIZE;
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(ByteBuffer.allocate(4).putInt(FORMAT_VERSION).array());
+		updateWithCodeSource(digest, WovenBytecodeCache.class);
+		updateWithCodeSource(digest, org.objectweb.asm.ClassWriter.class);
+		this.environment = digest.digest();
+	}
+
+	private boolean hasValidHeader() throws IOException {
+		if (this.channel.size() < HEADER_SIZE)
+			return false;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		this.channel.read(header, 0);
+		header.flip();
+		return header.getInt() == MAGIC && header.getInt() == FORMAT_VERSION;
+	}
+
+	private void scanRecords() {
+		int limit = this.mapped.capacity();
+		int pos = HEADER_SIZE;
+		while (pos + RECORD_HEADER_SIZE <= limit) {
+			int length = this.mapped.getInt(pos + KEY_SIZE);
+			if (length < 0 || length > limit - pos - RECORD_HEADER_SIZE)
+				break; // incomplete record at the end
+			byte[] key = new byte[KEY_SIZE];
+			for (int i = 0; i < KEY_SIZE; i++)
+				key[i] = this.mapped.get(pos + i);
+			this.index.put(ByteBuffer.wrap(key), pos);
+			pos += RECORD_HEADER_SIZE + length;
+		}
+	}
+
+	/** Fingerprint the jar or directory from which the given class was loaded. */
+	private static void updateWithCodeSource(MessageDigest digest, Class<?> clazz) {
+		CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+		URL location = codeSource != null ? codeSource.getLocation() : null;
+		String fingerprint = clazz.getName();
+		if (location != null) {
+			fingerprint += '@'+location.toString();
+			if ("file".equals(location.getProtocol())) {
+				File file = new File(location.getPath());
+				fingerprint += '/'+String.valueOf(file.length())+'/'+String.valueOf(file.lastModified());
+			}
+		}
+		Package pack = clazz.getPackage();
+		if (pack != null)
+			fingerprint += '/'+pack.getImplementationVersion();
+		digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Create a digest for computing a key, already initialized with the versions of the OTDRE and ASM. */
+	public MessageDigest newKey() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(this.environment);
+			return digest;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // was available in the constructor
+		}
+	}
+
+	/**
+	 * Answer the woven bytes stored for the given key, or null.
+	 * @param key the result of {@link MessageDigest#digest()} on a digest from {@link #newKey()}
+	 */
+	public byte[] get(byte[] key) {
+		Integer pos = this.index.get(ByteBuffer.wrap(key));
+		if (pos == null)
+			return null;
+		int length = this.mapped.getInt(pos + KEY_SIZE);
+		int checksum = this.mapped.getInt(pos + KEY_SIZE + 4);
+		byte[] bytes = new byte[length];
+		ByteBuffer record = this.mapped.duplicate();
+		record.position(pos + RECORD_HEADER_SIZE);
+		record.get(bytes);
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+		if ((int) crc.getValue() != checksum)
+			return null; // incompletely written by another JVM?
+		return bytes;
+	}
+
+	/**
+	 * Append the given woven bytes to the cache file.
+	 * Failure to write is reported but does not affect weaving.
+	 * @param key the result of {@link MessageDigest#digest()} on a digest from {@link #newKey()}
+	 */
+	public synchronized void put(byte[] key, byte[] bytes) {
+		if (this.full || key.length != KEY_SIZE)
+			return;
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+		record.put(key).putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+		try (FileLock lock = this.channel.lock()) {
+			long size = this.channel.size();
+			if (size + record.remaining() > MAX_SIZE) {
+				this.full = true;
+				return;
+			}
+			while (record.hasRemaining())
+				size += this.channel.write(record, size);
+		} catch (IOException e) {
+			this.full = true; // don't try again
+			System.err.println("OTDRE: Cannot write to weaving cache "+CACHE_FILE+", no further classes will be stored: "+e);
+		}
+	}
+}
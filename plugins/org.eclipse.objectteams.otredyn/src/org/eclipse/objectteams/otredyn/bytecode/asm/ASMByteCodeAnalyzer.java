@@ -1,7 +1,7 @@
 /**********************************************************************
  * This file is part of "Object Teams Development Tooling"-Software
  * 
- * Copyright 2008, 2015 Oliver Frank and others.
+ * Copyright 2008, 2026 Oliver Frank and others.
  * 
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -18,8 +18,6 @@ package org.eclipse.objectteams.otredyn.bytecode.asm;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
@@ -34,13 +32,11 @@ import org.objectweb.asm.Opcodes;
 public class ASMByteCodeAnalyzer {
 	private static final int ACC_TEAM = 0x8000;
 
-	boolean useExternalForm = false; // true: use '.', false: use '/'
-	
-
-	public class ClassInformation {
-		private int modifiers;
-		private String superClassName;
-		private String[] superInterfaceNames;
+	/** Immutable header information of a class, using internal (slash-separated) names. */
+	public static class ClassInformation {
+		private final int modifiers;
+		private final String superClassName;
+		private final String[] superInterfaceNames;
 
 		ClassInformation(ClassReader classReader) {
 			this.modifiers = classReader.getAccess();
@@ -57,54 +53,38 @@ public class ASMByteCodeAnalyzer {
 		}
 
 		public String getSuperClassName() {
-			if (superClassName != null)
-				return useExternalForm ? superClassName.replace('/', '.') : superClassName;
-			return null;
+			return superClassName;
 		}
 		
 		public String[] getSuperInterfaceNames() {
-			if (superInterfaceNames != null && useExternalForm)
-				for (int i = 0; i < superInterfaceNames.length; i++) {
-					superInterfaceNames[i] = superInterfaceNames[i].replace('/', '.');
-				}
-			return superInterfaceNames;
+			return superInterfaceNames != null ? superInterfaceNames.clone() : null;
 		}
-	}
 
-	private Map<String, ClassInformation> classInformationMap =
-			new ConcurrentHashMap<String, ClassInformation>(512, 0.75f, 4);
+		/** Answer whether the given interface (internal name) is among the direct super interfaces. */
+		public boolean hasSuperInterface(String interfaceName) {
+			if (superInterfaceNames != null)
+				for (String superInterfaceName : superInterfaceNames)
+					if (superInterfaceName.equals(interfaceName))
+						return true;
+			return false;
+		}
+	}
 
-	/** Should the external (dot-separated) form be used? */
-	public ASMByteCodeAnalyzer(boolean useExternalForm) {
-		this.useExternalForm = useExternalForm;
+	/** Answer information about the given class, shared via {@link SupertypeCache}. */
+	public ClassInformation getClassInformation(ClassLoader loader, String className) {
+		return SupertypeCache.getClassInformation(loader, className);
 	}
-	
-	public ClassInformation getClassInformation(InputStream classStream, String className) {
-		try {
-			return getClassInformation(null, classStream, className);
-		} catch (IOException e) {
-			return null;
-		}
+
+	/** Answer information about the given class, shared via {@link SupertypeCache}. */
+	public ClassInformation getClassInformation(ClassLoader loader, byte[] classBytes, String className) {
+		return SupertypeCache.getClassInformation(loader, className, classBytes);
 	}
-	
-	public ClassInformation getClassInformation(byte[] classBytes, String className) {
-		try {
-			return getClassInformation(classBytes, null, className);
-		} catch (IOException e) {
-			return null;
-		}
+
+	static ClassInformation readClassInformation(InputStream classStream) throws IOException {
+		return new ClassInformation(new ClassReader(classStream));
 	}
 
-	private ClassInformation getClassInformation(byte[] classBytes,
-			InputStream classStream, String className) throws IOException 
-	{
-		ClassInformation classInformation = classInformationMap.get(className);
-		if (classInformation != null) {
-			return classInformation;
-		}
-		ClassReader classReader = classBytes != null ? new ClassReader(classBytes) : new ClassReader(classStream);
-		classInformation = new ClassInformation(classReader);
-		classInformationMap.put(className, classInformation);
-		return classInformation;
+	static ClassInformation readClassInformation(byte[] classBytes) {
+		return new ClassInformation(new ClassReader(classBytes));
 	}
 }
@@ -120,6 +120,37 @@ public abstract class AbstractTransformableClassNode extends ClassNode {
 		return instructions;
 	}
 
+	/**
+	 * Move the instructions of one case of _OT$access or _OT$accessStatic into a private static bridge method,
+	 * and answer the instructions that invoke the bridge from the switch.
+	 * Keeping each case small keeps the access method small enough to be inlined by the JIT,
+	 * which can then eliminate the argument array and boxing created by the caller.
+	 * Only applicable at load time, because redefinition cannot add methods.
+	 * @param accessMethod the access method containing the switch
+	 * @param isStatic whether accessMethod is static (parameters: opKind, args) or not (parameters: self, opKind, args)
+	 * @param accessId the case label, used for naming the bridge
+	 * @param body the instructions of the case, using the local variable layout of the bridge
+	 */
+	protected InsnList addAccessBridge(Method accessMethod, boolean isStatic, int accessId, InsnList body) {
+		String desc = isStatic
+				? "(I[Ljava/lang/Object;)Ljava/lang/Object;"
+				: "(L"+this.name+";I[Ljava/lang/Object;)Ljava/lang/Object;";
+		MethodNode bridge = new MethodNode(ASM_API, Opcodes.ACC_PRIVATE|Opcodes.ACC_STATIC|Opcodes.ACC_SYNTHETIC,
+				accessMethod.getName()+'$'+accessId, desc, null, null);
+		bridge.instructions.add(body);
+		this.methods.add(bridge);
+
+		InsnList call = new InsnList();
+		int firstArgIndex = isStatic ? 0 : 1;
+		if (!isStatic)
+			call.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		call.add(new VarInsnNode(Opcodes.ILOAD, firstArgIndex + 1));
+		call.add(new VarInsnNode(Opcodes.ALOAD, firstArgIndex + 2));
+		call.add(new MethodInsnNode(Opcodes.INVOKESTATIC, this.name, bridge.name, desc, false));
+		call.add(new InsnNode(Opcodes.ARETURN));
+		return call;
+	}
+
 	/**
 	 * Adds a new Label to an existing switch statement
 	 * @param instructions the instructions, in which the switch statement is defined
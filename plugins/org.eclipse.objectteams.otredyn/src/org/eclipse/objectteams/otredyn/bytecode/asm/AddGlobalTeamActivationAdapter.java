@@ -23,7 +23,6 @@ import java.util.List;
 
 import org.eclipse.objectteams.otredyn.transformer.names.ClassNames;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -56,12 +55,17 @@ public class AddGlobalTeamActivationAdapter extends ClassVisitor {
 	 * @param multiAdapter
 	 * @param writer
 	 */
-	synchronized public static void checkAddVisitor(MultiClassAdapter multiAdapter, ClassWriter writer) {
+	synchronized public static void checkAddVisitor(MultiClassAdapter multiAdapter, ClassVisitor writer) {
 		if (done || TEAM_CONFIG_FILE == null)
 			return;
 		multiAdapter.addVisitor(new AddGlobalTeamActivationAdapter(writer));		
 	}
 
+	/** Answer whether a team config file is given, but no main method has yet been found to activate its teams. */
+	synchronized public static boolean isPending() {
+		return !done && TEAM_CONFIG_FILE != null;
+	}
+
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
 		synchronized (AddGlobalTeamActivationAdapter.class) {			
@@ -57,6 +57,11 @@ public class AddImplicitActivationAdapter extends ClassVisitor {
 	}
 
 
+	/** Answer the configured mode, as it influences the woven bytecode. */
+	static String getImplicitActivationMode() {
+		return implicitActivationMode.name();
+	}
+
 	private AsmBoundClass clazz;
 	
 	public AddImplicitActivationAdapter(ClassVisitor cv, AsmBoundClass clazz) {
@@ -48,6 +48,9 @@ public abstract class AsmBoundClass extends AbstractTeam {
 	 * just a temporary cache for the bytecode
 	 */
 	private byte[] bytecode;
+
+	/** Have the unmodified bytes been dropped from the provider? See {@link #releaseUnwovenBytecode()}. */
+	private volatile boolean originalBytecodeReleased;
 	
 	/**
 	 * ordered lists of qualified callin labels
@@ -76,18 +79,10 @@ public abstract class AsmBoundClass extends AbstractTeam {
 			return;
 		}
 		
-		bytecode = bytecodeProvider.getBytecode(getId());
+		bytecode = getBytecode();
 		if (bytecode == null) {
-			if (this.loader != null) {
-				try (InputStream stream = this.loader.getResourceAsStream(this.getInternalName()+".class")) {
-					if (stream != null) {
-						bytecode = readAllBytes(stream);
-						bytecodeProvider.setBytecode(getId(), bytecode);
-					}
-				} catch (IOException e) {
-					// silent (from automatic close()).
-				}
-			}
+			// not yet loaded, read the class file only for parsing, the transformer will provide the bytes when loading
+			bytecode = readOriginalBytecode();
 		}
 		if (bytecode == null) {
 			//Class is not loaded yet.
@@ -106,6 +101,20 @@ public abstract class AsmBoundClass extends AbstractTeam {
 		bytecode = null;
 	}
 	
+	/** Read the class file via the class loader, answer null if not found. */
+	private byte[] readOriginalBytecode() {
+		ClassLoader loader = getClassLoader();
+		if (loader != null) {
+			try (InputStream stream = loader.getResourceAsStream(this.getInternalName()+".class")) {
+				if (stream != null)
+					return readAllBytes(stream);
+			} catch (IOException e) {
+				// silent (from automatic close()).
+			}
+		}
+		return null;
+	}
+
     public byte[] readAllBytes(InputStream is) throws IOException {
         byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
         int capacity = buf.length;
@@ -154,7 +163,33 @@ public abstract class AsmBoundClass extends AbstractTeam {
 	 */
 	@Override
 	public byte[] getBytecode() {
-		return bytecodeProvider.getBytecode(getId());
+		byte[] bytes = bytecodeProvider.getBytecode(getId());
+		if (bytes == null && this.originalBytecodeReleased) {
+			synchronized (this) {
+				bytes = bytecodeProvider.getBytecode(getId());
+				if (bytes == null && this.originalBytecodeReleased) {
+					bytes = readOriginalBytecode();
+					if (bytes != null) {
+						bytecodeProvider.setBytecode(getId(), bytes); // will probably be woven now
+						this.originalBytecodeReleased = false;
+					}
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * If this class has been loaded without any transformation, drop its bytes from the {@link IBytecodeProvider},
+	 * they will be read again from the class loader when needed.
+	 */
+	@Override
+	public synchronized void releaseUnwovenBytecode() {
+		if (isFirstTransformation() && getClassLoader() != null) {
+			parseBytecode(); // while the bytes are at hand, in case they cannot be read again
+			this.originalBytecodeReleased = true;
+			bytecodeProvider.setBytecode(getId(), null);
+		}
 	}
 	
 	/**
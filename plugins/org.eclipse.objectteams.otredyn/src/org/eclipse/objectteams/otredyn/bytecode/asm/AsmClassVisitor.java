@@ -50,6 +50,8 @@ class AsmClassVisitor extends ClassVisitor {
 	static final int FINAL = 4;
 
 	private AsmBoundClass clazz;
+	/** Should all methods be prepared for callin bindings? */
+	private boolean eagerlyWoven;
 	
 	public AsmClassVisitor(AsmBoundClass clazz) {
 		super(ASM_API);
@@ -64,6 +66,7 @@ class AsmClassVisitor extends ClassVisitor {
 		clazz.setSuperClassName(superName);
 		clazz.setSuperInterfaces(interfaces);
 		clazz.setModifiers(access);
+		this.eagerlyWoven = (access & Opcodes.ACC_INTERFACE) == 0 && WeavableRegionReader.isEagerlyWoven(name);
 	}
 	
 	/**
@@ -72,6 +75,10 @@ class AsmClassVisitor extends ClassVisitor {
 	@Override
 	public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
 		clazz.addMethod(name, desc, (access & Opcodes.ACC_STATIC) != 0, (access & (Opcodes.ACC_PUBLIC|Opcodes.ACC_PROTECTED|Opcodes.ACC_PRIVATE)));
+		if (this.eagerlyWoven
+				&& (access & (Opcodes.ACC_ABSTRACT|Opcodes.ACC_NATIVE|Opcodes.ACC_SYNTHETIC|Opcodes.ACC_BRIDGE)) == 0
+				&& name.charAt(0) != '<' && !name.startsWith("_OT$"))
+			clazz.addEagerJoinpoint(name, desc, (access & Opcodes.ACC_STATIC) != 0, (access & Opcodes.ACC_PRIVATE) != 0);
 		if (clazz.isTeam() || clazz.isRole())
 			// check for method annotation ImplicitTeamActivation:
 			return new MethodVisitor(this.api) {
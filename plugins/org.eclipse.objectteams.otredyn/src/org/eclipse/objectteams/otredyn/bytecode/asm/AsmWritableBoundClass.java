@@ -18,7 +18,10 @@ package org.eclipse.objectteams.otredyn.bytecode.asm;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.lang.instrument.ClassDefinition;
 import java.lang.instrument.IllegalClassFormatException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,11 +31,14 @@ import org.eclipse.objectteams.otredyn.bytecode.Field;
 import org.eclipse.objectteams.otredyn.bytecode.IBytecodeProvider;
 import org.eclipse.objectteams.otredyn.bytecode.Method;
 import org.eclipse.objectteams.otredyn.bytecode.RedefineStrategyFactory;
+import org.eclipse.objectteams.otredyn.bytecode.RedefinitionBatch;
+import org.eclipse.objectteams.otredyn.bytecode.WovenBytecodeCache;
 import org.eclipse.objectteams.otredyn.bytecode.asm.verify.OTCheckClassAdapter;
 import org.eclipse.objectteams.otredyn.runtime.TeamManager;
 import org.eclipse.objectteams.otredyn.transformer.names.ClassNames;
 import org.eclipse.objectteams.otredyn.transformer.names.ConstantMembers;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -54,6 +60,8 @@ class AsmWritableBoundClass extends AsmBoundClass {
     }
     
 	private ClassWriter writer;
+	/** Target of all core API adapters, forwarding either to {@link #writer} or into the first tree transformation. */
+	private Sink sink;
 	private MultiClassAdapter multiAdapter;
 	private ClassReader reader;
 	private boolean isTransformed;
@@ -63,8 +71,20 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	private boolean isFirstTransformation = true;
 
 	private boolean isTransformationActive;
+	/** If set, the result of the current load time transformation should be stored under this key in the {@link WovenBytecodeCache}. */
+	private byte[] loadTimeCacheKey;
 	private Boolean superIsWeavable;
 
+	/** A class visitor whose delegate is determined only when all transformations are known. */
+	private static class Sink extends ClassVisitor {
+		Sink() {
+			super(ASM_API);
+		}
+		void setDelegate(ClassVisitor delegate) {
+			this.cv = delegate;
+		}
+	}
+
 	protected AsmWritableBoundClass(String name, String id, IBytecodeProvider bytecodeProvider, ClassLoader loader) {
 		super(name, id, bytecodeProvider, loader);
 	}
@@ -79,7 +99,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	private void addField(Field field, int access) {
 		assert (isTransformationActive) : "No transformation active";
 		String desc = field.getSignature();
-		multiAdapter.addVisitor(new AddFieldAdapter(writer, field.getName(), access, desc));
+		multiAdapter.addVisitor(new AddFieldAdapter(sink, field.getName(), access, desc));
 	}
 
 	/**
@@ -95,7 +115,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		assert (isTransformationActive) : "No transformation active";
 		String desc = method.getSignature();
 		Type[] args = Type.getArgumentTypes(desc);
-		multiAdapter.addVisitor(new AddEmptyMethodAdapter(writer, method.getName(),
+		multiAdapter.addVisitor(new AddEmptyMethodAdapter(sink, method.getName(),
 				access, desc, exceptions, signature, args.length + 1, superToCall));
 	}
 
@@ -106,7 +126,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 */
 	private void addInterface(String name) {
 		assert (isTransformationActive) : "No transformation active";
-		multiAdapter.setToplevelVisitor(new AddInterfaceAdapter(writer, name));
+		multiAdapter.setToplevelVisitor(new AddInterfaceAdapter(sink, name));
 	}
 
 	/**
@@ -120,7 +140,8 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		reader = new ClassReader(allocateAndGetBytecode());
 
 		writer = getClassWriter();
-		multiAdapter = new MultiClassAdapter(writer);
+		sink = new Sink();
+		multiAdapter = new MultiClassAdapter(sink);
 		nodes = new ArrayList<AbstractTransformableClassNode>();
 		isTransformationActive = true;
 	}
@@ -130,7 +151,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 // DEBUG: when frame computation throws an exception, enable dumping of class file without frames computed:
 //		if (getName().contains("JUnitLaunchConfigurationDelegate"))
 //			flags = 0;
-		return new LoaderAwareClassWriter(reader, flags, this.loader);
+		return new LoaderAwareClassWriter(reader, flags, getClassLoader());
 	}
 	
 	/**
@@ -152,60 +173,61 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		if (multiAdapter == null || nodes == null)
 			return;
 		if (multiAdapter.hasVisitors() || !nodes.isEmpty()) {
-			// //TODO (ofra): Do everything in one transformation
-			// Do all transformation with the Core API of ASM
-			try {
-				reader.accept(multiAdapter, ClassReader.SKIP_FRAMES);
-			} catch (RuntimeException e) {
-				throw new IllegalClassFormatException("Cannot transform class "+this+":"+e.getMessage());
-			}
-			setBytecode(writer.toByteArray());
-			//Do all transformations with the Tree API of ASM
-			for (AbstractTransformableClassNode node : nodes) {
-				reader = new ClassReader(allocateAndGetBytecode());
-				reader.accept(node, ClassReader.SKIP_FRAMES);
-				if (node.transform()) {
+			if (nodes.isEmpty()) {
+				// Do all transformations with the Core API of ASM, writing directly
+				// (lets the writer copy unchanged methods as they are):
+				sink.setDelegate(writer);
+				try {
+					reader.accept(multiAdapter, ClassReader.SKIP_FRAMES);
+				} catch (RuntimeException e) {
+					throw new IllegalClassFormatException("Cannot transform class "+this+":"+e.getMessage());
+				}
+				setBytecode(writer.toByteArray());
+			} else {
+				// Read the class once, through the Core API adapters, into the first tree,
+				// pass each transformed tree on to the next tree transformation, and write once:
+				AbstractTransformableClassNode tree = null;
+				boolean transformed = multiAdapter.hasVisitors();
+				for (AbstractTransformableClassNode node : nodes) {
+					if (tree == null) {
+						sink.setDelegate(node);
+						try {
+							reader.accept(multiAdapter, ClassReader.SKIP_FRAMES);
+						} catch (RuntimeException e) {
+							throw new IllegalClassFormatException("Cannot transform class "+this+":"+e.getMessage());
+						}
+					} else {
+						tree.accept(node); // copy in memory, no need to write, re-read and compute frames
+					}
+					transformed |= node.transform();
+					tree = node;
+				}
+				if (transformed) {
 					writer = getClassWriter();
-					node.accept(writer);
+					tree.accept(writer);
 					byte[] bytes = writer.toByteArray();
 					setBytecode(bytes);
 					if (verifying) {
-						OTCheckClassAdapter.verify(node, bytes, this.loader);
+						OTCheckClassAdapter.verify(tree, bytes, getClassLoader());
 					}
 				}
 			}
 			
 			dump();
+			if (loadTimeCacheKey != null) {
+				WovenBytecodeCache.getInstance().put(loadTimeCacheKey, allocateAndGetBytecode());
+				loadTimeCacheKey = null;
+			}
 			reader = null;
 			writer = null;
+			sink = null;
 			multiAdapter = null;
 			nodes = null;
 			//Check, if this is the first transformation for this class
 			if (!this.isFirstTransformation) {
-				// It is not the first transformation, so redefine the class
-				try {
-					redefine(definedClass);
-				} catch (ClassNotFoundException cnfe) {
-					throw new RuntimeException("OTDRE: Failed to redefine class: "+this.getName(), cnfe);
-				} catch (Throwable t) {
-	//				t.printStackTrace(System.out);
-					// if redefinition failed (ClassCircularity?) install a runnable for deferred redefinition:
-					final Runnable previousTask = TeamManager.pendingTasks.get();
-					TeamManager.pendingTasks.set(new Runnable() {
-						public void run() {
-							if (previousTask != null)
-								previousTask.run();
-							try {
-								redefine(definedClass);
-							} catch (ClassNotFoundException e) {
-								e.printStackTrace(); // should never get here, since we expect CNFE already on the first attempt
-							}
-						}
-						@Override
-						public String toString() {
-							return "Retry "+AsmWritableBoundClass.this.toString();
-						}
-					});
+				// It is not the first transformation, so redefine the class,
+				// now or at the end of the current transaction
+				if (!RedefinitionBatch.add(this, definedClass) && !redefineSeparately(definedClass)) {
 					// not done, only partial cleanup:
 					isTransformationActive = false;
 					isFirstTransformation = false;
@@ -215,6 +237,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		} else {
 			reader = null;
 			writer = null;
+			sink = null;
 			multiAdapter = null;
 			nodes = null;
 		}
@@ -241,10 +264,10 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 */
 	@Override
 	protected void createDispatchCodeInOrgMethod(Method boundMethod,
-			int joinPointId, int boundMethodId) {
+			int joinPointId, int boundMethodId, String joinpointDescr) {
 		assert (isTransformationActive) : "No transformation active";
 		nodes.add(new CreateDispatchCodeInOrgMethodAdapter(boundMethod,
-				joinPointId, boundMethodId));
+				joinPointId, boundMethodId, joinpointDescr));
 	}
 
 	/**
@@ -252,11 +275,11 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 * @see CreateDispatchCodeInCallAllBindingsAdapter
 	 */
 	@Override
-	protected void createDispatchCodeInCallAllBindings(int joinpointId,
-			int boundMethodId) {
+	protected void createDispatchCodeInCallAllBindings(Method boundMethod,
+			int joinpointId, int boundMethodId, String joinpointDescr) {
 		assert (isTransformationActive) : "No transformation active";
-		nodes.add(new CreateDispatchCodeInCallAllBindingsAdapter(joinpointId,
-				boundMethodId));
+		nodes.add(new CreateDispatchCodeInCallAllBindingsAdapter(boundMethod,
+				joinpointId, boundMethodId, joinpointDescr));
 	}
 
 	/**
@@ -293,7 +316,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		if (needToAddMethod) {
 			String desc = boundMethod.getSignature();
 			Type[] args = Type.getArgumentTypes(desc);
-			multiAdapter.addVisitor(new AddEmptyMethodAdapter(writer, boundMethod.getName(),
+			multiAdapter.addVisitor(new AddEmptyMethodAdapter(sink, boundMethod.getName(),
 					boundMethod.getAccessFlags(), desc, null, boundMethod.getSignature(), args.length+1/*maxLocals*/, null));
 			nodes.add(new CreateSpecificSuperCallInCallOrigAdapter(this, getInternalSuperClassName(), boundMethod, boundMethodId));
 		}
@@ -312,7 +335,7 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 */
 	@Override
 	protected void weaveMethodAccess(Method method, int accessId) {
-		nodes.add(new CreateMethodAccessAdapter(method, accessId));
+		nodes.add(new CreateMethodAccessAdapter(method, accessId, useAccessBridges()));
 
 	}
 
@@ -321,8 +344,13 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 */
 	@Override
 	protected void weaveFieldAccess(Field field, int accessId) {
-		nodes.add(new CreateFieldAccessAdapter(field, accessId));
+		nodes.add(new CreateFieldAccessAdapter(field, accessId, useAccessBridges()));
+
+	}
 
+	/** Bridge methods for decapsulation can only be added at load time, and not to interfaces. */
+	private boolean useAccessBridges() {
+		return this.isFirstTransformation && !isInterface();
 	}
 
 	/**
@@ -362,6 +390,47 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		}
 	}
 
+	@Override
+	protected boolean redefineSeparately(final Class<?> definedClass) {
+		try {
+			redefine(definedClass);
+			return true;
+		} catch (ClassNotFoundException cnfe) {
+			throw new RuntimeException("OTDRE: Failed to redefine class: "+this.getName(), cnfe);
+		} catch (Throwable t) {
+//			t.printStackTrace(System.out);
+			// if redefinition failed (ClassCircularity?) install a runnable for deferred redefinition:
+			final Runnable previousTask = TeamManager.pendingTasks.get();
+			TeamManager.pendingTasks.set(new Runnable() {
+				public void run() {
+					if (previousTask != null)
+						previousTask.run();
+					try {
+						redefine(definedClass);
+					} catch (ClassNotFoundException e) {
+						e.printStackTrace(); // should never get here, since we expect CNFE already on the first attempt
+					}
+				}
+				@Override
+				public String toString() {
+					return "Retry "+AsmWritableBoundClass.this.toString();
+				}
+			});
+			return false;
+		}
+	}
+
+	@Override
+	protected ClassDefinition getClassDefinition(Class<?> definedClass) throws ClassNotFoundException {
+		return newClassDefinition(definedClass, getBytecode()); // transformation has ended, bytecode is in the provider
+	}
+
+	private ClassDefinition newClassDefinition(Class<?> definedClass, byte[] bytecode) throws ClassNotFoundException {
+		Class<?> clazz = definedClass != null ? definedClass : getClassLoader().loadClass(this.getName()); // boot classes may have null classloader, can't be redefined anyway?
+		dump(bytecode, "redef");
+		return new ClassDefinition(clazz, bytecode);
+	}
+
 	/**
 	 * Redefines the class
 	 * @param definedClass previously defined class if available
@@ -369,10 +438,8 @@ class AsmWritableBoundClass extends AsmBoundClass {
 	 */
 	private void redefine(Class<?> definedClass) throws ClassNotFoundException {
 		try {
-			Class<?> clazz = definedClass != null ? definedClass : this.loader.loadClass(this.getName()); // boot classes may have null classloader, can't be redefined anyway?
-			byte[] bytecode = allocateAndGetBytecode();
-			dump(bytecode, "redef");
-			RedefineStrategyFactory.getRedefineStrategy().redefine(clazz, bytecode);
+			ClassDefinition definition = newClassDefinition(definedClass, allocateAndGetBytecode());
+			RedefineStrategyFactory.getRedefineStrategy().redefine(definition.getDefinitionClass(), definition.getDefinitionClassFile());
 		} catch (ClassNotFoundException cnfe) {
 			throw cnfe;
 		} catch (Throwable t) {
@@ -409,10 +476,50 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		addEmptyMethod(ConstantMembers.addOrRemoveRole, methodModifiers, null, null, getInternalWeavableSuperClassName(true));
 		
 		if (!isInterface())
-			multiAdapter.addVisitor(new AddAfterClassLoadingHook(this.writer, this));
+			multiAdapter.addVisitor(new AddAfterClassLoadingHook(this.sink, this));
 
 		if (AddThreadNotificationAdapter.shouldNotify(this))
-			multiAdapter.addVisitor(new AddThreadNotificationAdapter(this.writer, this));
+			multiAdapter.addVisitor(new AddThreadNotificationAdapter(this.sink, this));
+	}
+
+	/**
+	 * The load time transformation depends only on the original bytes, on the weavability of the super class,
+	 * and on the configuration of implicit team activation and of a lifting participant.
+	 * Roles are excluded, because their transformation also depends on the enclosing team.
+	 * The global team activation is woven into one main method per JVM, thus we don't use the cache
+	 * while the main method is still to be found.
+	 */
+	@Override
+	protected boolean useCachedLoadTimeTransformation() {
+		WovenBytecodeCache cache = WovenBytecodeCache.getInstance();
+		if (cache == null || AddGlobalTeamActivationAdapter.isPending())
+			return false;
+		byte[] original = getBytecode();
+		if (original == null || isRole())
+			return false;
+		MessageDigest key = cache.newKey();
+		key.update(original);
+		// same order of queries as in prepareAsPossibleBaseClass(), because isSuperWeavable() remembers the first answer:
+		if (!isInterface())
+			updateKey(key, String.valueOf(isSuperWeavable(true)));
+		updateKey(key, getInternalWeavableSuperClassName(false));
+		updateKey(key, getInternalWeavableSuperClassName(true));
+		updateKey(key, AddImplicitActivationAdapter.getImplicitActivationMode());
+		updateKey(key, String.valueOf(isTeam() && LiftingParticipantAdapter.isLiftingParticipantConfigured(getClassLoader())));
+		byte[] digest = key.digest();
+		byte[] woven = cache.get(digest);
+		if (woven == null) {
+			this.loadTimeCacheKey = digest; // store after transforming
+			return false;
+		}
+		setBytecode(woven);
+		isFirstTransformation = false;
+		return true;
+	}
+
+	private static void updateKey(MessageDigest key, String value) {
+		key.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+		key.update((byte) 0);
 	}
 
 	/** Get the suitable variant of _OT$callOrigStatic, respecting synth args for static role methods. */
@@ -432,14 +539,14 @@ class AsmWritableBoundClass extends AsmBoundClass {
 		if (!isFirstTransformation || isInterface())
 			return;
 		if (isTeam() || isRole())
-			multiAdapter.addVisitor(new AddImplicitActivationAdapter(this.writer, this));
-		AddGlobalTeamActivationAdapter.checkAddVisitor(this.multiAdapter, this.writer);
+			multiAdapter.addVisitor(new AddImplicitActivationAdapter(this.sink, this));
+		AddGlobalTeamActivationAdapter.checkAddVisitor(this.multiAdapter, this.sink);
 	}
 
 	@Override
 	protected void prepareLiftingParticipant() {
-		if (isTeam() && LiftingParticipantAdapter.isLiftingParticipantConfigured(this.loader)) {
-			multiAdapter.addVisitor(new LiftingParticipantAdapter(this.writer));
+		if (isTeam() && LiftingParticipantAdapter.isLiftingParticipantConfigured(getClassLoader())) {
+			multiAdapter.addVisitor(new LiftingParticipantAdapter(this.sink));
 		}
 	}
 
@@ -16,11 +16,19 @@
  **********************************************************************/
 package org.eclipse.objectteams.otredyn.bytecode.asm;
 
+import org.eclipse.objectteams.otredyn.bytecode.Method;
+import org.eclipse.objectteams.otredyn.runtime.dynamic.CallinBootstrap;
+import org.eclipse.objectteams.otredyn.transformer.names.ClassNames;
 import org.eclipse.objectteams.otredyn.transformer.names.ConstantMembers;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
 
 /**
@@ -42,24 +50,55 @@ import org.objectweb.asm.tree.VarInsnNode;
  *     return team._OT$callAllBindings(this, teams, 0, callinIds, boundMethodId, args);
  * } <br/>
  * </code>
+ * With <code>-Dot.dispatch.handles</code> the case instead unpacks the arguments and
+ * dispatches through the same invokedynamic call site as the original method
+ * (see {@link CreateCallAllBindingsCallInOrgMethod}), which is linked to the role
+ * methods of the active callin bindings:
+ * <code>
+ * case (boundMethodId): <br/>
+ *     if (TeamManager.getTeamsAndCallinIds(joinpointId) == null) { <br/>
+ *         break; <br/>
+ *     } <br/>
+ *     return invokedynamic callAllBindings(this, (T1) args[0], ... , (Tn) args[n-1]); <br/>
+ * } <br/>
+ * </code>
  * @author Oliver Frank
  */
 public class CreateDispatchCodeInCallAllBindingsAdapter extends
 		AbstractCreateDispatchCodeAdapter {
 
+	/** Dispatch through the callin linker instead of <code>ITeam._OT$callAllBindings</code>. */
+	private static final boolean USE_DISPATCH_HANDLES = System.getProperty("ot.dispatch.handles") != null;
+
+	private static final Handle bootstrapHandle = new Handle(Opcodes.H_INVOKESTATIC,
+			"org/eclipse/objectteams/otredyn/runtime/dynamic/CallinBootstrap", "callAllBindings",
+			CallinBootstrap.BOOTSTRAP_METHOD_TYPE.toMethodDescriptorString(), false);
+
+	private Method boundMethod;
 	private int joinpointId;
 	private int boundMethodId;
+	private String joinpointDescr;
 	
-	public CreateDispatchCodeInCallAllBindingsAdapter(int joinpointId,
-			int boundMethodId) {
+	public CreateDispatchCodeInCallAllBindingsAdapter(Method boundMethod, int joinpointId,
+			int boundMethodId, String joinpointDescr) {
 		super(false, 3); // 'this' plus two args (int, Object[])
+		this.boundMethod = boundMethod;
 		this.joinpointId = joinpointId;
 		this.boundMethodId = boundMethodId;
+		this.joinpointDescr = joinpointDescr;
 	}
 
 	@Override
 	public boolean transform() {
 		MethodNode callAllBindings = getMethod(ConstantMembers.callAllBindingsClient);
+		if (USE_DISPATCH_HANDLES) {
+			InsnList instructions = getLinkedDispatchCode(callAllBindings);
+			addNewLabelToSwitch(callAllBindings.instructions, instructions, boundMethodId);
+			// this, the arguments unpacked so far, plus array and index:
+			callAllBindings.maxStack = Math.max(getMaxStack(), (Type.getArgumentsAndReturnSizes(boundMethod.getSignature()) >> 2) + 2);
+			callAllBindings.maxLocals = Math.max(callAllBindings.maxLocals, 3);
+			return true;
+		}
 		InsnList instructions = getDispatchCode(callAllBindings, joinpointId, -1); // dynamically use iload_0 instead of constant
 		addNewLabelToSwitch(callAllBindings.instructions, instructions, boundMethodId);
 		addLocals(callAllBindings);
@@ -68,6 +107,55 @@ public class CreateDispatchCodeInCallAllBindingsAdapter extends
 		return true;
 	}
 
+	private InsnList getLinkedDispatchCode(MethodNode callAllBindings) {
+		InsnList instructions = new InsnList();
+
+		// skip the rest if no team is registered for the joinpoint:
+		instructions.add(createLoadIntConstant(joinpointId));
+		instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC,
+				ClassNames.TEAM_MANAGER_SLASH, ConstantMembers.getTeamsAndCallinIds.getName(),
+				ConstantMembers.getTeamsAndCallinIds.getSignature(),
+				false));
+		instructions.add(createInstructionsToCheckTeams(callAllBindings));
+		instructions.add(new InsnNode(Opcodes.POP));
+
+		// load 'this' and the unpacked arguments:
+		boolean isStatic = boundMethod.isStatic();
+		if (!isStatic)
+			instructions.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		Type[] args = Type.getArgumentTypes(boundMethod.getSignature());
+		for (int i = 0; i < args.length; i++) {
+			instructions.add(new VarInsnNode(Opcodes.ALOAD, 2));
+			instructions.add(createLoadIntConstant(i));
+			instructions.add(new InsnNode(Opcodes.AALOAD));
+			String boxingType = AsmTypeHelper.getBoxingType(args[i]);
+			if (boxingType != null) {
+				instructions.add(new TypeInsnNode(Opcodes.CHECKCAST, boxingType));
+				instructions.add(AsmTypeHelper.getUnboxingInstructionForType(args[i], boxingType));
+			} else {
+				instructions.add(new TypeInsnNode(Opcodes.CHECKCAST, args[i].getInternalName()));
+			}
+		}
+
+		Type returnType = Type.getReturnType(boundMethod.getSignature());
+		Type[] desc = args;
+		if (!isStatic) {
+			desc = new Type[args.length + 1];
+			desc[0] = Type.getObjectType(name);
+			System.arraycopy(args, 0, desc, 1, args.length);
+		}
+		boolean isCtor = boundMethod.getName().equals("<init>");
+		instructions.add(new InvokeDynamicInsnNode(boundMethod.getName().replaceAll("[<>]", ""),
+				Type.getMethodDescriptor(returnType, desc), bootstrapHandle, joinpointDescr,
+				isCtor ? 0x8000_0000 | boundMethodId : boundMethodId)); // signal the ctor as in CreateCallAllBindingsCallInOrgMethod
+
+		// box the result:
+		if (returnType.getSort() != Type.OBJECT && returnType.getSort() != Type.ARRAY)
+			instructions.add(AsmTypeHelper.getBoxingInstructionForType(returnType));
+		instructions.add(new InsnNode(Opcodes.ARETURN));
+		return instructions;
+	}
+
 	@Override
 	protected InsnList getBoxedArguments(Type[] args) {
 		InsnList instructions = new InsnList();
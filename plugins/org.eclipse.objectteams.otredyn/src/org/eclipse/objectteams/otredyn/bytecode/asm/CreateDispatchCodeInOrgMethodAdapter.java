@@ -17,54 +17,53 @@
 package org.eclipse.objectteams.otredyn.bytecode.asm;
 
 import org.eclipse.objectteams.otredyn.bytecode.Method;
+import org.eclipse.objectteams.otredyn.runtime.dynamic.CallinBootstrap;
+import org.eclipse.objectteams.otredyn.transformer.names.ClassNames;
 import org.eclipse.objectteams.otredyn.transformer.names.ConstantMembers;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
 import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
 
 /**
- * Create the code for the dispatch from a base class to the teams 
+ * Create the code for the dispatch from a static base method to the teams 
  * in the original method. <br/> <br/>
+ * The code is inserted in front of the original code, which is retained
+ * for the case that no team is active (this path boxes no arguments).
+ * If a team is active, the callins are invoked through the same invokedynamic
+ * call site as for instance methods, which passes the arguments and the result unboxed.
  * The code was generated as follows: <br/>
  * <code>
- *     Teams[] teams = TeamManager.getTeams(joinpointId) <br/>
- *     if (teams == null) { <br/>
- *         Object args[] = {arg1, ..., argn}; <br/>
- *         return callOrig(boundMethodId, args); <br/>
+ *     if (TeamManager.getTeamsAndCallinIds(joinpointId) == null) { <br/>
+ *         goto originalCode; <br/>
  *     } <br/>
- *     <br/>
- *     Team t = teams[0]; <br/>
- *     int[] callinIds = TeamManager.getCallinIds(joinpointId); <br/>
- *     Object[] args = {arg1, ... , argn};
- *     return team._OT$callAllBindings(this, teams, 0, callinIds, boundMethodId, args);
- * } <br/>
+ *     return invokedynamic callAllBindings(arg1, ... , argn); <br/>
  * </code>
  * @author Oliver Frank
  */
-public class CreateDispatchCodeInOrgMethodAdapter extends
-		AbstractCreateDispatchCodeAdapter {
+public class CreateDispatchCodeInOrgMethodAdapter extends AbstractTransformableClassNode {
+
+	private static final Handle bootstrapHandle = new Handle(Opcodes.H_INVOKESTATIC,
+			"org/eclipse/objectteams/otredyn/runtime/dynamic/CallinBootstrap", "callAllBindings",
+			CallinBootstrap.BOOTSTRAP_METHOD_TYPE.toMethodDescriptorString(), false);
+
 	private Method method;
 	private int joinPointId;
 	private int boundMethodId;
+	private String joinpointDescr;
 	
-	public CreateDispatchCodeInOrgMethodAdapter(Method method, int joinPointId, int boundMethodId) {
-		super(true, computeLocals(method.getSignature()));
+	public CreateDispatchCodeInOrgMethodAdapter(Method method, int joinPointId, int boundMethodId, String joinpointDescr) {
 		this.method = method;
 		this.joinPointId = joinPointId;
 		this.boundMethodId = boundMethodId;
-	}
-
-	static int computeLocals(String signature) {
-		Type[] params = Type.getArgumentTypes(signature);
-		int locals = 0;
-		for (Type param : params)
-			locals += param.getSize();
-		return locals;
+		this.joinpointDescr = joinpointDescr;
 	}
 
 	@Override
@@ -72,40 +71,36 @@ public class CreateDispatchCodeInOrgMethodAdapter extends
 		MethodNode orgMethod = getMethod(method);
 		if ((orgMethod.access & Opcodes.ACC_ABSTRACT) != 0) return false;
 		
-		orgMethod.instructions.clear();
-		orgMethod.instructions.add(getDispatchCode(orgMethod, joinPointId, boundMethodId));
-		addLocals(orgMethod);
-		orgMethod.maxStack = getMaxStack();
-		orgMethod.maxLocals = getMaxLocals();
+		LabelNode originalCode = new LabelNode();
+		orgMethod.instructions.insert(originalCode);
+		orgMethod.instructions.insert(getDispatchCode(orgMethod, originalCode));
+		int argSlots = 0;
+		for (Type arg : Type.getArgumentTypes(orgMethod.desc))
+			argSlots += arg.getSize();
+		orgMethod.maxStack = Math.max(orgMethod.maxStack, Math.max(argSlots, 2));
 		return true;
 	}
 
-	@Override
-	protected InsnList getBoxedArguments(Type[] args) {
-		return getBoxingInstructions(args, true);
-	}
-
-	@Override
-	protected InsnList createInstructionsToCheckTeams(MethodNode method) {
+	private InsnList getDispatchCode(MethodNode orgMethod, LabelNode originalCode) {
 		InsnList instructions = new InsnList();
-		instructions.add(new InsnNode(Opcodes.DUP));
-		LabelNode label = new LabelNode();
-		//if (teams == null) {
-		instructions.add(new JumpInsnNode(Opcodes.IFNONNULL, label));
-		instructions.add(new InsnNode(Opcodes.POP));
-		//put the boundMethodId on the stack
-		instructions.add(createLoadIntConstant(boundMethodId));
-		Type[] args = Type.getArgumentTypes(method.desc);
-		// box the arguments
-		instructions.add(getBoxingInstructions(args, (method.access & Opcodes.ACC_STATIC) != 0));
-		//callOrigStatic(boundMethodId, args);
-		instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC, name, ConstantMembers.callOrigStatic.getName(), ConstantMembers.callOrigStatic.getSignature(), false));
-		Type returnType = Type.getReturnType(method.desc);
-		instructions
-				.add(getUnboxingInstructionsForReturnValue(returnType));
-		instructions.add(label);
 
+		// if (TeamManager.getTeamsAndCallinIds(joinpointId) == null) goto originalCode;
+		instructions.add(createLoadIntConstant(joinPointId));
+		instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC,
+				ClassNames.TEAM_MANAGER_SLASH, ConstantMembers.getTeamsAndCallinIds.getName(),
+				ConstantMembers.getTeamsAndCallinIds.getSignature(),
+				false));
+		instructions.add(new JumpInsnNode(Opcodes.IFNULL, originalCode));
+
+		// return callAllBindings(args...), linked to the active callins:
+		Type[] args = Type.getArgumentTypes(orgMethod.desc);
+		for (int i = 0, slot = 0; i < args.length; i++) {
+			instructions.add(new VarInsnNode(args[i].getOpcode(Opcodes.ILOAD), slot));
+			slot += args[i].getSize();
+		}
+		instructions.add(new InvokeDynamicInsnNode(orgMethod.name, orgMethod.desc,
+				bootstrapHandle, joinpointDescr, boundMethodId));
+		instructions.add(new InsnNode(Type.getReturnType(orgMethod.desc).getOpcode(Opcodes.IRETURN)));
 		return instructions;
 	}
-	
 }
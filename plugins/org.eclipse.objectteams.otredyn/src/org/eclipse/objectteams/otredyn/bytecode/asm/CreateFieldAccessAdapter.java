@@ -51,8 +51,11 @@ public class CreateFieldAccessAdapter extends AbstractTransformableClassNode {
 	private int accessId;
 	private Method access;
 	private int firstArgIndex;
+	/** Generate the case into a bridge method, see {@link AbstractTransformableClassNode#addAccessBridge}. */
+	private boolean useBridge;
 
-	public CreateFieldAccessAdapter(Field field, int accessId) {
+	public CreateFieldAccessAdapter(Field field, int accessId, boolean useBridge) {
+		this.useBridge = useBridge;
 		this.field = field;
 		this.accessId = accessId;
 		if (field.isStatic()) {
@@ -62,6 +65,8 @@ public class CreateFieldAccessAdapter extends AbstractTransformableClassNode {
 			access = ConstantMembers.access;
 			firstArgIndex = 1;
 		}
+		if (useBridge)
+			firstArgIndex--; // the bridge has no accessId parameter
 	}
 
 	@Override
@@ -123,6 +128,9 @@ public class CreateFieldAccessAdapter extends AbstractTransformableClassNode {
 		instructions.add(new InsnNode(Opcodes.ACONST_NULL));
 		instructions.add(new InsnNode(Opcodes.ARETURN));
 		
+		if (useBridge)
+			instructions = addAccessBridge(access, field.isStatic(), accessId, instructions);
+
 		//add the instructions to a new label in the existing switch
 		MethodNode method = getMethod(access);
 		addNewLabelToSwitch(method.instructions, instructions, accessId);
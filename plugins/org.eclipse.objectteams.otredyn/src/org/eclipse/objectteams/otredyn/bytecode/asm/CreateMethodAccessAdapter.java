@@ -42,9 +42,12 @@ public class CreateMethodAccessAdapter extends AbstractTransformableClassNode {
 	private int accessId;
 	private Method access;
 	private int firstArgIndex;
+	/** Generate the case into a bridge method, see {@link AbstractTransformableClassNode#addAccessBridge}. */
+	private boolean useBridge;
 	private boolean isConstructor;
 
-	public CreateMethodAccessAdapter(Method method, int accessId) {
+	public CreateMethodAccessAdapter(Method method, int accessId, boolean useBridge) {
+		this.useBridge = useBridge;
 		this.method = method;
 		this.accessId = accessId;
 		isConstructor = method.getName().equals("<init>");
@@ -55,6 +58,8 @@ public class CreateMethodAccessAdapter extends AbstractTransformableClassNode {
 			access = ConstantMembers.access;
 			firstArgIndex = 1;
 		}
+		if (useBridge)
+			firstArgIndex--; // the bridge has no accessId parameter
 	}
 	
 	@Override
@@ -118,6 +123,9 @@ public class CreateMethodAccessAdapter extends AbstractTransformableClassNode {
 			instructions.add(new InsnNode(Opcodes.ARETURN));
 		}
 		
+		if (useBridge)
+			instructions = addAccessBridge(this.access, method.isStatic() || isConstructor, accessId, instructions);
+
 		//add the instructions to a new label in the existing switch
 		MethodNode access = getMethod(this.access);
 		addNewLabelToSwitch(access.instructions, instructions, accessId);
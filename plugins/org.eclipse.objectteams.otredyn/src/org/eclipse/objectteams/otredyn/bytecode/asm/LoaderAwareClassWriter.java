@@ -17,12 +17,9 @@ package org.eclipse.objectteams.otredyn.bytecode.asm;
 
 import static org.eclipse.objectteams.otredyn.transformer.names.ClassNames.OBJECT_SLASH;
 
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.objectteams.otredyn.bytecode.asm.ASMByteCodeAnalyzer.ClassInformation;
@@ -32,18 +29,16 @@ import org.objectweb.asm.ClassWriter;
 /**
  * Variant of its superclass which strictly avoids the use of Class.forName(),
  * because that would by-pass our transformer, when invoked from within the transformer!
+ * Super types are read from class files via the process-wide {@link SupertypeCache}.
  */
 public class LoaderAwareClassWriter extends ClassWriter {
 
 	// Only use as a resource loader!
 	private ClassLoader loader;
-	private ASMByteCodeAnalyzer analyzer; // hopefully caching loaded classes per class-being-written is sufficient for performance
-	private Map<String, ClassInformation> knownClasses = new HashMap<String, ASMByteCodeAnalyzer.ClassInformation>();
 	
 	public LoaderAwareClassWriter(ClassReader reader, int computeFrames, ClassLoader loader) {
 		super(reader, computeFrames);
 		this.loader = loader;
-		this.analyzer = new ASMByteCodeAnalyzer(false);
 	}
 	
 	@Override
@@ -54,23 +49,13 @@ public class LoaderAwareClassWriter extends ClassWriter {
 		if (type1.equals(OBJECT_SLASH) || type2.equals(OBJECT_SLASH))
 			return OBJECT_SLASH;
 		
-		ClassInformation ci1;
-		ClassInformation ci2;
-		// need to load class bytes:
-		try {
-			try (InputStream s1 = this.loader.getResourceAsStream(type1+".class")) {
-				ci1 = this.analyzer.getClassInformation(s1, type1);
-				if (ci1 == null)
-					return OBJECT_SLASH;
-			}
-			try (InputStream s2 = this.loader.getResourceAsStream(type2+".class")) {
-				ci2 = this.analyzer.getClassInformation(s2, type2);
-				if (ci2 == null)
-					return OBJECT_SLASH;
-			}
-		} catch (Exception e) {
-		    throw new RuntimeException(e.toString());
-		}
+		// need class bytes:
+		ClassInformation ci1 = SupertypeCache.getClassInformation(this.loader, type1);
+		if (ci1 == null)
+			return OBJECT_SLASH;
+		ClassInformation ci2 = SupertypeCache.getClassInformation(this.loader, type2);
+		if (ci2 == null)
+			return OBJECT_SLASH;
 
         // do a breadth-first search: each iteration adds just one more level of super types,
 		// but strictly prefer common super class over super interface.
@@ -117,15 +102,7 @@ public class LoaderAwareClassWriter extends ClassWriter {
 	private List<String> getDirectSupersLayer(List<String> types, boolean classes) {
 		List<String> result = new ArrayList<String>();
 		for (String type : types) {
-			ClassInformation ci = this.knownClasses.get(type);
-			if (ci == null) {
-				try (InputStream s = this.loader.getResourceAsStream(type+".class")) {
-					ci = this.analyzer.getClassInformation(s, type);
-		        } catch (Exception e) {
-		            throw new RuntimeException(e.toString());
-				}
-				this.knownClasses.put(type, ci);
-			}
+			ClassInformation ci = SupertypeCache.getClassInformation(this.loader, type);
 			if (ci != null) {
 				if (classes)
 					addSuperClass(result, ci);
@@ -17,8 +17,10 @@
 package org.eclipse.objectteams.otredyn.bytecode.asm;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import org.eclipse.objectteams.otredyn.bytecode.AbstractBoundClass;
 import org.eclipse.objectteams.otredyn.bytecode.Method;
@@ -132,7 +134,11 @@ public class MoveCodeToCallOrigAdapter extends AbstractTransformableClassNode {
 			addLocal(callOrig, BOUND_METHOD_ID, "I", boundMethodIdSlot, start, end, false);
 		}
 
-		InsnList orgInstructions = orgMethod.instructions;
+		// for static methods the original code is retained in place for the no-team path
+		// of the dispatch code (see CreateDispatchCodeInOrgMethodAdapter), so work on a copy:
+		boolean keepOrgCode = method.isStatic();
+		Map<LabelNode, LabelNode> labelCopies = keepOrgCode ? copyLabels(orgMethod.instructions) : null;
+		InsnList orgInstructions = keepOrgCode ? copyInstructions(orgMethod.instructions, labelCopies) : orgMethod.instructions;
 
 		if (superIsWeavable)
 			adjustSuperCalls(orgInstructions, orgMethod.name, orgMethod.desc, args, returnType, boundMethodIdSlot);
@@ -141,13 +147,18 @@ public class MoveCodeToCallOrigAdapter extends AbstractTransformableClassNode {
 		replaceReturn(orgInstructions, returnType);
 		
 		newInstructions.add(orgInstructions); // this wipes orgInstructions
-		addReturn(orgMethod.instructions,Type.getReturnType(orgMethod.desc)); // restores minimal code
-		if (orgMethod.tryCatchBlocks != null) {
-			addTryCatchBlocks(orgMethod, callOrig);
-			orgMethod.tryCatchBlocks.clear();
-		}
-		if (orgMethod.localVariables != null) {
-			orgMethod.localVariables.clear();
+		if (keepOrgCode) {
+			if (orgMethod.tryCatchBlocks != null)
+				addTryCatchBlocks(orgMethod, callOrig, labelCopies);
+		} else {
+			addReturn(orgMethod.instructions,Type.getReturnType(orgMethod.desc)); // restores minimal code
+			if (orgMethod.tryCatchBlocks != null) {
+				addTryCatchBlocks(orgMethod, callOrig);
+				orgMethod.tryCatchBlocks.clear();
+			}
+			if (orgMethod.localVariables != null) {
+				orgMethod.localVariables.clear();
+			}
 		}
 		newInstructions.add(end);
 		
@@ -175,6 +186,33 @@ public class MoveCodeToCallOrigAdapter extends AbstractTransformableClassNode {
 		callOrig.tryCatchBlocks.addAll(orgMethod.tryCatchBlocks);
 	}
 	
+	private void addTryCatchBlocks(MethodNode orgMethod, MethodNode callOrig, Map<LabelNode, LabelNode> labelCopies) {
+		if (callOrig.tryCatchBlocks == null)
+			callOrig.tryCatchBlocks = new ArrayList<TryCatchBlockNode>();
+		for (TryCatchBlockNode block : orgMethod.tryCatchBlocks)
+			callOrig.tryCatchBlocks.add(new TryCatchBlockNode(labelCopies.get(block.start), labelCopies.get(block.end),
+					labelCopies.get(block.handler), block.type));
+	}
+
+	private static Map<LabelNode, LabelNode> copyLabels(InsnList instructions) {
+		Map<LabelNode, LabelNode> labelCopies = new HashMap<LabelNode, LabelNode>();
+		ListIterator<AbstractInsnNode> iterator = instructions.iterator();
+		while (iterator.hasNext()) {
+			AbstractInsnNode insn = iterator.next();
+			if (insn.getType() == AbstractInsnNode.LABEL)
+				labelCopies.put((LabelNode) insn, new LabelNode());
+		}
+		return labelCopies;
+	}
+
+	private static InsnList copyInstructions(InsnList instructions, Map<LabelNode, LabelNode> labelCopies) {
+		InsnList copy = new InsnList();
+		ListIterator<AbstractInsnNode> iterator = instructions.iterator();
+		while (iterator.hasNext())
+			copy.add(iterator.next().clone(labelCopies));
+		return copy;
+	}
+
 	private InsnList superOrigCall(Method method, Type[] args) {
 		InsnList newInstructions = new InsnList();
 
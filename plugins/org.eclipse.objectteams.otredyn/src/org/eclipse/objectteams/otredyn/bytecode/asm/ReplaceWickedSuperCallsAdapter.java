@@ -26,7 +26,6 @@ import org.eclipse.objectteams.otredyn.bytecode.AbstractBoundClass;
 import org.eclipse.objectteams.otredyn.bytecode.Method;
 import org.eclipse.objectteams.otredyn.bytecode.asm.AbstractTransformableClassNode.IBoundMethodIdInsnProvider;
 import org.eclipse.objectteams.otredyn.runtime.IMethod;
-import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -82,21 +81,20 @@ public class ReplaceWickedSuperCallsAdapter extends AbstractTransformableClassNo
 
 	/**
 	 * Collect all wicked super calls requiring replacement (per enclosing method).
-	 * This method is called while the ClassReader reads the current class.
+	 * This scans the class as given to {@link #transform()}, which may already have been
+	 * modified by previous transformations of the same weaving pass.
 	 */
-	public MethodVisitor visitMethod(int access, final String enclosingMethodName, final String enclosingMethodDesc, String signature, String[] exceptions) {
-        final MethodNode mn = new MethodNode(access, enclosingMethodName, enclosingMethodDesc, signature, exceptions);
-        methods.add(mn);
-		return new MethodVisitor(this.api, mn) {
-			@Override
-			public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
-				super.visitMethodInsn(opcode, owner, name, desc, itf);
-				if (opcode == Opcodes.INVOKESPECIAL
-						&& !(enclosingMethodName.equals(name) && enclosingMethodDesc.contentEquals(desc))
-						&& owner.equals(superclass.getInternalName())) {
+	private void collectWickedSuperCalls() {
+		for (MethodNode mn : methods) {
+			for (AbstractInsnNode insn = mn.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+				if (insn.getOpcode() != Opcodes.INVOKESPECIAL)
+					continue;
+				MethodInsnNode methodInsn = (MethodInsnNode) insn;
+				if (!(mn.name.equals(methodInsn.name) && mn.desc.equals(methodInsn.desc))
+						&& methodInsn.owner.equals(superclass.getInternalName())) {
 					// we have a wicked super call ...
 					for (Method tgt: targetMethods) {
-						if (tgt.getName().equals(name) && tgt.getSignature().equals(desc)) {
+						if (tgt.getName().equals(methodInsn.name) && tgt.getSignature().equals(methodInsn.desc)) {
 							// ... and it targets a registered method
 							// => remember this instruction:
 							List<MethodInsnNode> insns = instructionsToWeave.get(mn);
@@ -104,22 +102,22 @@ public class ReplaceWickedSuperCallsAdapter extends AbstractTransformableClassNo
 								insns = new ArrayList<MethodInsnNode>();
 								instructionsToWeave.put(mn, insns);
 							}
-							insns.add((MethodInsnNode) mn.instructions.getLast()); // appended by super.visisMethodIsns(..) above
+							insns.add(methodInsn);
 							break;
 						}
 					}
 				}
 			}
-		};
+		}
 	}
 
 	@Override
 	protected boolean transform() {
+		collectWickedSuperCalls();
 		if (instructionsToWeave.isEmpty())
 			return false; // nothing to do
 		
-		// after a visitor was fine for scanning the byte code for instructions to be replaced,
-		// we now need the tree API for manipulating the instruction list, because we need to
+		// we need the tree API for manipulating the instruction list, because we need to
 		// morph an arg-load sequence into its packing variant.
 
 		for (Map.Entry<MethodNode,List<MethodInsnNode>> toWeave : instructionsToWeave.entrySet()) {
@@ -0,0 +1,161 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.bytecode.asm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.objectteams.otredyn.bytecode.asm.ASMByteCodeAnalyzer.ClassInformation;
+
+/**
+ * Process-wide cache of the class headers (modifiers, super class, super interfaces)
+ * needed for computing common super classes and for deciding about weaving.
+ * <p>
+ * Entries are kept per class loader, which is referenced weakly, so discarding a loader
+ * discards its entries. Lookups take no lock, neither across loaders nor per loader.
+ * When the number of entries of one loader exceeds the limit given by system property
+ * {@code ot.supertype.cache.size} (default: {@value #DEFAULT_SIZE}), a quarter of its entries is evicted,
+ * in no particular order. Classes that cannot be found are not cached.
+ * </p><p>
+ * Class names may be given in internal (slash-separated) or external (dot-separated) form.
+ * A {@code null} loader denotes the bootstrap loader, its class files are looked up via the
+ * platform class loader, which delegates to the bootstrap loader but does not see application classes.
+ * </p>
+ */
+public class SupertypeCache {
+
+	private static final int DEFAULT_SIZE = 4096;
+
+	/** Maximum number of entries per class loader, initialized from property {@code ot.supertype.cache.size}. */
+	private static final int MAX_SIZE = Integer.getInteger("ot.supertype.cache.size", DEFAULT_SIZE).intValue();
+
+	/** Weak key comparing class loaders by identity, registered keys also hold the entries of their loader. */
+	private static class LoaderKey extends WeakReference<ClassLoader> {
+		final int hash;
+		final ConcurrentMap<String, ClassInformation> entries;
+		LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue, ConcurrentMap<String, ClassInformation> entries) {
+			super(loader, queue);
+			this.hash = System.identityHashCode(loader);
+			this.entries = entries;
+		}
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof LoaderKey))
+				return false;
+			ClassLoader loader = get();
+			return loader != null && loader == ((LoaderKey) obj).get();
+		}
+	}
+
+	private static final ConcurrentMap<LoaderKey, LoaderKey> perLoader = new ConcurrentHashMap<LoaderKey, LoaderKey>();
+	private static final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<ClassLoader>();
+	/** Entries for classes found by the bootstrap loader (represented as null). */
+	private static final ConcurrentMap<String, ClassInformation> bootstrapEntries = new ConcurrentHashMap<String, ClassInformation>();
+
+	private SupertypeCache() {}
+
+	/**
+	 * Answer the header information of the given class, reading it via the given loader as a resource if needed.
+	 * @param loader used to find the class file as a resource, never used for loading classes
+	 * @param className name of the class in internal or external form
+	 * @return the information or null if the class file cannot be found or read
+	 */
+	public static ClassInformation getClassInformation(ClassLoader loader, String className) {
+		String internalName = className.replace('.', '/');
+		ConcurrentMap<String, ClassInformation> entries = entriesFor(loader);
+		ClassInformation info = entries.get(internalName);
+		if (info != null)
+			return info;
+		String resource = internalName+".class";
+		ClassLoader resourceLoader = loader != null ? loader : ClassLoader.getPlatformClassLoader();
+		try (InputStream stream = resourceLoader.getResourceAsStream(resource)) {
+			if (stream == null)
+				return null;
+			return put(entries, internalName, ASMByteCodeAnalyzer.readClassInformation(stream));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Answer the header information of the given class, reading it from the given bytes if not yet known.
+	 * @param loader the loader defining the class
+	 * @param className name of the class in internal or external form
+	 * @param classBytes bytes of the class file
+	 * @return the information, never null
+	 */
+	public static ClassInformation getClassInformation(ClassLoader loader, String className, byte[] classBytes) {
+		String internalName = className.replace('.', '/');
+		ConcurrentMap<String, ClassInformation> entries = entriesFor(loader);
+		ClassInformation info = entries.get(internalName);
+		if (info != null)
+			return info;
+		return put(entries, internalName, ASMByteCodeAnalyzer.readClassInformation(classBytes));
+	}
+
+	private static ClassInformation put(ConcurrentMap<String, ClassInformation> entries, String internalName, ClassInformation info) {
+		if (info != null) {
+			ClassInformation previous = entries.putIfAbsent(internalName, info);
+			if (previous != null)
+				return previous;
+			if (entries.size() > MAX_SIZE)
+				evict(entries);
+		}
+		return info;
+	}
+
+	/** Shrink the given entries to three quarters of the limit, concurrent evictions may remove a few more. */
+	private static void evict(ConcurrentMap<String, ClassInformation> entries) {
+		int excess = entries.size() - (MAX_SIZE - MAX_SIZE/4);
+		for (Iterator<String> keys = entries.keySet().iterator(); excess > 0 && keys.hasNext(); excess--) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	private static ConcurrentMap<String, ClassInformation> entriesFor(ClassLoader loader) {
+		if (loader == null)
+			return bootstrapEntries;
+		LoaderKey key = perLoader.get(new LoaderKey(loader, null, null));
+		if (key == null) {
+			expungeCollectedLoaders();
+			LoaderKey newKey = new LoaderKey(loader, collectedLoaders, new ConcurrentHashMap<String, ClassInformation>());
+			key = perLoader.putIfAbsent(newKey, newKey);
+			if (key == null)
+				key = newKey;
+		}
+		return key.entries;
+	}
+
+	/** Drop the entries of all class loaders that have been garbage collected. */
+	private static void expungeCollectedLoaders() {
+		Reference<? extends ClassLoader> collected;
+		while ((collected = collectedLoaders.poll()) != null)
+			perLoader.remove(collected); // a cleared key is only equal to itself
+	}
+}
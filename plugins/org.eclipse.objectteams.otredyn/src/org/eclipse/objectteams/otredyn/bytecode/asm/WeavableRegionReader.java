@@ -26,12 +26,20 @@ import java.util.List;
  * Handle files specified via system property {@code ot.weavable}.
  * Each line in such file is interpreted as a prefix for fully qualified class names (dot-separated).
  * Classes matching to this prefix are considered weavable, others will never be passed to the transformer.
+ * <p>
+ * If additionally property {@code ot.weavable.eager} is set to {@code true}, the callin infrastructure
+ * is woven into all methods of the classes matching one of these prefixes already at load time
+ * (see {@link #isEagerlyWoven(String)}).
+ * </p>
  */
 public class WeavableRegionReader {
 	
 	/** Initialized from property {@code ot.weavable}. */
 	private final static String WEAVABLE_FILE = System.getProperty("ot.weavable");
 
+	/** Initialized from property {@code ot.weavable.eager}. */
+	private final static boolean EAGER = Boolean.getBoolean("ot.weavable.eager");
+
 	/**	Marker for comment lines in the "weavable" file. */    
 	private final static String COMMENT_MARKER = "#";
 	 
@@ -47,6 +55,22 @@ public class WeavableRegionReader {
 		return false;
 	}
 	
+	/**
+	 * Should the callin infrastructure be woven into all methods of the given class when it is loaded?
+	 * This way, a team activated later finds all join points already prepared,
+	 * and only needs to update the dispatch in the TeamManager instead of redefining the class.
+	 * Applies only if {@code ot.weavable.eager} is set and a weavable file is given, and then to all classes
+	 * whose name starts with one of the prefixes in that file, as in {@link #isWeavable(String)}.
+	 * Without a weavable file no class is eagerly woven, although all classes are weavable.
+	 * @param className name of the class in internal or external form
+	 */
+	public static boolean isEagerlyWoven(String className) {
+		if (!EAGER)
+			return false;
+		ensureInitialized();
+		return !weavablePrefixes.isEmpty() && isWeavable(className.replace('/', '.'));
+	}
+
 	private static synchronized void ensureInitialized() {
 		if (weavablePrefixes == null)
 			weavablePrefixes = readWeavablePrefixes();
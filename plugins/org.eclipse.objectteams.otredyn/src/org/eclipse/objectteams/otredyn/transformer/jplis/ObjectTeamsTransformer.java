@@ -120,6 +120,7 @@ public class ObjectTeamsTransformer implements ClassFileTransformer {
 					clazz.transformAtLoadTime();
 				
 				classfileBuffer = clazz.getBytecode();
+				clazz.releaseUnwovenBytecode();
 			} catch (IllegalClassFormatException e) {
 				throw e; // expected, propagate to caller (OT/Equinox?)
 			} catch(Throwable t) {
@@ -0,0 +1,76 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.runtime;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Allocates globally unique ids for string keys, safe for concurrent use without locking on lookup.
+ * Each key receives exactly one id, ids are allocated densely in steps of a fixed size,
+ * so that they can be used as indices into plain arrays.
+ */
+public final class IdRegistry {
+
+	/**
+	 * Ids of members (methods and fields), starting at 1 to distinguish from uninitialized 0.
+	 * Ids are allocated in steps of 2 to keep space for base-super calls.
+	 */
+	public static final IdRegistry MEMBER_IDS = new IdRegistry(1, 2);
+
+	/** Ids of joinpoints, indices into the dispatch tables of the {@link TeamManager}. */
+	public static final IdRegistry JOINPOINT_IDS = new IdRegistry(0, 1);
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final AtomicInteger nextId;
+	private final int step;
+
+	private IdRegistry(int firstId, int step) {
+		this.nextId = new AtomicInteger(firstId);
+		this.step = step;
+	}
+
+	/** Answer the id for the given key, allocating a new id if needed. */
+	public int getId(String key) {
+		Integer id = this.ids.get(key);
+		if (id != null)
+			return id;
+		return this.ids.computeIfAbsent(key, k -> this.nextId.getAndAdd(this.step));
+	}
+
+	/**
+	 * Answer the id for the given key, allocating a new id if needed.
+	 * @param beforePublication invoked with a newly allocated id, before that id becomes visible to any other thread.
+	 * 	Must not access this registry.
+	 */
+	public int getId(String key, IntConsumer beforePublication) {
+		Integer id = this.ids.get(key);
+		if (id != null)
+			return id;
+		return this.ids.computeIfAbsent(key, k -> {
+			int newId = this.nextId.getAndAdd(this.step);
+			beforePublication.accept(newId);
+			return newId;
+		});
+	}
+
+	/** Answer the id for the given key, or null if none has been allocated. */
+	public Integer getExistingId(String key) {
+		return this.ids.get(key);
+	}
+}
@@ -18,6 +18,8 @@ package org.eclipse.objectteams.otredyn.runtime;
 
 import java.lang.invoke.SwitchPoint;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,6 +27,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
@@ -43,40 +49,159 @@ import org.objectteams.Team;
  */
 public class TeamManager implements ITeamManager {
 
-	// void handleTeamStateChange(ITeam t, TeamStateChange stateChange) ;
-	private static List<List<ITeam>> _teams = new ArrayList<List<ITeam>>();
-	private static List<List<Integer>> _callinIds = new ArrayList<List<Integer>>();
-	private static List<List<SwitchPoint>> _switchpoints = new ArrayList<>();
-	private static Map<String, Integer> joinpointMap = new HashMap<String, Integer>();
-	// key: Team class, value: list of global memberIds, indexed by local accessId,
-	// id of null means "not mapped in this team (try super)"
-	private static Map<Class<?>, List<Integer>> accessIdMap = new HashMap<Class<?>, List<Integer>>();
-	private static int currentJoinpointId = 0;
+	/**
+	 * Immutable snapshot of the teams and callin ids registered for one joinpoint.
+	 * Instances are never modified after publication, registration changes install
+	 * a fresh copy instead (copy-on-write).
+	 */
+	private static final class JoinpointDispatch {
+		static final JoinpointDispatch EMPTY = new JoinpointDispatch(new ITeam[0], new int[0]);
+
+		final ITeam[] teams;
+		final int[] callinIds;
+		/** Pre-built result of {@link TeamManager#getTeamsAndCallinIds(int)} for when all teams are active. */
+		final Object[] teamsAndCallinIds;
+
+		JoinpointDispatch(ITeam[] teams, int[] callinIds) {
+			this.teams = teams;
+			this.callinIds = callinIds;
+			this.teamsAndCallinIds = new Object[] { teams, callinIds };
+		}
+
+		JoinpointDispatch(List<ITeam> teams, List<Integer> callinIds) {
+			this(teams.toArray(new ITeam[teams.size()]), callinIds.stream().mapToInt(Integer::intValue).toArray());
+		}
+
+		/**
+		 * Answer the result of {@link TeamManager#getTeamsAndCallinIds(int)} for the
+		 * subset of teams selected by the given bit mask (bit i selects teams[i]).
+		 * Results are cached, so repeated dispatch with the same activation pattern
+		 * does not allocate.
+		 */
+		Object[] getSubset(long mask, int count) {
+			ActiveSubset[] cached = subsets;
+			for (ActiveSubset subset : cached)
+				if (subset.mask == mask)
+					return subset.teamsAndCallinIds;
+			ITeam[] active = new ITeam[count];
+			int[] ids = new int[count];
+			for (int i = 0, a = 0; a < count; i++) {
+				if ((mask & (1L << i)) != 0) {
+					active[a] = teams[i];
+					ids[a++] = callinIds[i];
+				}
+			}
+			Object[] result = new Object[] { active, ids };
+			synchronized (this) {
+				cached = subsets;
+				if (cached.length < MAX_SUBSETS) {
+					ActiveSubset[] newSubsets = Arrays.copyOf(cached, cached.length + 1);
+					newSubsets[cached.length] = new ActiveSubset(mask, result);
+					subsets = newSubsets;
+				}
+			}
+			return result;
+		}
+
+		private static final int MAX_SUBSETS = 8;
+		private volatile ActiveSubset[] subsets = new ActiveSubset[0];
+	}
+
+	/** Cache of the resolved access ids of one team class, see {@link TeamManager#getMemberId(int, Class)}. */
+	private static final class AccessIdTable {
+		private static final class Snapshot {
+			final int generation;
+			final int[] memberIds;
+			Snapshot(int generation, int[] memberIds) {
+				this.generation = generation;
+				this.memberIds = memberIds;
+			}
+		}
+		private volatile Snapshot snapshot = new Snapshot(-1, new int[0]);
+
+		int[] getMemberIds(Class<?> teamClass) {
+			Snapshot current = this.snapshot;
+			if (current.generation == accessIdGeneration.get())
+				return current.memberIds;
+			int generation = accessIdGeneration.get(); // read before resolving, so concurrent changes trigger another resolve
+			int[] memberIds = resolve(teamClass);
+			this.snapshot = new Snapshot(generation, memberIds);
+			return memberIds;
+		}
+
+		private static int[] resolve(Class<?> teamClass) {
+			int[] inherited = new int[0];
+			Class<?> superClass = teamClass.getSuperclass();
+			if (superClass != null && ITeam.class.isAssignableFrom(superClass))
+				inherited = resolvedAccessIds.get(superClass).getMemberIds(superClass);
+			AtomicIntegerArray own = accessIdMap.get(teamClass);
+			int length = Math.max(inherited.length, own != null ? own.length() : 0);
+			int[] memberIds = new int[length];
+			for (int i = 0; i < length; i++) {
+				int id = own != null && i < own.length() ? own.get(i) : 0;
+				if (id == 0)
+					id = i < inherited.length ? inherited[i] : -1;
+				memberIds[i] = id;
+			}
+			return memberIds;
+		}
+	}
+
+	private static final class ActiveSubset {
+		final long mask;
+		final Object[] teamsAndCallinIds;
+
+		ActiveSubset(long mask, Object[] teamsAndCallinIds) {
+			this.mask = mask;
+			this.teamsAndCallinIds = teamsAndCallinIds;
+		}
+	}
+
+	// indexed by joinpoint id, grown by copying when more joinpoints are added.
+	private static volatile JoinpointDispatch[] _dispatch = new JoinpointDispatch[0];
+	// indexed by joinpoint id, one SwitchPoint shared by all call sites of a joinpoint, null after invalidation.
+	private static List<SwitchPoint> _switchpoints = new ArrayList<>();
+	// key: Team class, value: global memberIds, indexed by local accessId,
+	// id 0 means "not mapped in this team (try super)" (member ids start at 1)
+	private static ConcurrentMap<Class<?>, AtomicIntegerArray> accessIdMap = new ConcurrentHashMap<Class<?>, AtomicIntegerArray>();
+	// incremented whenever accessIdMap changes, invalidating all resolvedAccessIds
+	private static final AtomicInteger accessIdGeneration = new AtomicInteger();
+	// per team class: member ids indexed by access id, resolved against super teams, -1 for unmapped
+	private static final ClassValue<AccessIdTable> resolvedAccessIds = new ClassValue<AccessIdTable>() {
+		@Override
+		protected AccessIdTable computeValue(Class<?> teamClass) {
+			return new AccessIdTable();
+		}
+	};
 	// map all original joinpoints to their inherited versions in subclasses
 	private static Map<Integer, List<Integer>> joinpointToSubJoinpoints = new HashMap<Integer, List<Integer>>();
 	private static IClassRepository classRepository;
 
-	// synchronization: fields _teams and _callinIds are protected using the
-	// TeamManager class object as the monitor
+	// synchronization: writers of _dispatch and its elements are serialized using the
+	// TeamManager class object as the monitor. Readers take no lock, they only see
+	// completely initialized snapshots published via the volatile field _dispatch.
 
 	public static void setup(IClassRepository repo) {
 		classRepository = repo;
 		Team.registerTeamManager(new TeamManager()); // install callback
 	}
 
-	public synchronized static ITeam[] getTeams(int joinpointId) {
-		List<ITeam> teams = _teams.get(joinpointId);
-		return teams.toArray(new ITeam[teams.size()]);
+	public static ITeam[] getTeams(int joinpointId) {
+		return _dispatch[joinpointId].teams.clone();
 	}
 
-	public synchronized static int[] getCallinIds(int joinpointId) {
-		List<Integer> ids = _callinIds.get(joinpointId);
-		return ids.stream().mapToInt(Integer::intValue).toArray();
+	public static int[] getCallinIds(int joinpointId) {
+		return _dispatch[joinpointId].callinIds.clone();
 	}
 
 	/**
 	 * Returns all active teams and corresponding callin IDs for joinpoint. This
 	 * method is intended to be called by generated client code.
+	 * <p>
+	 * This method takes no lock. Results for a given combination of active teams
+	 * are shared, so in the steady state no objects are allocated (unless more than
+	 * 64 teams are registered for the joinpoint).
+	 * </p>
 	 * 
 	 * @param joinpointId
 	 * @return a two-element array or null if there are no active teams. If non-null
@@ -84,29 +209,44 @@ public class TeamManager implements ITeamManager {
 	 *         the joinpoint, and the second array element is an array (int[]) of
 	 *         corresponding callind IDs. Both arrays have the same length and
 	 *         elements with equal index correspond between both sub-arrays.
+	 *         Callers must not modify the returned arrays.
 	 */
-	public synchronized static Object[] getTeamsAndCallinIds(int joinpointId) {
-		List<ITeam> teams = _teams.get(joinpointId);
-		int size = teams.size();
+	public static Object[] getTeamsAndCallinIds(int joinpointId) {
+		JoinpointDispatch dispatch = _dispatch[joinpointId];
+		ITeam[] teams = dispatch.teams;
+		int size = teams.length;
 		if (size == 0)
 			return null;
-		List<Integer> callinIds = _callinIds.get(joinpointId);
-		ITeam[] active = new ITeam[size];
-		int[] ids = new int[size];
-		int count = 0;
 		Thread th = Thread.currentThread();
-		for (int i = 0; i < active.length; i++) {
-			ITeam t = teams.get(i);
-			if (t.isActive(th)) {
-				active[count] = t;
-				ids[count++] = callinIds.get(i);
+		int count = 0;
+		long mask = 0;
+		for (int i = 0; i < size; i++) {
+			if (teams[i].isActive(th)) {
+				count++;
+				mask |= 1L << i; // only meaningful if size <= 64
 			}
 		}
 		if (count == 0)
 			return null;
-		if (count != size) {
-			System.arraycopy(active, 0, active = new ITeam[count], 0, count);
-			System.arraycopy(ids, 0, ids = new int[count], 0, count);
+		if (count == size)
+			return dispatch.teamsAndCallinIds;
+		if (size <= 64)
+			return dispatch.getSubset(mask, count);
+		ITeam[] active = new ITeam[count];
+		int[] ids = new int[count];
+		int a = 0;
+		for (int i = 0; i < size && a < count; i++) {
+			ITeam t = teams[i];
+			if (t.isActive(th)) {
+				active[a] = t;
+				ids[a++] = dispatch.callinIds[i];
+			}
+		}
+		if (a != count) { // activation changed concurrently (global activation by another thread)
+			if (a == 0)
+				return null;
+			System.arraycopy(active, 0, active = new ITeam[a], 0, a);
+			System.arraycopy(ids, 0, ids = new int[a], 0, a);
 		}
 		return new Object[] { active, ids };
 	}
@@ -114,25 +254,18 @@ public class TeamManager implements ITeamManager {
 	/**
 	 * Returns the member id for a given team and a access id used in this team.
 	 * This method is intended to be called by generated client code.
+	 * <p>
+	 * The mapping is resolved against super teams once per team class and cached,
+	 * so in the steady state this is a single array access.
+	 * </p>
 	 * 
 	 * @param accessId
 	 * @param Team
 	 * @return
 	 */
 	public static int getMemberId(int accessId, Class<? extends ITeam> teamClass) {
-		List<Integer> teamMap = accessIdMap.get(teamClass);
-		Integer id = -1;
-		if (teamMap == null || accessId >= teamMap.size() || (id = teamMap.get(accessId)) == null) {
-			Class<?> superClass = teamClass.getSuperclass();
-			if (ITeam.class.isAssignableFrom(superClass)) {
-				@SuppressWarnings("unchecked")
-				Class<? extends ITeam> superTeam = (Class<? extends ITeam>) superClass;
-				return getMemberId(accessId, superTeam);
-			}
-			if (id == null)
-				return -1;
-		}
-		return id;
+		int[] memberIds = resolvedAccessIds.get(teamClass).getMemberIds(teamClass);
+		return accessId < memberIds.length ? memberIds[accessId] : -1;
 	}
 
 	/**
@@ -143,17 +276,19 @@ public class TeamManager implements ITeamManager {
 	 * @param joinpointIdentifier
 	 * @return a joinpoint id
 	 */
-	public synchronized static int getJoinpointId(String joinpointIdentifier) {
+	public static int getJoinpointId(String joinpointIdentifier) {
 		Integer joinpointId = getExistingJoinpointId(joinpointIdentifier);
-		if (joinpointId == null) {
-			joinpointMap.put(joinpointIdentifier, currentJoinpointId);
-			List<ITeam> teams = new ArrayList<ITeam>();
-			_teams.add(teams);
-			List<Integer> callinIds = new ArrayList<Integer>();
-			_callinIds.add(callinIds);
-			return currentJoinpointId++;
+		if (joinpointId != null)
+			return joinpointId;
+		synchronized (TeamManager.class) { // serialize with other writers of _dispatch
+			return IdRegistry.JOINPOINT_IDS.getId(joinpointIdentifier, newId -> {
+				JoinpointDispatch[] dispatch = _dispatch;
+				if (newId >= dispatch.length)
+					dispatch = Arrays.copyOf(dispatch, Math.max(16, Math.max(newId + 1, 2 * dispatch.length)));
+				dispatch[newId] = JoinpointDispatch.EMPTY;
+				_dispatch = dispatch; // publish before the id becomes known
+			});
 		}
-		return joinpointId;
 	}
 
 	/**
@@ -164,7 +299,7 @@ public class TeamManager implements ITeamManager {
 	 *         joinpoint identifier
 	 */
 	private static Integer getExistingJoinpointId(String joinpointIdentifier) {
-		return joinpointMap.get(joinpointIdentifier);
+		return IdRegistry.JOINPOINT_IDS.getExistingId(joinpointIdentifier);
 	}
 
 	/**
@@ -181,49 +316,69 @@ public class TeamManager implements ITeamManager {
 		String teamId = provider.getClassIdentifier(teamClass);
 		IBoundTeam teem = classRepository.getTeam(teamClass.getName(), teamId, teamClass.getClassLoader());
 
-		for (IBinding binding : teem.getBindings()) {
-			// OTDRE cannot add methods into a sub base, hence we have to use the declaring
-			// base class for static methods:
-			// (see https://bugs.eclipse.org/435136#c1)
-			String boundClassName = ((binding.getBaseFlags() & IBinding.STATIC_BASE) != 0)
-					? binding.getDeclaringBaseClassName()
-					: binding.getBoundClass();
-			String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName);
-			// FIXME(SH): the following may need adaptation for OT/Equinox or other
-			// multi-classloader settings:
-			IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
-					boundClassIdentifier, teamClass.getClassLoader());
-			switch (binding.getType()) {
-			case CALLIN_BINDING:
-				handleBindingForBase(t, stateChange, binding, boundClass, provider);
-				break;
-			default:
-				// no further action for *ACCESS bindings
+		// all affected base classes are transformed within one transaction, so they will be redefined in one go:
+		Set<IBoundClass> baseClasses = new HashSet<IBoundClass>();
+		// all affected call sites are invalidated in one go, once all joinpoints have been updated:
+		Set<Integer> changedJoinpoints = new HashSet<Integer>();
+		try {
+			for (IBinding binding : teem.getBindings()) {
+				// OTDRE cannot add methods into a sub base, hence we have to use the declaring
+				// base class for static methods:
+				// (see https://bugs.eclipse.org/435136#c1)
+				String boundClassName = ((binding.getBaseFlags() & IBinding.STATIC_BASE) != 0)
+						? binding.getDeclaringBaseClassName()
+						: binding.getBoundClass();
+				String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName);
+				// FIXME(SH): the following may need adaptation for OT/Equinox or other
+				// multi-classloader settings:
+				IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
+						boundClassIdentifier, teamClass.getClassLoader());
+				switch (binding.getType()) {
+				case CALLIN_BINDING:
+					handleBindingForBase(t, stateChange, binding, boundClass, provider, baseClasses, changedJoinpoints);
+					break;
+				default:
+					// no further action for *ACCESS bindings
+				}
 			}
+		} finally {
+			invalidateSwitchPoints(changedJoinpoints);
+			commitTransactions(baseClasses);
 		}
 	}
 
 	private void handleBindingForBase(ITeam t, ITeamManager.TeamStateChange stateChange, IBinding binding,
-			IBoundClass boundClass, IClassIdentifierProvider provider) {
+			IBoundClass boundClass, IClassIdentifierProvider provider, Set<IBoundClass> baseClasses,
+			Set<Integer> changedJoinpoints) {
 		IMethod method = boundClass.getMethod(binding.getMemberName(), binding.getMemberSignature(),
 				binding.getBaseFlags(), binding.isHandleCovariantReturn());
 		int joinpointId = getJoinpointId(boundClass.getMethodIdentifier(method));
 		synchronized (method) {
-			stateChangeForJoinpoint(t, stateChange, binding, boundClass, method, joinpointId);
+			stateChangeForJoinpoint(t, stateChange, binding, joinpointId, changedJoinpoints);
 		}
-		boundClass.handleAddingOfBinding(binding); // TODO: do we want/need to group all bindings into one action?
+		if (baseClasses.add(boundClass))
+			boundClass.startTransaction();
+		boundClass.handleAddingOfBinding(binding);
 
 		for (IBoundClass tsubBase : boundClass.getTSubsOfThis(classRepository, provider)) {
-			handleBindingForBase(t, stateChange, binding, tsubBase, provider);
+			handleBindingForBase(t, stateChange, binding, tsubBase, provider, baseClasses, changedJoinpoints);
+		}
+	}
+
+	/** Commit the transactions of all given classes, the last commit triggers redefinition of all affected classes. */
+	private static void commitTransactions(Set<IBoundClass> baseClasses) {
+		for (IBoundClass base : baseClasses) {
+			base.commitTransaction();
 		}
 	}
 
 	private void stateChangeForJoinpoint(ITeam t, ITeamManager.TeamStateChange stateChange, IBinding binding,
-			IBoundClass boundClass, IMethod method, int joinpointId) {
+			int joinpointId, Set<Integer> changedJoinpoints) {
 		Set<Integer> joinpointIds = new HashSet<Integer>();
 		collectSubJoinpoints(joinpointId, joinpointIds);
 		for (Integer id : joinpointIds) {
-			changeTeamsForJoinpoint(t, binding.getPerTeamId(), id, stateChange);
+			if (changeTeamsForJoinpoint(t, binding.getPerTeamId(), id, stateChange))
+				changedJoinpoints.add(id);
 		}
 	}
 
@@ -246,27 +401,34 @@ public class TeamManager implements ITeamManager {
 		String teamId = provider.getClassIdentifier(teamClass);
 		IBoundTeam teem = classRepository.getTeam(teamName, teamId, teamClassLoader);
 
-		for (IBinding binding : teem.getBindings()) {
-			String boundClassName = binding.getBoundClass();
-			String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName);
-			// FIXME(SH): the following may need adaptation for OT/Equinox or other
-			// multi-classloader settings:
-			IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
-					boundClassIdentifier, teamClass.getClassLoader());
-			switch (binding.getType()) {
-			case CALLIN_BINDING:
-				prepareBindingForBase(binding, boundClass, provider);
-				break;
-			default: // no further action for *ACCESS bindings
+		Set<IBoundClass> baseClasses = new HashSet<IBoundClass>();
+		try {
+			for (IBinding binding : teem.getBindings()) {
+				String boundClassName = binding.getBoundClass();
+				String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName);
+				// FIXME(SH): the following may need adaptation for OT/Equinox or other
+				// multi-classloader settings:
+				IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
+						boundClassIdentifier, teamClass.getClassLoader());
+				switch (binding.getType()) {
+				case CALLIN_BINDING:
+					prepareBindingForBase(binding, boundClass, provider, baseClasses);
+					break;
+				default: // no further action for *ACCESS bindings
+				}
 			}
+		} finally {
+			commitTransactions(baseClasses);
 		}
 	}
 
 	private static void prepareBindingForBase(IBinding binding, IBoundClass boundClass,
-			IClassIdentifierProvider idProvider) {
+			IClassIdentifierProvider idProvider, Set<IBoundClass> baseClasses) {
+		if (baseClasses.add(boundClass))
+			boundClass.startTransaction();
 		boundClass.handleAddingOfBinding(binding);
 		for (IBoundClass tsubBase : boundClass.getTSubsOfThis(classRepository, idProvider))
-			prepareBindingForBase(binding, tsubBase, idProvider);
+			prepareBindingForBase(binding, tsubBase, idProvider, baseClasses);
 	}
 
 	public static void handleTeamLoaded(Class<? extends ITeam> teamClass) {
@@ -281,40 +443,41 @@ public class TeamManager implements ITeamManager {
 		IBoundTeam teem = classRepository.getTeam(teamClass.getName(), teamId, teamClass.getClassLoader());
 
 		Set<IBoundClass> baseClasses = new HashSet<IBoundClass>();
-		for (IBinding binding : teem.getBindings()) {
-			String boundClassName = binding.getBoundClass();
-			String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName.replace('.', '/'));
-			// FIXME(SH): the following may need adaptation for OT/Equinox or other
-			// multi-classloader settings:
-			IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
-					boundClassIdentifier, teamClass.getClassLoader());
-			if (baseClasses.add(boundClass))
-				boundClass.startTransaction();
-
-			switch (binding.getType()) {
-			case FIELD_ACCESS: // fallthrough
-			case METHOD_ACCESS:
-				IMember member = null;
-				if (binding.getType() == IBinding.BindingType.FIELD_ACCESS) {
-					member = boundClass.getField(binding.getMemberName(), binding.getMemberSignature());
-				} else {
-					member = boundClass.getMethod(binding.getMemberName(), binding.getMemberSignature(), 0/* flags */,
-							false/* covariantReturn */);
-				}
+		try {
+			for (IBinding binding : teem.getBindings()) {
+				String boundClassName = binding.getBoundClass();
+				String boundClassIdentifier = provider.getBoundClassIdentifier(teamClass, boundClassName.replace('.', '/'));
+				// FIXME(SH): the following may need adaptation for OT/Equinox or other
+				// multi-classloader settings:
+				IBoundClass boundClass = classRepository.getBoundClass(boundClassName.replace('/', '.'),
+						boundClassIdentifier, teamClass.getClassLoader());
+				if (baseClasses.add(boundClass))
+					boundClass.startTransaction();
+
+				switch (binding.getType()) {
+				case FIELD_ACCESS: // fallthrough
+				case METHOD_ACCESS:
+					IMember member = null;
+					if (binding.getType() == IBinding.BindingType.FIELD_ACCESS) {
+						member = boundClass.getField(binding.getMemberName(), binding.getMemberSignature());
+					} else {
+						member = boundClass.getMethod(binding.getMemberName(), binding.getMemberSignature(), 0/* flags */,
+								false/* covariantReturn */);
+					}
 
-				int memberId = member.getGlobalId(boundClass);
-				synchronized (member) {
-					addAccessIds(teamClass, teem, binding.getPerTeamId(), memberId);
+					int memberId = member.getGlobalId(boundClass);
+					synchronized (member) {
+						addAccessIds(teamClass, teem, binding.getPerTeamId(), memberId);
+					}
+					//$FALL-THROUGH$
+				case ROLE_BASE_BINDING:
+					boundClass.handleAddingOfBinding(binding);
+					break;
+				default: // no action for CALLIN_BINDING here
 				}
-				//$FALL-THROUGH$
-			case ROLE_BASE_BINDING:
-				boundClass.handleAddingOfBinding(binding);
-				break;
-			default: // no action for CALLIN_BINDING here
 			}
-		}
-		for (IBoundClass base : baseClasses) {
-			base.commitTransaction();
+		} finally {
+			commitTransactions(baseClasses);
 		}
 	}
 
@@ -329,56 +492,84 @@ public class TeamManager implements ITeamManager {
 	 * @param stateChange
 	 */
 	private static void addAccessIds(Class<? extends ITeam> teamClass, IBoundTeam teem, int accessId, int memberId) {
-		List<Integer> accessIds = accessIdMap.get(teamClass);
-		if (accessIds == null) {
-			int highestAccessId = teem.getHighestAccessId() + 1;
-			accessIds = new ArrayList<Integer>(highestAccessId);
-			for (int i = 0; i <= highestAccessId; i++) {
-				accessIds.add(null);
-			}
-			accessIdMap.put(teamClass, accessIds);
-		}
+		AtomicIntegerArray accessIds = accessIdMap.computeIfAbsent(teamClass,
+				c -> new AtomicIntegerArray(teem.getHighestAccessId() + 2));
 		accessIds.set(accessId, memberId);
+		accessIdGeneration.incrementAndGet();
 	}
 
 	/**
-	 * Stores or removes the team
+	 * Stores or removes the team.
+	 * The caller is responsible for invalidating the SwitchPoint of the joinpoint if it changed.
 	 * 
 	 * @param t
 	 * @param callinId
 	 * @param joinpointId
 	 * @param stateChange
+	 * @return whether the teams of the joinpoint have changed
 	 */
-	private synchronized static void changeTeamsForJoinpoint(ITeam t, int callinId, int joinpointId,
+	private synchronized static boolean changeTeamsForJoinpoint(ITeam t, int callinId, int joinpointId,
 			TeamManager.TeamStateChange stateChange) {
+		JoinpointDispatch dispatch = _dispatch[joinpointId];
 		switch (stateChange) {
 		case REGISTER:
-			List<ITeam> teams = _teams.get(joinpointId);
-			teams.add(0, t);
-			List<Integer> callinIds = _callinIds.get(joinpointId);
-			callinIds.add(0, callinId);
+			int size = dispatch.teams.length;
+			ITeam[] teams = new ITeam[size + 1];
+			int[] callinIds = new int[size + 1];
+			teams[0] = t;
+			callinIds[0] = callinId;
+			System.arraycopy(dispatch.teams, 0, teams, 1, size);
+			System.arraycopy(dispatch.callinIds, 0, callinIds, 1, size);
+			publish(joinpointId, new JoinpointDispatch(teams, callinIds));
 			break;
 		case UNREGISTER:
-			teams = _teams.get(joinpointId);
-			callinIds = _callinIds.get(joinpointId);
-			int index = teams.indexOf(t);
+			List<ITeam> teamList = new ArrayList<ITeam>(Arrays.asList(dispatch.teams));
+			List<Integer> callinIdList = new ArrayList<Integer>();
+			for (int id : dispatch.callinIds)
+				callinIdList.add(id);
+			int index = teamList.indexOf(t);
+			if (index == -1)
+				return false;
 			while (index > -1) {
-				teams.remove(index);
-				callinIds.remove(index);
-				index = teams.indexOf(t);
+				teamList.remove(index);
+				callinIdList.remove(index);
+				index = teamList.indexOf(t);
 			}
+			publish(joinpointId, new JoinpointDispatch(teamList, callinIdList));
 			break;
 		default:
 			throw new RuntimeException("Unknown team state change: " + stateChange.name());
 		}
+		return true;
+	}
 
-		// If size > ID than there are already SwitchPoints for that joinpoint which
-		// should be invalidated
-		if (_switchpoints.size() > joinpointId) {
-			List<SwitchPoint> list = _switchpoints.remove(joinpointId);
-			_switchpoints.add(joinpointId, new ArrayList<>());
-			SwitchPoint.invalidateAll(list.toArray(new SwitchPoint[list.size()]));
+	/**
+	 * Invalidate the SwitchPoints guarding all call sites of the given joinpoints using
+	 * a single {@link SwitchPoint#invalidateAll} call, the next relink will create fresh ones.
+	 * Should be called once after all tables affected by one change have been updated.
+	 */
+	private static void invalidateSwitchPoints(Collection<Integer> joinpointIds) {
+		if (joinpointIds.isEmpty())
+			return;
+		List<SwitchPoint> invalid = new ArrayList<>(joinpointIds.size());
+		synchronized (TeamManager.class) {
+			for (int joinpointId : joinpointIds) {
+				if (_switchpoints.size() > joinpointId) {
+					SwitchPoint sp = _switchpoints.set(joinpointId, null);
+					if (sp != null)
+						invalid.add(sp);
+				}
+			}
 		}
+		if (!invalid.isEmpty()) // no lock held while call sites are deoptimized
+			SwitchPoint.invalidateAll(invalid.toArray(new SwitchPoint[invalid.size()]));
+	}
+
+	/** Install a new snapshot for the given joinpoint. Caller must hold the TeamManager monitor. */
+	private static void publish(int joinpointId, JoinpointDispatch dispatch) {
+		JoinpointDispatch[] all = _dispatch;
+		all[joinpointId] = dispatch;
+		_dispatch = all; // volatile write makes the new element visible to lock-free readers
 	}
 
 	/**
@@ -405,6 +596,7 @@ public class TeamManager implements ITeamManager {
 			});
 			return;
 		}
+		Set<Integer> changedJoinpoints = new HashSet<Integer>();
 		synchronized (subClass) {
 			while (superClass != null && !superClass.isJavaLangObject()) {
 				Integer superJoinpointId = getJoinpointId(superClass.getMethodIdentifier(superMethod));
@@ -419,23 +611,28 @@ public class TeamManager implements ITeamManager {
 					// already processed?
 					if (!subJoinpoints.contains(subJoinpointId)) {
 						subJoinpoints.add(subJoinpointId);
-						applyJoinpointMerge(superJoinpointId, subJoinpointId);
+						applyJoinpointMerge(superJoinpointId, subJoinpointId, changedJoinpoints);
 					}
 				}
 				superClass = superClass.getSuperclass();
 			}
 		}
+		invalidateSwitchPoints(changedJoinpoints);
 	}
 
-	private synchronized static void applyJoinpointMerge(Integer srcJoinpointId, int destJoinpointId) {
-		List<ITeam> teams = _teams.get(destJoinpointId);
-		List<Integer> callinIds = _callinIds.get(destJoinpointId);
-		List<ITeam> srcTeams = _teams.get(srcJoinpointId);
-		List<Integer> srcCallins = _callinIds.get(srcJoinpointId);
-		for (int s = 0; s < srcTeams.size(); s++) {
+	private synchronized static void applyJoinpointMerge(Integer srcJoinpointId, int destJoinpointId,
+			Set<Integer> changedJoinpoints) {
+		JoinpointDispatch dest = _dispatch[destJoinpointId];
+		JoinpointDispatch src = _dispatch[srcJoinpointId];
+		List<ITeam> teams = new ArrayList<ITeam>(Arrays.asList(dest.teams));
+		List<Integer> callinIds = new ArrayList<Integer>();
+		for (int id : dest.callinIds)
+			callinIds.add(id);
+		boolean changed = false;
+		for (int s = 0; s < src.teams.length; s++) {
 			int d = 0; // FIXME(SH): find insertion index based on activation priority!!
-			ITeam srcTeam = srcTeams.get(s);
-			Integer srcCallin = srcCallins.get(s);
+			ITeam srcTeam = src.teams[s];
+			int srcCallin = src.callinIds[s];
 			int idx = teams.indexOf(srcTeam);
 			if (idx != -1 && idx < callinIds.size()) {
 				if (callinIds.get(idx) == srcCallin)
@@ -443,12 +640,17 @@ public class TeamManager implements ITeamManager {
 			}
 			teams.add(d, srcTeam);
 			callinIds.add(0, srcCallin);
+			changed = true;
+		}
+		if (changed) {
+			publish(destJoinpointId, new JoinpointDispatch(teams, callinIds));
+			changedJoinpoints.add(destJoinpointId);
 		}
 		// transitively pass the new information down the tree of subJoinpoints:
 		List<Integer> destDests = joinpointToSubJoinpoints.get(destJoinpointId);
 		if (destDests != null && !destDests.isEmpty())
 			for (Integer destDest : destDests)
-				applyJoinpointMerge(destJoinpointId, destDest);
+				applyJoinpointMerge(destJoinpointId, destDest, changedJoinpoints);
 	}
 
 	/**
@@ -476,31 +678,20 @@ public class TeamManager implements ITeamManager {
 		}
 	}
 
-	public synchronized static void registerSwitchPoint(SwitchPoint newSwitchPoint, int joinpointId) {
-		if (_switchpoints.size() <= joinpointId) {
-			List<SwitchPoint> list = new ArrayList<>();
-			list.add(newSwitchPoint);
-			// TODO Lars: What was the idea here?
-			// Fill empty space to circumvent IndexOutOfBoundsException
-			for (int i = _switchpoints.size(); i < joinpointId; ++i) {
-				_switchpoints.add(new ArrayList<>());
-			}
-			_switchpoints.add(joinpointId, list);
-		} else {
-			List<SwitchPoint> list = _switchpoints.get(joinpointId);
-			list.add(newSwitchPoint);
-		}
-	}
-	
+	/**
+	 * Answer the SwitchPoint that guards all invokedynamic call sites linked for the given joinpoint.
+	 * A new SwitchPoint is created if none exists or if the previous one has been invalidated
+	 * by a team state change.
+	 */
 	public synchronized static SwitchPoint getSwitchPoint(int joinpointId) {
-		if (_switchpoints.size() > joinpointId) {
-			List<SwitchPoint> list = _switchpoints.get(joinpointId);
-			if(list.size() == 0) {
-				return null;
-			}
-			return list.get(0);
+		while (_switchpoints.size() <= joinpointId)
+			_switchpoints.add(null);
+		SwitchPoint sp = _switchpoints.get(joinpointId);
+		if (sp == null || sp.hasBeenInvalidated()) {
+			sp = new SwitchPoint();
+			_switchpoints.set(joinpointId, sp);
 		}
-		return null;
+		return sp;
 	}
 
 	public static List<IBinding> getPrecedenceSortedCallinBindings(ITeam team, String joinpoint) {
@@ -1,61 +1,93 @@
 package org.eclipse.objectteams.otredyn.runtime.dynamic;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.eclipse.objectteams.otredyn.runtime.IBinding;
 import org.eclipse.objectteams.otredyn.runtime.TeamManager;
-import org.objectteams.ITeam;
 
-public class CallSiteContext implements Iterable<ITeam> {
-	
+/**
+ * Describes the joinpoint a callin call site has been bootstrapped for.
+ * The context is shared between the callin call site in the base method
+ * and the callNext call sites in replace callins bound to that joinpoint.
+ */
+public class CallSiteContext {
+
 	public static Map<String, CallSiteContext> contexts = new ConcurrentHashMap<>();
-	
-	private ITeam[] teams;
-	private int index;
+
 	public final int bmId;
 	public final int joinpointId;
 	public final String joinpointDescr;
 	public final Class<?> baseClass;
-	
-	public HashSet<IBinding> proccessedBindings = new HashSet<IBinding>();
+	/** Is the bound base method static, i.e., does the call site lack a base receiver? */
+	public final boolean isStaticBase;
 
-	public CallSiteContext(String joinpointDescr, int bmId, Class<?> baseClass) {
+	public CallSiteContext(String joinpointDescr, int bmId, Class<?> baseClass, boolean isStaticBase) {
 		this.joinpointDescr = joinpointDescr;
 		this.bmId = bmId;
-		this.index = 0;
 		this.baseClass = baseClass;
+		this.isStaticBase = isStaticBase;
 		this.joinpointId = TeamManager.getJoinpointId(joinpointDescr);
 	}
-	
-	public void updateTeams() {
-		teams = TeamManager.getTeams(joinpointId);
-		proccessedBindings.clear();
-	}
-	
-	public void resetIndex() {
-		index = 0;
-	}
 
-	@Override
-	public Iterator<ITeam> iterator() {
-		return new CallSiteContextIterator();
+	/**
+	 * Create the context for a callin call site woven into the given base class.
+	 * A call site for an instance method passes the base object as its first argument,
+	 * a call site for a static method passes the original arguments only.
+	 */
+	public static CallSiteContext forCallin(String joinpointDescr, int bmId, Class<?> baseClass, String name, MethodType type) {
+		boolean isStatic = false;
+		try {
+			Method method = baseClass.getDeclaredMethod(name, type.parameterArray());
+			isStatic = Modifier.isStatic(method.getModifiers());
+		} catch (NoSuchMethodException e) {
+			// instance method (receiver is the first argument) or constructor
+		}
+		return new CallSiteContext(joinpointDescr, bmId, baseClass, isStatic);
 	}
-	
-	private class CallSiteContextIterator implements Iterator<ITeam> {
 
-		@Override
-		public boolean hasNext() {
-			return index < teams.length - 1;
+	/**
+	 * Find the context for a callNext call site.
+	 * The signature of a callNext site is derived from the callin method, which may differ from
+	 * the base method signature (parameter mappings, fewer parameters). Therefore, if no context
+	 * exists for the exact descriptor, a context for the same selector in the given base class
+	 * (or a subclass thereof) is searched.
+	 *
+	 * @param joinpointDescr descriptor as derived from the callNext call site
+	 * @param baseClassName  name of the bound base class as given at the callNext call site
+	 * @param selector       name of the bound base method
+	 * @param loader         class loader of the role declaring the callNext call site
+	 * @return the context or null
+	 */
+	public static CallSiteContext findForCallNext(String joinpointDescr, String baseClassName, String selector, ClassLoader loader) {
+		CallSiteContext context = contexts.get(joinpointDescr);
+		if (context != null)
+			return context;
+		String className = baseClassName.replace('/', '.');
+		Class<?> declaredBaseClass = null;
+		try {
+			declaredBaseClass = Class.forName(className, false, loader);
+		} catch (ClassNotFoundException e) {
+			// fall through, only compare names
 		}
-
-		@Override
-		public ITeam next() {
-			return teams[index++];
+		CallSiteContext candidate = null;
+		for (CallSiteContext current : contexts.values()) {
+			if (!selector.equals(current.getSelector()))
+				continue;
+			if (current.baseClass.getName().equals(className))
+				return current;
+			if (candidate == null && declaredBaseClass != null && declaredBaseClass.isAssignableFrom(current.baseClass))
+				candidate = current;
 		}
-		
+		return candidate;
 	}
 
+	private String getSelector() {
+		int paren = joinpointDescr.indexOf('(');
+		if (paren == -1)
+			return null;
+		return joinpointDescr.substring(joinpointDescr.lastIndexOf('.', paren) + 1, paren);
+	}
 }
@@ -3,8 +3,6 @@ package org.eclipse.objectteams.otredyn.runtime.dynamic;
 import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.eclipse.objectteams.otredyn.runtime.dynamic.linker.GuardingDynamicCallinLinker;
 
@@ -29,8 +27,6 @@ public class CallinBootstrap {
 		return factory.createLinker();
 	}
 	
-	private Map<String, ChainedCallSite> callsites = new HashMap<>();
-
 	/**
 	 * 
 	 * @param lookup               The lookup object for the base callin or in case
@@ -42,36 +38,36 @@ public class CallinBootstrap {
 	 */
 	public static CallSite callAllBindings(MethodHandles.Lookup lookup, String name, MethodType type,
 			String joinpointDescriptor, int boundMethodId) {
-		CallSiteContext context = new CallSiteContext(joinpointDescriptor, boundMethodId, lookup.lookupClass());
-		CallSiteContext.contexts.put(joinpointDescriptor, context);
+		CallSiteContext context = CallSiteContext.contexts.computeIfAbsent(joinpointDescriptor,
+				descr -> CallSiteContext.forCallin(descr, boundMethodId, lookup.lookupClass(), name, type));
 		return dynamicLinker.link(new ChainedCallSite(
-				DynamicCallSiteDescriptor.get(lookup, name, type, joinpointDescriptor, boundMethodId, null, DynamicCallSiteDescriptor.CALL_IN)));
+				DynamicCallSiteDescriptor.get(lookup, name, type, joinpointDescriptor, boundMethodId, context, DynamicCallSiteDescriptor.CALL_IN)));
 	}
 
+	/**
+	 * Bootstrap a base call from within a replace callin.
+	 *
+	 * @param lookup        the lookup object of the role class
+	 * @param name          selector of the bound base method
+	 * @param type          (base, callin method parameters...) return type of the callin method
+	 * @param baseClassName the bound base class in JVM notation
+	 */
 	public static CallSite callNext(MethodHandles.Lookup lookup, String name, MethodType type, String baseClassName) {
-		String joinpointDescriptor = baseClassName + "." + name + "(" + argumentTypeNames(type.parameterArray()) + ")";
-//		CallSiteContext ctx = new CallSiteContext(baseArg, teams, index, callinIs, bmId, args, boxedArgs);
-		CallSite result = dynamicLinker.link(new ChainedCallSite(
-				DynamicCallSiteDescriptor.get(lookup, name, type, joinpointDescriptor, -1, null, DynamicCallSiteDescriptor.CALL_NEXT)));
-		
-//		CallSiteContext.contexts.remove(joinpointDescriptor);
-		return result;
+		String joinpointDescriptor = baseClassName + "." + name + argumentTypeNames(type);
+		CallSiteContext context = CallSiteContext.findForCallNext(joinpointDescriptor, baseClassName, name,
+				lookup.lookupClass().getClassLoader());
+		if (context == null)
+			throw new BootstrapMethodError("No callin call site found for base call to " + joinpointDescriptor);
+		return dynamicLinker.link(new ChainedCallSite(
+				DynamicCallSiteDescriptor.get(lookup, name, type, context.joinpointDescr, context.bmId, context, DynamicCallSiteDescriptor.CALL_NEXT)));
 	}
-	
-	private static String argumentTypeNames(Class<?>[] arguments) {
-		StringBuilder sb = new StringBuilder();
-		for(Class<?> argumentType : arguments) {
-			if(argumentType.isPrimitive()) {
-				switch(argumentType.getCanonicalName()) {
-				case "double" : sb.append("D"); break;
-				case "float" : sb.append("F"); break;
-				case "int" : sb.append("I"); break;
-				}
-			} else {
-				//sb.append(argumentType.getCanonicalName());
-			}
-		}
-		return sb.toString();
+
+	/** Answer the argument part of a JVM method descriptor, skipping the leading base argument. */
+	private static String argumentTypeNames(MethodType type) {
+		if (type.parameterCount() > 0)
+			type = type.dropParameterTypes(0, 1);
+		String descriptor = type.toMethodDescriptorString();
+		return descriptor.substring(0, descriptor.indexOf(')') + 1);
 	}
 
 }
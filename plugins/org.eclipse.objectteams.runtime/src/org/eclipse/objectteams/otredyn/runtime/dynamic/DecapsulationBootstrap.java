@@ -0,0 +1,90 @@
+/**********************************************************************
+ * This file is part of "Object Teams Dynamic Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.eclipse.objectteams.otredyn.runtime.dynamic;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Bootstrap of decapsulating base access, i.e., callouts and other accesses from a role
+ * to base members that are not visible to the role.
+ * <p>
+ * The compiler generates an <code>invokedynamic</code> instruction with the exact type of the access,
+ * which is linked once to a direct method handle obtained via {@link MethodHandles#privateLookupIn}.
+ * Hence no accessor needs to be woven into the base class, and arguments and results are neither
+ * packed into an array nor boxed.
+ * </p>
+ */
+public class DecapsulationBootstrap {
+
+	// kinds of access, values follow the reference kinds of CONSTANT_MethodHandle:
+	public static final int GET_FIELD = 1;
+	public static final int GET_STATIC = 2;
+	public static final int PUT_FIELD = 3;
+	public static final int PUT_STATIC = 4;
+	public static final int INVOKE_VIRTUAL = 5;
+	public static final int INVOKE_STATIC = 6;
+	public static final int NEW_INVOKE_SPECIAL = 8;
+
+	/**
+	 * Bootstrap a decapsulating access to a base member.
+	 *
+	 * @param caller             the lookup object of the accessing role class
+	 * @param name               name of the accessed field or method, ignored for constructors
+	 * @param type               type of the access: a leading base instance for instance members,
+	 *                           followed by the method parameters or the value to assign;
+	 *                           the result is the method result, the field value, or the constructed instance
+	 * @param kind               one of the constants declared in this class
+	 * @param declaringClassName the class declaring the accessed member in JVM notation
+	 */
+	public static CallSite access(MethodHandles.Lookup caller, String name, MethodType type, int kind,
+			String declaringClassName) throws ReflectiveOperationException {
+		Class<?> declaringClass = Class.forName(declaringClassName.replace('/', '.'), false,
+				caller.lookupClass().getClassLoader());
+		MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, caller);
+		MethodHandle target;
+		switch (kind) {
+		case GET_FIELD:
+			target = lookup.findGetter(declaringClass, name, type.returnType());
+			break;
+		case GET_STATIC:
+			target = lookup.findStaticGetter(declaringClass, name, type.returnType());
+			break;
+		case PUT_FIELD:
+			target = lookup.findSetter(declaringClass, name, type.parameterType(1));
+			break;
+		case PUT_STATIC:
+			target = lookup.findStaticSetter(declaringClass, name, type.parameterType(0));
+			break;
+		case INVOKE_VIRTUAL:
+			target = lookup.findVirtual(declaringClass, name, type.dropParameterTypes(0, 1));
+			break;
+		case INVOKE_STATIC:
+			target = lookup.findStatic(declaringClass, name, type);
+			break;
+		case NEW_INVOKE_SPECIAL:
+			target = lookup.findConstructor(declaringClass, type.changeReturnType(void.class));
+			break;
+		default:
+			throw new BootstrapMethodError("Unknown kind of decapsulating access " + kind + " to "
+					+ declaringClassName + "." + name);
+		}
+		return new ConstantCallSite(target.asType(type));
+	}
+}
@@ -39,6 +39,11 @@ public class DynamicCallSiteDescriptor extends CallSiteDescriptor {
 		return joinpointDescriptor;
 	}
 
+	/** Answer the linking state of the joinpoint this call site belongs to. */
+	public CallSiteContext getContext() {
+		return context;
+	}
+
 	public static DynamicCallSiteDescriptor get(Lookup lookup, String name, MethodType type, String joinpointDescriptor, int boundMethodId,
 			CallSiteContext context, int flags) {
 		final int operationIndex = flags & OPERATION_MASK;
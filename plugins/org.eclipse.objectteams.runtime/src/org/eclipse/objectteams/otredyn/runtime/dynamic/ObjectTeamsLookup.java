@@ -3,8 +3,10 @@ package org.eclipse.objectteams.otredyn.runtime.dynamic;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.objectteams.otredyn.runtime.IBinding;
 import org.eclipse.objectteams.otredyn.runtime.dynamic.linker.support.ObjectTeamsTypeUtilities;
@@ -13,7 +15,12 @@ public class ObjectTeamsLookup {
 
 	private static final MethodType CallOrigType = MethodType.methodType(Object.class, int.class, Object[].class);
 
-	private static final Map<String, MethodHandle> LIFTING_CACHE = new HashMap<>();
+	private static final Map<String, MethodHandle> LIFTING_CACHE = new ConcurrentHashMap<>();
+
+	/** Name of regular guard predicates, see IOTConstants.PREDICATE_METHOD_NAME. */
+	private static final String PREDICATE_METHOD_NAME = "_OT$when";
+	/** Name prefix of base guard predicates, see IOTConstants.BASE_PREDICATE_PREFIX. */
+	private static final String BASE_PREDICATE_PREFIX = "_OT$base_when";
 
 	public static MethodHandle findOwnSpecial(MethodHandles.Lookup lookup, String name, Class<?> rtype,
 			Class<?>... ptypes) {
@@ -73,6 +80,8 @@ public class ObjectTeamsLookup {
 		final MethodType mt = MethodType.fromMethodDescriptorString(binding.getRoleMethodSignature(),
 				roleType.getClassLoader());
 		try {
+			if ((binding.getBaseFlags() & IBinding.STATIC_BASE) != 0)
+				return lookup.findStatic(roleType, binding.getRoleMethodName(), mt);
 			return lookup.findVirtual(roleType, binding.getRoleMethodName(), mt);
 		} catch (NoSuchMethodException e) {
 			NoSuchMethodError ee = new NoSuchMethodError();
@@ -99,25 +108,117 @@ public class ObjectTeamsLookup {
 		}
 	}
 
+	public static MethodHandle findOrigStatic(MethodHandles.Lookup lookup, Class<?> baseClass) {
+		try {
+			return lookup.findStatic(baseClass, "_OT$callOrigStatic", CallOrigType);
+		} catch (NoSuchMethodException e) {
+			NoSuchMethodError ee = new NoSuchMethodError();
+			ee.initCause(e);
+			throw ee;
+		} catch (IllegalAccessException e) {
+			IllegalAccessError ee = new IllegalAccessError();
+			ee.initCause(e);
+			throw ee;
+		}
+	}
+
+	/**
+	 * Find the most specific regular guard predicate applicable to the given binding,
+	 * searching the callin binding, the role method, the role and the team, in this order.
+	 * The compiler already links each predicate to the predicates of enclosing levels.
+	 * A binding level guard receives the arguments of the role method, followed by the base result
+	 * for after callins of non-void base methods. Guards of static role methods are static and
+	 * receive the synthetic leading arguments of static role methods.
+	 *
+	 * @return a handle whose first argument is the receiver (role or team), or null
+	 */
+	public static MethodHandle findGuard(MethodHandles.Lookup lookup, IBinding binding, Class<?> teamClass) {
+		final Class<?> roleType = ObjectTeamsTypeUtilities.getRoleImplementationType(binding.getRoleClassName(),
+				teamClass);
+		final String bindingGuardName = getBindingPredicateName(PREDICATE_METHOD_NAME, binding);
+		MethodHandle guard = findPredicate(lookup, roleType, bindingGuardName, false);
+		if (guard == null)
+			guard = findPredicate(lookup, roleType, bindingGuardName, true);
+		if (guard == null)
+			guard = findPredicate(lookup, roleType,
+					PREDICATE_METHOD_NAME + '$' + binding.getRoleMethodName(), false);
+		if (guard == null)
+			guard = findPredicate(lookup, roleType, PREDICATE_METHOD_NAME, false);
+		if (guard == null)
+			guard = findPredicate(lookup, teamClass, PREDICATE_METHOD_NAME, false);
+		return guard;
+	}
+
+	/**
+	 * Find the most specific base guard predicate applicable to the given binding.
+	 * Binding and role level base predicates are static methods of the role, the team level base predicate
+	 * is an instance method of the team. A binding level base predicate additionally receives the base
+	 * arguments, followed by the base result for after callins of non-void base methods.
+	 *
+	 * @return a handle whose first argument is the base object (preceded by the team for
+	 *         the team level predicate, or by the synthetic arguments of static role methods), or null
+	 */
+	public static MethodHandle findBaseGuard(MethodHandles.Lookup lookup, IBinding binding, Class<?> teamClass) {
+		final Class<?> roleType = ObjectTeamsTypeUtilities.getRoleImplementationType(binding.getRoleClassName(),
+				teamClass);
+		MethodHandle guard = findPredicate(lookup, roleType,
+				getBindingPredicateName(BASE_PREDICATE_PREFIX, binding), true);
+		if (guard == null)
+			guard = findPredicate(lookup, roleType,
+					BASE_PREDICATE_PREFIX + '$' + binding.getRoleMethodName(), true);
+		if (guard == null)
+			guard = findPredicate(lookup, roleType, BASE_PREDICATE_PREFIX, true);
+		if (guard == null)
+			guard = findPredicate(lookup, teamClass, BASE_PREDICATE_PREFIX, false);
+		return guard;
+	}
+
+	/** Binding level predicates are named <code>prefix$roleMethod$modifier$baseMethod</code>. */
+	private static String getBindingPredicateName(String prefix, IBinding binding) {
+		return prefix + '$' + binding.getRoleMethodName() + '$'
+				+ binding.getCallinModifier().name().toLowerCase() + '$' + binding.getMemberName();
+	}
+
+	private static MethodHandle findPredicate(MethodHandles.Lookup lookup, Class<?> declaringClass, String name,
+			boolean isStatic) {
+		for (Method method : declaringClass.getDeclaredMethods()) {
+			if (method.getName().equals(name) && method.getReturnType() == boolean.class
+					&& Modifier.isStatic(method.getModifiers()) == isStatic) {
+				try {
+					method.setAccessible(true);
+					return lookup.unreflect(method);
+				} catch (IllegalAccessException e) {
+					IllegalAccessError ee = new IllegalAccessError();
+					ee.initCause(e);
+					throw ee;
+				}
+			}
+		}
+		return null;
+	}
+
 	public static MethodHandle findLifting(MethodHandles.Lookup lookup, IBinding binding, Class<?> teamClass) {
 		final String key = teamClass.getName() + "$" + binding.getRoleClassName();
-		if (LIFTING_CACHE.containsKey(key)) {
-			return LIFTING_CACHE.get(key);
+		MethodHandle cached = LIFTING_CACHE.get(key);
+		if (cached != null) {
+			return cached;
 		}
 
 		final Class<?> baseClass;
 		try {
-			baseClass = Class.forName(binding.getBoundClass().replace('/', '.'));
+			baseClass = Class.forName(binding.getBoundClass().replace('/', '.'), false, teamClass.getClassLoader());
 		} catch (ClassNotFoundException e) {
 			NoSuchMethodError ee = new NoSuchMethodError();
 			ee.initCause(e);
 			throw ee;
 		}
 		final String liftingMethod = ("_OT$liftTo$" + binding.getRoleClassName());
-		final MethodHandle convertBaseToRoleObjectHandle = findVirtual(lookup, teamClass, liftingMethod,
-				MethodType.methodType(
-						ObjectTeamsTypeUtilities.getRoleInterfaceType(binding.getRoleClassName(), teamClass),
-						baseClass));
+		MethodHandle convertBaseToRoleObjectHandle = findInheritedLifting(lookup, teamClass, liftingMethod, baseClass);
+		if (convertBaseToRoleObjectHandle == null)
+			convertBaseToRoleObjectHandle = findVirtual(lookup, teamClass, liftingMethod,
+					MethodType.methodType(
+							ObjectTeamsTypeUtilities.getRoleInterfaceType(binding.getRoleClassName(), teamClass),
+							baseClass));
 
 		final MethodHandle adaptedConvertBaseToRoleObjectHandle = convertBaseToRoleObjectHandle.asType(MethodType.methodType(
 				ObjectTeamsTypeUtilities.getRoleImplementationType(binding.getRoleClassName(), teamClass), teamClass,
@@ -127,4 +228,32 @@ public class ObjectTeamsLookup {
 		return adaptedConvertBaseToRoleObjectHandle;
 	}
 
+	/**
+	 * Find the lifting method of the given name by its base parameter only.
+	 * For an implicitly inherited role the lifting method of a sub team still returns
+	 * the role interface of the team that introduced the role, not the sub team's role interface.
+	 *
+	 * @return a handle of the most specific lifting method, or null
+	 */
+	private static MethodHandle findInheritedLifting(MethodHandles.Lookup lookup, Class<?> teamClass, String name,
+			Class<?> baseClass) {
+		for (Class<?> declaringClass = teamClass; declaringClass != null; declaringClass = declaringClass.getSuperclass()) {
+			for (Method method : declaringClass.getDeclaredMethods()) {
+				Class<?>[] parameterTypes = method.getParameterTypes();
+				if (method.getName().equals(name) && parameterTypes.length == 1 && parameterTypes[0] == baseClass
+						&& !Modifier.isStatic(method.getModifiers())) {
+					try {
+						method.setAccessible(true);
+						return lookup.unreflect(method);
+					} catch (IllegalAccessException e) {
+						IllegalAccessError ee = new IllegalAccessError();
+						ee.initCause(e);
+						throw ee;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
 }
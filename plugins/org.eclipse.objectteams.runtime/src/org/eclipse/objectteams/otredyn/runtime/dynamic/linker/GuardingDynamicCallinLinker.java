@@ -4,47 +4,64 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.eclipse.objectteams.otredyn.runtime.IBinding;
 import org.eclipse.objectteams.otredyn.runtime.TeamManager;
 import org.eclipse.objectteams.otredyn.runtime.dynamic.CallSiteContext;
 import org.eclipse.objectteams.otredyn.runtime.dynamic.DynamicCallSiteDescriptor;
 import org.eclipse.objectteams.otredyn.runtime.dynamic.ObjectTeamsLookup;
+import org.eclipse.objectteams.otredyn.runtime.dynamic.linker.support.ObjectTeamsTypeUtilities;
 import org.objectteams.ITeam;
+import org.objectteams.LiftingVetoException;
 
 import jdk.dynalink.linker.GuardedInvocation;
 import jdk.dynalink.linker.GuardingDynamicLinker;
 import jdk.dynalink.linker.LinkRequest;
 import jdk.dynalink.linker.LinkerServices;
-import jdk.dynalink.linker.support.Lookup;
 
+/**
+ * Links callin and callNext call sites to a method handle composition of all callins
+ * currently registered for the joinpoint, so that the JIT can inline the complete chain from the
+ * base method into the role methods.
+ * <p>
+ * Each linked composition is guarded by the SwitchPoint of its joinpoint, which the
+ * {@link TeamManager} invalidates on every team (de)activation affecting the joinpoint.
+ * Since a team may be active for some threads only, each callin in the composition additionally
+ * tests whether its team is active for the current thread.
+ * </p>
+ */
 public class GuardingDynamicCallinLinker implements GuardingDynamicLinker {
 
-	private static final Map<IBinding, MethodHandle> CALLIN_HANDLE_MAP;
+	private static final MethodHandle NON_NULL;
+	private static final MethodHandle IS_ACTIVE;
 
-	private static final MethodHandle LIFT;
-
-	private static MethodHandle LIFT(MethodHandles.Lookup lookup, IBinding binding, Class<?> teamClass) {
-		return MethodHandles.insertArguments(LIFT, 0, lookup, binding, teamClass);
+	static {
+		try {
+			NON_NULL = MethodHandles.lookup().findStatic(Objects.class, "nonNull",
+					MethodType.methodType(boolean.class, Object.class));
+			IS_ACTIVE = MethodHandles.lookup().findStatic(GuardingDynamicCallinLinker.class, "isActive",
+					MethodType.methodType(boolean.class, ITeam.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
 	}
 
-	@SuppressWarnings("unused")
-	private static MethodHandle lifting(MethodHandles.Lookup lookup, IBinding binding, Class<?> teamClass, ITeam team) {
-		MethodHandle roleMethod = ObjectTeamsLookup.findRoleMethod(lookup, binding, teamClass);
-		MethodHandle liftRoleHandle = ObjectTeamsLookup.findLifting(lookup, binding, teamClass);
-		MethodHandle liftRole = liftRoleHandle.bindTo(team);
-		return MethodHandles.filterArguments(roleMethod, 0, liftRole);
-	}
+	/** One callin binding of one active team, in precedence order. */
+	private static class ActiveCallin {
+		final ITeam team;
+		final IBinding binding;
 
-	static {
-		CALLIN_HANDLE_MAP = new HashMap<>();
-		LIFT = Lookup.findOwnStatic(MethodHandles.lookup(), "lifting", MethodHandle.class, MethodHandles.Lookup.class,
-				IBinding.class, Class.class, ITeam.class);
+		ActiveCallin(ITeam team, IBinding binding) {
+			this.team = team;
+			this.binding = binding;
+		}
 	}
 
 	@Override
@@ -55,127 +72,365 @@ public class GuardingDynamicCallinLinker implements GuardingDynamicLinker {
 		}
 
 		final DynamicCallSiteDescriptor desc = (DynamicCallSiteDescriptor) linkRequest.getCallSiteDescriptor();
-		GuardedInvocation result = null;
-		CallSiteContext ctx = CallSiteContext.contexts.get(desc.getJoinpointDescriptor());
+		CallSiteContext ctx = desc.getContext();
+		if (ctx == null)
+			ctx = CallSiteContext.contexts.get(desc.getJoinpointDescriptor());
+		if (ctx == null)
+			throw new LinkageError("No context for joinpoint " + desc.getJoinpointDescriptor());
 
 		switch (DynamicCallSiteDescriptor.getStandardOperation(desc)) {
 
 		case CALL:
+			// fetch the SwitchPoint before the teams, so any concurrent change invalidates this linkage:
+			SwitchPoint sp = TeamManager.getSwitchPoint(ctx.joinpointId);
+			List<ActiveCallin> callins = collectCallins(ctx.joinpointId, desc.getJoinpointDescriptor());
+			int start;
 			switch (desc.getFlags()) {
 			case DynamicCallSiteDescriptor.CALL_IN:
-				ctx.updateTeams();
-				ctx.resetIndex();
-				result = constructCallinComposition(desc, linkRequest, linkerServices, ctx);
+				start = 0;
 				break;
 			case DynamicCallSiteDescriptor.CALL_NEXT:
-				result = constructCallinComposition(desc, linkRequest, linkerServices, ctx);
+				start = findCallNextStart(callins, desc.getLookup().lookupClass());
 				break;
+			default:
+				throw new AssertionError(desc.getFlags());
 			}
-			break;
+			MethodHandle composition;
+			if (ctx.isStaticBase) {
+				MethodType type = desc.getMethodType();
+				if (desc.getFlags() == DynamicCallSiteDescriptor.CALL_NEXT) {
+					// callNext always passes a base argument, which is meaningless for a static base method
+					composition = constructCallinComposition(desc, ctx, callins, start, type.dropParameterTypes(0, 1));
+					composition = MethodHandles.dropArguments(composition, 0, type.parameterType(0));
+				} else {
+					composition = constructCallinComposition(desc, ctx, callins, start, type);
+				}
+			} else {
+				composition = constructCallinComposition(desc, ctx, callins, start, desc.getMethodType());
+			}
+			return new GuardedInvocation(composition, sp);
 		default:
 			// TODO other cases
 			throw new AssertionError(DynamicCallSiteDescriptor.getOperand(desc));
 		}
-		return result;
+	}
+
+	private static List<ActiveCallin> collectCallins(int joinpointId, String joinpointDescr) {
+		List<ActiveCallin> callins = new ArrayList<>();
+		// a team is registered once per callin id, but contributes all its bindings at once:
+		Set<ITeam> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (ITeam team : TeamManager.getTeams(joinpointId)) {
+			if (team == null || !seen.add(team))
+				continue;
+			for (IBinding binding : TeamManager.getPrecedenceSortedCallinBindings(team, joinpointDescr))
+				callins.add(new ActiveCallin(team, binding));
+		}
+		return callins;
 	}
 
 	/**
-	 * Constructs a composition of active callins. Before and after callins can be
-	 * called subsequently without guards. In case there is a replace callin it will
-	 * be called instead of the original function.
-	 * 
-	 * @param desc
-	 * @param linkRequest
-	 * @param linkerServices
-	 * @return
+	 * A callNext call site continues after the replace callin whose role method contains the
+	 * call site. If the same role class contributes several replace callins, the first is used.
 	 */
-	private GuardedInvocation constructCallinComposition(DynamicCallSiteDescriptor desc, LinkRequest linkRequest,
-			LinkerServices linkerServices, CallSiteContext context) {
-
-		final int joinpointId = TeamManager.getJoinpointId(desc.getJoinpointDescriptor());
-		final MethodType baseMethodType = desc.getMethodType();
-		// TODO: Replace with MHs
-
-		MethodHandle beforeComposition = null;
-		MethodHandle afterComposition = null;
-		MethodHandle replace = null;
-
-		HashSet<IBinding> processedBindings = context.proccessedBindings; // new HashSet<>();
-		boolean stopSearch = false;
+	private static int findCallNextStart(List<ActiveCallin> callins, Class<?> callNextRole) {
+		for (int i = 0; i < callins.size(); i++) {
+			ActiveCallin callin = callins.get(i);
+			if (callin.binding.getCallinModifier() != IBinding.CallinModifier.REPLACE)
+				continue;
+			Class<?> roleClass = ObjectTeamsTypeUtilities.getRoleImplementationType(
+					callin.binding.getRoleClassName(), callin.team.getClass());
+			if (callNextRole.isAssignableFrom(roleClass))
+				return i + 1;
+		}
+		return callins.size();
+	}
 
-		Iterator<ITeam> teamIterator = context.iterator();
+	/**
+	 * Constructs a composition of the active callins starting at the given index.
+	 * Before callins are invoked in precedence order, after callins in reverse precedence
+	 * order, both without further dispatch. In case there is a replace callin it will
+	 * be called instead of the original function, its base call links to the remaining callins.
+	 *
+	 * @param desc     the call site to link
+	 * @param context  the joinpoint of the call site
+	 * @param callins  all active callins of the joinpoint
+	 * @param start    index of the first callin to consider
+	 * @param type     the type of the composition: (base, args...)result or (args...)result for static base methods
+	 * @return a handle of the given type
+	 */
+	private MethodHandle constructCallinComposition(DynamicCallSiteDescriptor desc, CallSiteContext context,
+			List<ActiveCallin> callins, int start, MethodType type) {
 
-		while (teamIterator.hasNext()) {
-			ITeam currentTeam = teamIterator.next();
-			Class<?> teamClass = currentTeam.getClass();
+		final MethodHandles.Lookup lookup = desc.getLookup();
+		final MethodType voidType = type.changeReturnType(void.class);
 
-			List<IBinding> sortedCallinBindings = TeamManager.getPrecedenceSortedCallinBindings(currentTeam,
-					desc.getJoinpointDescriptor());
+		MethodHandle beforeComposition = null;
+		List<MethodHandle> afterCallins = new ArrayList<>();
+		MethodHandle compositionHandle = null;
 
-			sortedCallinBindings.removeIf(processedBindings::contains);
+		for (int i = start; i < callins.size() && compositionHandle == null; i++) {
+			ActiveCallin callin = callins.get(i);
 
-			for (IBinding binding : sortedCallinBindings) {
-				processedBindings.add(binding);
+			switch (callin.binding.getCallinModifier()) {
+			case BEFORE: {
+				MethodHandle before = createCallin(lookup, callin, voidType, context.isStaticBase, false,
+						MethodHandles.empty(voidType));
+				beforeComposition = (beforeComposition == null) ? before
+						: MethodHandles.foldArguments(before, beforeComposition);
+				break;
+			}
+			case AFTER: {
+				boolean passResult = type.returnType() != void.class;
+				MethodType afterType = passResult ? voidType.insertParameterTypes(0, type.returnType()) : voidType;
+				afterCallins.add(createCallin(lookup, callin, afterType, context.isStaticBase, passResult,
+						MethodHandles.empty(afterType)));
+				break;
+			}
+			case REPLACE:
+				// if the callin is not applicable proceed with the remaining callins:
+				MethodHandle remaining = constructCallinComposition(desc, context, callins, i + 1, type);
+				compositionHandle = createCallin(lookup, callin, type, context.isStaticBase, false, remaining);
+				break;
+			}
+		}
 
-				MethodHandle roleMethod = ObjectTeamsLookup.findRoleMethod(desc.getLookup(), binding, teamClass);
-				MethodHandle liftRoleHandle = ObjectTeamsLookup.findLifting(desc.getLookup(), binding, teamClass);
-				MethodHandle liftRole = liftRoleHandle.bindTo(currentTeam);
+		if (compositionHandle == null) {
+			if ((context.bmId & 0x8000_0000) != 0) {
+				// constructor: the original code has already been executed before the call site
+				compositionHandle = MethodHandles.empty(type);
+			} else if (context.isStaticBase) {
+				compositionHandle = ObjectTeamsLookup.findOrigStatic(lookup, context.baseClass);
+				compositionHandle = MethodHandles.insertArguments(compositionHandle, 0, context.bmId);
+				compositionHandle = compositionHandle.asCollector(Object[].class, type.parameterCount());
+			} else {
+				compositionHandle = ObjectTeamsLookup.findOrig(lookup, context.baseClass, type);
+				compositionHandle = MethodHandles.insertArguments(compositionHandle, 1, context.bmId);
+				compositionHandle = compositionHandle.asCollector(Object[].class, type.parameterCount() - 1);
+			}
+			compositionHandle = compositionHandle.asType(type);
+		}
 
-				MethodHandle callinHandle = MethodHandles.filterArguments(roleMethod, 0, liftRole);
+		if (beforeComposition != null) {
+			compositionHandle = MethodHandles.foldArguments(compositionHandle, beforeComposition);
+		}
 
-				switch (binding.getCallinModifier()) {
-				case BEFORE:
-					beforeComposition = (beforeComposition == null) ? callinHandle
-							: MethodHandles.foldArguments(beforeComposition, callinHandle);
-					break;
+		// the after callin with the highest precedence must run last, i.e., wrap the chain outermost:
+		for (int i = afterCallins.size() - 1; i >= 0; i--) {
+			compositionHandle = appendAfter(compositionHandle, afterCallins.get(i));
+		}
+		return compositionHandle;
+	}
 
-				case AFTER:
-					afterComposition = (afterComposition == null) ? callinHandle
-							: MethodHandles.foldArguments(afterComposition, callinHandle);
-					break;
+	/**
+	 * Create a handle invoking the role method of the given callin, if its team is active
+	 * for the current thread and the callin is applicable, otherwise the alternative.
+	 * <p>
+	 * The composition only depends on the registered teams and is shared by all threads,
+	 * hence the activation for the current thread must be checked on each invocation.
+	 * </p>
+	 */
+	private static MethodHandle createCallin(MethodHandles.Lookup lookup, ActiveCallin callin, MethodType type,
+			boolean isStaticBase, boolean hasResult, MethodHandle alternative) {
+		MethodHandle call = createApplicableCallin(lookup, callin, type, isStaticBase, hasResult, alternative);
+		MethodHandle isActive = MethodHandles.dropArguments(IS_ACTIVE.bindTo(callin.team), 0, type.parameterList());
+		return MethodHandles.guardWithTest(isActive, call, alternative);
+	}
 
-				case REPLACE:
-					replace = callinHandle;
-					stopSearch = true;
-					break;
-				}
-				// Check if we found a callin
-				if (stopSearch) {
-					break;
-				}
-			}
-			// Check if we found a callin
-			if (stopSearch) {
-				break;
+	/**
+	 * Create a handle invoking the role method of the given callin, if applicable.
+	 * <p>
+	 * The given type is (base, args...)X, or (args...)X for static base methods. After callins of non-void
+	 * joinpoints receive the base result as a leading argument, which is passed as an additional last argument
+	 * to role methods declaring it. Role methods may declare fewer parameters than the base method,
+	 * surplus base arguments are dropped.
+	 * </p><p>
+	 * If the base guard fails, the regular guard fails, or lifting is vetoed, the alternative is invoked instead.
+	 * The base guard is evaluated before lifting, the regular guard sees the lifted role.
+	 * </p>
+	 *
+	 * @param type         type of the resulting handle
+	 * @param isStaticBase whether the joinpoint is a static base method, hence no lifting
+	 * @param hasResult    whether the first argument is the base result of an after callin
+	 * @param alternative  handle of the given type to invoke when the callin is not applicable
+	 */
+	private static MethodHandle createApplicableCallin(MethodHandles.Lookup lookup, ActiveCallin callin, MethodType type,
+			boolean isStaticBase, boolean hasResult, MethodHandle alternative) {
+		IBinding binding = callin.binding;
+		Class<?> teamClass = callin.team.getClass();
+		final int basePos = hasResult ? 1 : 0;
+		final int argsPos = isStaticBase ? basePos : basePos + 1;
+		final int argCount = type.parameterCount() - argsPos;
+		MethodType booleanType = type.changeReturnType(boolean.class);
+
+		MethodHandle roleMethod = bindStaticRoleArguments(ObjectTeamsLookup.findRoleMethod(lookup, binding, teamClass),
+				callin.team);
+		// number of role method arguments besides the receiver of a non-static role method:
+		final int roleArgs = roleMethod.type().parameterCount() - (isStaticBase ? 0 : 1);
+		MethodHandle guard = ObjectTeamsLookup.findGuard(lookup, binding, teamClass);
+		boolean isRoleGuard = guard != null;
+		if (guard != null) {
+			MethodHandle staticGuard = bindStaticRoleArguments(guard, callin.team);
+			if (staticGuard != guard) {
+				guard = staticGuard; // guard of a static role method
+				isRoleGuard = false;
+			} else if (guard.type().parameterCount() > 0
+					&& guard.type().parameterType(0).isAssignableFrom(teamClass)) {
+				guard = guard.bindTo(callin.team); // team level guard
+				isRoleGuard = false;
 			}
 		}
+		MethodHandle baseGuard = ObjectTeamsLookup.findBaseGuard(lookup, binding, teamClass);
+		if (baseGuard != null) {
+			MethodHandle staticGuard = bindStaticRoleArguments(baseGuard, callin.team);
+			if (staticGuard != baseGuard)
+				baseGuard = staticGuard; // binding or role level base guard
+			else if (baseGuard.type().parameterCount() > 0 && baseGuard.type().parameterType(0).isAssignableFrom(teamClass))
+				baseGuard = baseGuard.bindTo(callin.team); // team level base guard
+		}
 
-		MethodHandle compositionHandle = null;
-		if (replace == null) {
-			compositionHandle = ObjectTeamsLookup.findOrig(desc.getLookup(), context.baseClass, baseMethodType);
-			compositionHandle = MethodHandles.insertArguments(compositionHandle, 1, context.bmId);
-			compositionHandle = compositionHandle.asCollector(Object[].class, 1);
-		} else {
-			compositionHandle = replace;
+		if (isStaticBase) {
+			if (isRoleGuard)
+				throw new LinkageError("Role level guard requires a role instance for static base method "
+						+ binding.getMemberName());
+			MethodHandle result = mapArguments(roleMethod, type, 0, argsPos, argCount, hasResult, binding);
+			if (guard != null)
+				result = MethodHandles.guardWithTest(
+						mapGuard(guard, roleArgs, booleanType, 0, argsPos, argCount, hasResult, binding), result,
+						alternative);
+			if (baseGuard != null) {
+				// like the callin wrapper, pass null as the base object of a static base method:
+				MethodHandle test = mapArguments(MethodHandles.insertArguments(baseGuard, 0, (Object) null), booleanType,
+						0, argsPos, argCount, hasResult, binding);
+				result = MethodHandles.guardWithTest(test, result, alternative);
+			}
+			return result;
 		}
 
-		if (beforeComposition != null) {
-			compositionHandle = MethodHandles.foldArguments(compositionHandle, beforeComposition);
+		// arguments of the role method and guard, once the role has been inserted at basePos:
+		Class<?> roleClass = roleMethod.type().parameterType(0);
+		MethodType withRole = type.insertParameterTypes(basePos, roleClass);
+		MethodHandle alternativeWithRole = MethodHandles.dropArguments(alternative, basePos, roleClass);
+
+		MethodHandle body = mapArguments(roleMethod, withRole, 1, argsPos + 1,
+				argCount, hasResult, binding, basePos);
+		if (guard != null) {
+			MethodHandle test = isRoleGuard
+					? mapGuard(guard, roleArgs, withRole.changeReturnType(boolean.class), 1, argsPos + 1, argCount, hasResult, binding, basePos)
+					: mapGuard(guard, roleArgs, withRole.changeReturnType(boolean.class), 0, argsPos + 1, argCount, hasResult, binding);
+			body = MethodHandles.guardWithTest(test, body, alternativeWithRole);
 		}
+		// lifting answers null if vetoed:
+		MethodHandle nonNull = MethodHandles.permuteArguments(NON_NULL.asType(MethodType.methodType(boolean.class, roleClass)),
+				withRole.changeReturnType(boolean.class), basePos);
+		body = MethodHandles.guardWithTest(nonNull, body, alternativeWithRole);
+
+		Class<?> baseType = type.parameterType(basePos);
+		MethodHandle lift = getLifting(lookup, callin).asType(MethodType.methodType(roleClass, baseType));
+		lift = MethodHandles.catchException(lift, LiftingVetoException.class,
+				MethodHandles.dropArguments(MethodHandles.constant(roleClass, null), 0, LiftingVetoException.class, baseType));
+		MethodHandle result = MethodHandles.foldArguments(body, basePos, lift);
+
+		if (baseGuard != null) {
+			MethodHandle test = mapArguments(baseGuard, booleanType, 1, argsPos, argCount, hasResult, binding, basePos);
+			result = MethodHandles.guardWithTest(test, result, alternative);
+		}
+		return result;
+	}
+
+	/**
+	 * Supply the synthetic leading arguments (dummy, team) of a static role method or predicate.
+	 *
+	 * @return the bound handle, or the given handle if it has no synthetic arguments
+	 */
+	private static MethodHandle bindStaticRoleArguments(MethodHandle handle, ITeam team) {
+		MethodType handleType = handle.type();
+		if (handleType.parameterCount() >= 2 && handleType.parameterType(0) == int.class
+				&& handleType.parameterType(1).isAssignableFrom(team.getClass()))
+			return MethodHandles.insertArguments(handle, 0, 0, team);
+		return handle;
+	}
 
-		if (afterComposition != null) {
-			// if compositionHandle returns a value it need to be ignored and stored for
-			// later
-//			compositionHandle = MethodHandles.foldArguments(afterComposition, compositionHandle);
+	/**
+	 * Map the parameters of the given regular guard like those of the role method, which declares
+	 * <code>roleArgs</code> parameters besides its receiver. A binding level guard of an after callin
+	 * additionally declares the base result as its last parameter, which is taken from position 0.
+	 */
+	private static MethodHandle mapGuard(MethodHandle guard, int roleArgs, MethodType type, int leading,
+			int argsPos, int argCount, boolean hasResult, IBinding binding, int... fixedPositions) {
+		MethodType guardType = guard.type();
+		int last = guardType.parameterCount() - 1;
+		if (hasResult && last + 1 - leading == roleArgs + 1) {
+			// move the result parameter behind the leading parameters and take it from position 0:
+			MethodType resultFirst = guardType.dropParameterTypes(last, last + 1)
+					.insertParameterTypes(leading, guardType.parameterType(last));
+			int[] reorder = new int[last + 1];
+			for (int i = 0; i < last; i++)
+				reorder[i] = i < leading ? i : i + 1;
+			reorder[last] = leading;
+			guard = MethodHandles.permuteArguments(guard, resultFirst, reorder);
+			fixedPositions = Arrays.copyOf(fixedPositions, leading + 1);
+			fixedPositions[leading++] = 0;
 		}
+		return mapArguments(guard, type, leading, argsPos, argCount, hasResult, binding, fixedPositions);
+	}
 
-		// TODO: Share a switchpoint for a joinpointid ?
-		SwitchPoint sp = TeamManager.getSwitchPoint(joinpointId);
-		if (sp == null) {
-			sp = new SwitchPoint();
-			TeamManager.registerSwitchPoint(sp, joinpointId);
+	/**
+	 * Map the parameters of the given handle onto the given type using {@link MethodHandles#permuteArguments}.
+	 * The first <code>leading</code> parameters of the handle are taken from the given fixed positions,
+	 * subsequent parameters from the base arguments starting at <code>argsPos</code>. If <code>passResult</code>
+	 * is set and the handle declares one surplus parameter, the result argument at position 0 is passed to it.
+	 * The return type is adjusted to the type's return type.
+	 */
+	private static MethodHandle mapArguments(MethodHandle handle, MethodType type, int leading, int argsPos,
+			int argCount, boolean passResult, IBinding binding, int... fixedPositions) {
+		int count = handle.type().parameterCount();
+		int consumedArgs = count - leading;
+		boolean withResult = passResult && consumedArgs == argCount + 1;
+		if (withResult)
+			consumedArgs--;
+		if (consumedArgs > argCount)
+			throw new LinkageError("Cannot adapt " + binding.getRoleClassName() + "." + binding.getRoleMethodName()
+					+ handle.type() + " to base method " + binding.getMemberName() + type);
+		int[] reorder = new int[count];
+		Class<?>[] ptypes = new Class<?>[count];
+		for (int i = 0; i < leading; i++) {
+			reorder[i] = fixedPositions[i];
+		}
+		for (int i = 0; i < consumedArgs; i++) {
+			reorder[leading + i] = argsPos + i;
 		}
-		return new GuardedInvocation(compositionHandle, sp);
+		if (withResult)
+			reorder[count - 1] = 0;
+		for (int i = 0; i < count; i++)
+			ptypes[i] = type.parameterType(reorder[i]);
+		MethodHandle adapted = handle.asType(MethodType.methodType(type.returnType(), ptypes));
+		return MethodHandles.permuteArguments(adapted, type, reorder);
 	}
 
+	@SuppressWarnings("unused")
+	private static boolean isActive(ITeam team) {
+		return team.isActive(Thread.currentThread());
+	}
+
+	private static MethodHandle getLifting(MethodHandles.Lookup lookup, ActiveCallin callin) {
+		MethodHandle liftRoleHandle = ObjectTeamsLookup.findLifting(lookup, callin.binding, callin.team.getClass());
+		return liftRoleHandle.bindTo(callin.team);
+	}
+
+	/**
+	 * Compose the given after callin to run after the given composition.
+	 * The after callin has the type (result, base, args...)void for non-void joinpoints.
+	 */
+	private static MethodHandle appendAfter(MethodHandle composition, MethodHandle after) {
+		MethodType type = composition.type();
+		if (type.returnType() == void.class) {
+			// foldArguments runs the combiner (composition) before the target (after):
+			return MethodHandles.foldArguments(after, composition);
+		}
+		// (result, base, args...)result: run after, then answer the result:
+		MethodHandle returnResult = MethodHandles.dropArguments(MethodHandles.identity(type.returnType()), 1,
+				type.parameterList());
+		MethodHandle afterThenReturn = MethodHandles.foldArguments(returnResult, after);
+		return MethodHandles.foldArguments(afterThenReturn, composition);
+	}
 }
@@ -1,11 +1,11 @@
 package org.eclipse.objectteams.otredyn.runtime.dynamic.linker.support;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class ObjectTeamsTypeUtilities {
 
-	public static final Map<String, Class<?>> TYPE_CACHE = new HashMap<>();
+	public static final Map<String, Class<?>> TYPE_CACHE = new ConcurrentHashMap<>();
 
 	private static final String SEPARATOR = "$__OT__";
 	private static final String ITF_SEPARATOR = "$";
@@ -0,0 +1,93 @@
+/**********************************************************************
+ * This file is part of the "Object Teams Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.objectteams;
+
+/**
+ * An activation scope allows to cheaply activate a team for the current thread
+ * for the duration of a short unit of work, like a request:
+ * <pre>
+ * ActivationScope scope = team.openActivationScope(); // once
+ * ...
+ * scope.enter();                                      // per request
+ * try {
+ *     ...
+ * } finally {
+ *     scope.exit();
+ * }
+ * ...
+ * scope.close();                                      // once
+ * </pre>
+ * While the scope is open, the team stays registered at its bound base classes, even if it
+ * is not active for any thread. Hence {@link #enter()} and {@link #exit()} only toggle the
+ * activation of the current thread, without locking or re-registering the team.
+ * <p>
+ * Within <code>enter()</code> and <code>exit()</code> the team is explicitly active for the
+ * current thread. Scopes may be nested, also with regular (de)activation; <code>exit()</code>
+ * does not change an activation state set by other means.
+ * </p>
+ */
+public final class ActivationScope implements AutoCloseable {
+
+	private final ITeam team;
+	private final TeamActivation activation;
+	private volatile boolean closed;
+
+	// scopes are created by ITeam.openActivationScope() via TeamActivation.openScope(ITeam)
+	ActivationScope(ITeam team, TeamActivation activation) {
+		this.team = team;
+		this.activation = activation;
+	}
+
+	/** Answer the team activated by this scope. */
+	public ITeam getTeam() {
+		return this.team;
+	}
+
+	/**
+	 * Activate the team for the current thread until the matching {@link #exit()}.
+	 * @throws IllegalStateException if this scope has been closed
+	 */
+	public void enter() {
+		if (this.closed)
+			throw new IllegalStateException("Activation scope is closed");
+		this.activation.enterScope();
+	}
+
+	/**
+	 * Undo the matching {@link #enter()} on the current thread.
+	 * @throws IllegalStateException if the current thread has not entered this scope
+	 */
+	public void exit() {
+		this.activation.exitScope();
+	}
+
+	/**
+	 * Close this scope, allowing the team to unregister from its base classes once it is
+	 * no longer active. Threads that are still inside the scope keep the team active until they exit,
+	 * in that case the team stays registered until its next deactivation.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (this.closed)
+				return;
+			this.closed = true;
+		}
+		this.activation.closeScope();
+		// unregister if no longer active, releasing no thread (ALL_THREADS never has an entry of its own):
+		this.team.deactivateForEndedThread(Team.ALL_THREADS);
+	}
+}
@@ -15,17 +15,32 @@
  **********************************************************************/
 package org.objectteams;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 /**
  * This class defines hash maps where both key and value are weak references.
- * It is implemented by delegating to a WeakHashMap and additionally
- * wrapping the value in a WeakReference.
+ * It is used as the role cache of a team, mapping base objects to roles.
+ * <p>
+ * By default keys are compared by identity, using {@link System#identityHashCode(Object)}
+ * and reference equality, so lifting never invokes <code>hashCode()</code> or <code>equals()</code>
+ * of a base class, which may be expensive or depend on mutable state.
+ * Comparing keys by equality can be requested using {@link #DoublyWeakHashMap(boolean)}.
+ * </p><p>
+ * The map is safe for concurrent use: {@link #get(Object)} and {@link #containsKey(Object)}
+ * take no lock, modifications lock only one of several segments.
+ * Each segment holds a hash table of immutable chains (only the value of an entry may change),
+ * so readers always see a consistent chain. Entries whose key has been garbage collected
+ * are expunged by the next modification of their segment, driven by a ReferenceQueue.
+ * </p><p>
+ * Null keys are not supported.
+ * </p>
  *
  * @author stephan
  * @since 0.7.0
@@ -34,68 +49,253 @@ import java.util.WeakHashMap;
  */
 public class DoublyWeakHashMap<K,V> implements Map<K,V> {
 
-	private WeakHashMap<K, WeakReference<V>> map;
+	private static final int SEGMENT_COUNT = 16; // must be a power of 2
+	private static final int SEGMENT_SHIFT = 28; // 32 - log2(SEGMENT_COUNT)
+	private static final int INITIAL_CAPACITY = 4; // per segment, must be a power of 2
 
+	/** An immutable link in a hash chain, except for its value. */
+	private static final class HashEntry<K,V> extends WeakReference<K> {
+		final int hash;
+		final HashEntry<K,V> next;
+		volatile WeakReference<V> value;
+
+		HashEntry(K key, int hash, HashEntry<K,V> next, WeakReference<V> value, ReferenceQueue<K> queue) {
+			super(key, queue);
+			this.hash = hash;
+			this.next = next;
+			this.value = value;
+		}
+	}
+
+	/** One independently locked part of the map. All modifications are synchronized on the segment. */
+	private static final class Segment<K,V> {
+		final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+		final boolean useEquals;
+		/** Written while holding the lock, after each structural change, to publish it to readers. */
+		volatile HashEntry<K,V>[] table;
+		volatile int count;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Segment(boolean useEquals) {
+			this.useEquals = useEquals;
+			this.table = new HashEntry[INITIAL_CAPACITY];
+		}
+
+		HashEntry<K,V> find(Object key, int hash) {
+			HashEntry<K,V>[] tab = this.table;
+			for (HashEntry<K,V> e = tab[hash & (tab.length-1)]; e != null; e = e.next)
+				if (e.hash == hash) {
+					Object k = e.get();
+					if (k != null && (k == key || (this.useEquals && k.equals(key))))
+						return e;
+				}
+			return null;
+		}
+
+		synchronized V put(K key, int hash, V value) {
+			expungeStaleEntries();
+			HashEntry<K,V> e = find(key, hash);
+			if (e != null) {
+				WeakReference<V> old = e.value;
+				e.value = new WeakReference<V>(value);
+				return old == null ? null : old.get();
+			}
+			HashEntry<K,V>[] tab = this.table;
+			if (this.count >= tab.length - (tab.length >>> 2))
+				tab = rehash(tab);
+			int i = hash & (tab.length-1);
+			tab[i] = new HashEntry<K,V>(key, hash, tab[i], new WeakReference<V>(value), this.queue);
+			this.count++;
+			this.table = tab; // publish
+			return null;
+		}
+
+		synchronized V remove(Object key, int hash) {
+			expungeStaleEntries();
+			HashEntry<K,V> e = find(key, hash);
+			if (e == null)
+				return null;
+			unlink(e);
+			WeakReference<V> value = e.value;
+			return value == null ? null : value.get();
+		}
+
+		synchronized void clear() {
+			expungeStaleEntries();
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			HashEntry<K,V>[] tab = new HashEntry[INITIAL_CAPACITY];
+			this.count = 0;
+			this.table = tab;
+		}
+
+		// caller must hold the monitor of this
+		private void expungeStaleEntries() {
+			Reference<? extends K> ref;
+			while ((ref = this.queue.poll()) != null) {
+				@SuppressWarnings("unchecked")
+				HashEntry<K,V> stale = (HashEntry<K,V>) ref;
+				unlink(stale);
+			}
+		}
+
+		// caller must hold the monitor of this
+		private void unlink(HashEntry<K,V> entry) {
+			HashEntry<K,V>[] tab = this.table;
+			int i = entry.hash & (tab.length-1);
+			HashEntry<K,V> first = tab[i];
+			HashEntry<K,V> e = first;
+			while (e != null && e != entry)
+				e = e.next;
+			if (e == null)
+				return; // already dropped during rehash
+			// copy the chain prefix in front of the removed entry, the suffix is shared:
+			HashEntry<K,V> newFirst = entry.next;
+			for (HashEntry<K,V> p = first; p != entry; p = p.next) {
+				K k = p.get();
+				if (k != null)
+					newFirst = new HashEntry<K,V>(k, p.hash, newFirst, p.value, this.queue);
+				else
+					this.count--; // drop stale entry on the way
+			}
+			tab[i] = newFirst;
+			this.count--;
+			this.table = tab; // publish
+		}
+
+		// caller must hold the monitor of this
+		private HashEntry<K,V>[] rehash(HashEntry<K,V>[] oldTable) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			HashEntry<K,V>[] newTable = new HashEntry[oldTable.length << 1];
+			int mask = newTable.length - 1;
+			int newCount = 0;
+			for (HashEntry<K,V> first : oldTable)
+				for (HashEntry<K,V> e = first; e != null; e = e.next) {
+					K k = e.get();
+					if (k != null) {
+						int i = e.hash & mask;
+						newTable[i] = new HashEntry<K,V>(k, e.hash, newTable[i], e.value, this.queue);
+						newCount++;
+					}
+				}
+			this.count = newCount;
+			return newTable;
+		}
+	}
+
+	private final Segment<K,V>[] segments;
+	private final boolean useEquals;
+
+	/** Create a map comparing keys by identity, as used for the role cache of a team. */
 	public DoublyWeakHashMap() {
-		this.map = new WeakHashMap<K, WeakReference<V>>();
+		this(false);
+	}
+
+	/**
+	 * Create a map comparing keys either by identity or using <code>equals()</code> and <code>hashCode()</code>.
+	 * @param useEquals whether keys should be compared by equality rather than identity
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public DoublyWeakHashMap(boolean useEquals) {
+		this.useEquals = useEquals;
+		this.segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++)
+			this.segments[i] = new Segment<K,V>(useEquals);
+	}
+
+	private int hash(Object key) {
+		int h = this.useEquals ? key.hashCode() : System.identityHashCode(key);
+		h ^= (h >>> 16);
+		return h * 0x9E3779B9; // spread into the high bits used for segment selection
+	}
+
+	private Segment<K,V> segmentFor(int hash) {
+		return this.segments[hash >>> SEGMENT_SHIFT];
 	}
 
 	public int size() {
-		return this.map.size();
+		int size = 0;
+		for (Segment<K,V> segment : this.segments)
+			size += segment.count;
+		return size;
 	}
 
 	public boolean isEmpty() {
-		return this.map.isEmpty();
+		return size() == 0;
 	}
 
 	// used from hasRole() and lifting (duplicate role check)
 	public boolean containsKey(Object key) {
-		return this.map.containsKey(key);
+		if (key == null)
+			return false;
+		int hash = hash(key);
+		return segmentFor(hash).find(key, hash) != null;
 	}
 
 	public boolean containsValue(Object value) {
 		throw new UnsupportedFeatureException("Method containsValue is not implemented for internal class DoublyWeakHashMap.");
 	}
 
-	// used from getRole()
+	// used from getRole() and lifting
 	public V get(Object key) {
-		WeakReference<V> valRef = this.map.get(key);
+		if (key == null)
+			return null;
+		int hash = hash(key);
+		HashEntry<K,V> e = segmentFor(hash).find(key, hash);
+		if (e == null)
+			return null;
+		WeakReference<V> valRef = e.value;
 		return valRef == null ? null : valRef.get();
 	}
 
 	// used from migrateToBase() and lifting constructor
-	public synchronized V put(K key, V value) {
-		this.map.put(key, new WeakReference<V>(value));
+	public V put(K key, V value) {
+		int hash = hash(key);
+		segmentFor(hash).put(key, hash, value);
 		return value;
 	}
 
 	// used from unregisterRole(), migrateToBase()
-	public synchronized V remove(Object key) {
-		WeakReference<V> value = this.map.remove(key);
-		return (value == null) ? null : value.get();
+	public V remove(Object key) {
+		if (key == null)
+			return null;
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash);
 	}
 
 	public void putAll(Map<? extends K, ? extends V> t) {
 		for (Entry<? extends K, ? extends V> entry : t.entrySet())
-			this.map.put(entry.getKey(), new WeakReference<V>(entry.getValue()));
+			put(entry.getKey(), entry.getValue());
 	}
 
 	public void clear() {
-		this.map.clear();
+		for (Segment<K,V> segment : this.segments)
+			segment.clear();
 	}
 
+	/** Answer a snapshot of the keys that have not been garbage collected. */
 	public Set<K> keySet() {
-		return this.map.keySet();
+		Set<K> result = new HashSet<K>();
+		for (Segment<K,V> segment : this.segments)
+			for (HashEntry<K,V> first : segment.table)
+				for (HashEntry<K,V> e = first; e != null; e = e.next) {
+					K key = e.get();
+					if (key != null)
+						result.add(key);
+				}
+		return result;
 	}
 
 	// used from getAllRoles() et al.
-	public synchronized Collection<V> values() {
-		ArrayList<V> result = new ArrayList<V>(this.map.size());
-		for (WeakReference<V> valRef : this.map.values()) {
-			V value = valRef.get();
-			if (value != null)
-				result.add(value);
-		}
+	public Collection<V> values() {
+		ArrayList<V> result = new ArrayList<V>(size());
+		for (Segment<K,V> segment : this.segments)
+			for (HashEntry<K,V> first : segment.table)
+				for (HashEntry<K,V> e = first; e != null; e = e.next) {
+					WeakReference<V> valRef = e.value;
+					V value = (e.get() != null && valRef != null) ? valRef.get() : null;
+					if (value != null)
+						result.add(value);
+				}
 		return result;
 	}
 
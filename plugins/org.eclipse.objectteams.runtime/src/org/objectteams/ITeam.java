@@ -64,6 +64,15 @@ public interface ITeam {
 	 */
 	public abstract void deactivate(Thread thread);
 
+	/**
+	 * Opens an activation scope for this team, see {@link ActivationScope}.
+	 * The team is registered at its bound base classes until the scope is closed,
+	 * entering and exiting the scope then activates the team for the current thread
+	 * without further registration.
+	 * @return a new scope, to be closed when it is no longer needed.
+	 */
+	public abstract ActivationScope openActivationScope();
+
 	/**
 	 * Checks, if the team instance is active for the current thread.
 	 * @return true, if the team is active, false else.
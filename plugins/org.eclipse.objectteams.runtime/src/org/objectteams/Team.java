@@ -18,9 +18,6 @@ package org.objectteams;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.WeakHashMap;
 
 /**
  *  This is the root class of all team definitions.
@@ -48,6 +45,8 @@ public /* team */ class Team implements ITeam {
 	 *  Without <code>registrationLock</code> this situation could easily deadlock:
 	 *  Thread1: <pre>t.activate() -> Base._OT$addTeam()</pre>: owns t, waits for Base.
 	 *  Thread2: <pre>b.bm() (initial wrapper) -> t.isActive()</pre>: owns Base, waits for t.
+	 *  Queries via <code>isActive()</code> for the current thread take no lock at all,
+	 *  the per-thread activation state is kept in {@link TeamActivation}.
 	 */
 
 	/**
@@ -110,23 +109,12 @@ public /* team */ class Team implements ITeam {
 	private static final int _OT$REGISTERED = 1;
 	private  int _OT$registrationState = _OT$UNREGISTERED;
 
-	private boolean _OT$globalActive = false;
-
-	private ThreadLocal<Integer> _OT$implicitActivationsPerThread = new ThreadLocal<Integer>() {
-		@Override
-		protected synchronized Integer initialValue() {
-			return Integer.valueOf(0);
-		}
-	};
-
-	private boolean _OT$lazyGlobalActiveFlag = false;
-
 	/**
-	 * <code>_OT$activatedThreads</code> contains all threads for which this team instance is active.
-	 * key		= activated thread
-	 * value 	= Boolean(true) for explicit activation | Boolean(false) for implicit activation.
+	 * <code>_OT$activation</code> holds the activation state of this team instance per thread
+	 * (inactive, implicitly active or explicitly active) and the nesting depth of implicit activations.
+	 * Queries for the current thread do not block, see {@link TeamActivation}.
 	 */
-	private WeakHashMap<Thread, Boolean> _OT$activatedThreads = new WeakHashMap<Thread, Boolean>();
+	private TeamActivation _OT$activation = new TeamActivation();
 
 	/** This lock is used to protect activate/deactivate methods <strong>including</strong>
 	 *  the calls to doRegistration/doUnregistration.
@@ -155,12 +143,11 @@ public /* team */ class Team implements ITeam {
 		synchronized (this._OT$registrationLock) {
 			synchronized (this) {
 				if (thread.equals(ALL_THREADS)) {
-					_OT$globalActive = true;
-					_OT$lazyGlobalActiveFlag = true;
-					TeamThreadManager.addGlobalActiveTeam(this);
+					// lazy: covers all current and future threads without enumerating them
+					_OT$activation.setGlobal(true);
 				} else { // activation only for 'thread':
 					// register 'thread' as active:
-					_OT$activatedThreads.put(thread, Boolean.TRUE);
+					_OT$activation.setState(thread, TeamActivation.EXPLICIT_ACTIVE);
 				}
 			} // release this before calling synchronized base class methods
 			doRegistration(); //$Debug(ActivateMethod)
@@ -176,23 +163,15 @@ public /* team */ class Team implements ITeam {
 			boolean shouldUnregister= false;
 			synchronized(this) {
 				if (thread.equals(ALL_THREADS)) {
-					_OT$globalActive = false;
-					TeamThreadManager.removeGlobalActiveTeam(this);
 					// unregister all threads:
-					_OT$activatedThreads.clear();
+					_OT$activation.setGlobal(false);
 					shouldUnregister= true;
-				} else { // deactivation only for 'thread':
-					if (_OT$lazyGlobalActiveFlag) {
-						// be eager now: activate for all (other) threads:
-						_OT$activateForAllThreads();
-					}
-					// deactivate for 'thread', no longer active:
-					_OT$activatedThreads.remove(thread);
-					if (!_OT$lazyGlobalActiveFlag  && _OT$activatedThreads.isEmpty()) {
+				} else { // deactivation only for 'thread' (if globally active: excluding 'thread' only):
+					_OT$activation.deactivate(thread);
+					if (!_OT$activation.hasActiveThreads()) {
 						shouldUnregister= true;
 					}
 				}
-				_OT$lazyGlobalActiveFlag = false;
 			} // release this before calling synchronized base class methods
 			if (shouldUnregister) 		//$Debug(DeactivateMethod)
 				doUnregistration();
@@ -203,8 +182,8 @@ public /* team */ class Team implements ITeam {
 		synchronized (_OT$registrationLock) {
 			boolean shouldUnregister= false;
 			synchronized (this) {
-				_OT$activatedThreads.remove(thread);
-				if (!_OT$lazyGlobalActiveFlag  && _OT$activatedThreads.isEmpty())
+				_OT$activation.release(thread);
+				if (!_OT$activation.hasActiveThreads())
 					shouldUnregister= true;
 			}
 			if (shouldUnregister)
@@ -212,12 +191,14 @@ public /* team */ class Team implements ITeam {
 		}
 	}
 
-	private void _OT$activateForAllThreads() {
-		HashSet threads = TeamThreadManager.getExistingThreads();
-		Iterator it = threads.iterator();
-		while (it.hasNext()) {
-			Thread a_thread = (Thread) it.next();
-			activate(a_thread); // use smaller activate version (no ALL_THREADS, no registerAtBases,...
+	/**
+	 * {@inheritDoc}
+	 */
+	public ActivationScope openActivationScope() {
+		synchronized (this._OT$registrationLock) {
+			ActivationScope scope = _OT$activation.openScope(this);
+			doRegistration();
+			return scope;
 		}
 	}
 
@@ -232,14 +213,13 @@ public /* team */ class Team implements ITeam {
 			synchronized (this) {
 				// this method is used for debugging purpose (team monitor)
 				Thread currentThread = Thread.currentThread();
-				if (!_OT$activatedThreads.containsKey(currentThread)) {
+				if (!_OT$activation.isActive()) {
 					// register 'thread' as active:
-					_OT$activatedThreads.put(currentThread, Boolean.FALSE);
+					_OT$activation.setState(currentThread, TeamActivation.IMPLICIT_ACTIVE);
 					shouldRegister= true;
 				}
 				//	increment thread local implicit activation counter:
-				int implActCount = (_OT$implicitActivationsPerThread.get()).intValue();
-				_OT$implicitActivationsPerThread.set(Integer.valueOf(implActCount + 1 ));
+				_OT$activation.incrementImplicitActivations();
 			}
 			if (shouldRegister) //$Debug(ImplicitActivateMethod)
 				doRegistration();
@@ -258,23 +238,18 @@ public /* team */ class Team implements ITeam {
 			synchronized(this) {
 				// this method is used for debugging purpose (team monitor)
 				Thread currentThread = Thread.currentThread();
-				boolean explicitlyActivated = false;
-				if (_OT$activatedThreads.containsKey(currentThread)) {
-					explicitlyActivated = ((Boolean) _OT$activatedThreads.get(currentThread)).booleanValue();
-				}
-				if (!explicitlyActivated
-						&& !_OT$lazyGlobalActiveFlag // no explicit activation overriding the implicit one
-						&& ((_OT$implicitActivationsPerThread.get()).intValue() == 1))  // this is the last implicit activation
+				boolean explicitlyActivated = (_OT$activation.getState() == TeamActivation.EXPLICIT_ACTIVE); // includes global activation
+				if (!explicitlyActivated // no explicit activation overriding the implicit one
+						&& (_OT$activation.getImplicitActivations() == 1))  // this is the last implicit activation
 				{
-					_OT$activatedThreads.remove(currentThread);
-					if (_OT$activatedThreads.isEmpty()) // there are not other threads for which this theam is active
+					_OT$activation.deactivate(currentThread);
+					if (!_OT$activation.hasActiveThreads()) // there are not other threads for which this theam is active
 					{
 						shouldUnregister= true;
 					}
 				}
 				// decrement thread local implicit activaion counter:
-				int implActCount = (_OT$implicitActivationsPerThread.get()).intValue();
-				_OT$implicitActivationsPerThread.set(Integer.valueOf(implActCount - 1));
+				_OT$activation.decrementImplicitActivations();
 			}
 			if (shouldUnregister) //$Debug(ImplicitDeactivateMethod)
 				doUnregistration();
@@ -289,6 +264,7 @@ public /* team */ class Team implements ITeam {
 	 * @param inheritable whether or not activation should be inheritable to new threads
 	 */
 	public void setInheritableActivation(boolean inheritable) {
+		_OT$activation.setInheritable(inheritable);
 		if (inheritable)
 			TeamThreadManager.registerTeamForActivationInheritance(this);
 		else
@@ -297,7 +273,7 @@ public /* team */ class Team implements ITeam {
 
 	// not API (for use by the TeamThreadManager)
 	public boolean internalIsActiveSpecificallyFor(Thread t) {
-		return this._OT$activatedThreads.containsKey(t);
+		return this._OT$activation.isActiveSpecificallyFor(t);
 	}
 
 	/**
@@ -312,41 +288,26 @@ public /* team */ class Team implements ITeam {
 	 */
 	public final boolean isActive(Thread thread) {
 		if (thread.equals(ALL_THREADS)) {
-			return _OT$globalActive;
+			return _OT$activation.isGlobal();
 		}
-		if (_OT$lazyGlobalActiveFlag) {
-				return true;
-		} else {
-			//if (!TeamThreadManager.getExistingThreads().contains(thread)) { // this thread is already finished!
-			if (!thread.isAlive()) { // this thread is already finished!
-				throw new IllegalThreadStateException("Called 'isActive(...)' for a thread which is no longer running!");
-			}
-			return _OT$activatedThreads.containsKey(thread);
+		if (thread == Thread.currentThread()) // fast path, no locking
+			return _OT$activation.isActive();
+		if (!_OT$activation.isGlobal() && !thread.isAlive()) { // this thread is already finished!
+			throw new IllegalThreadStateException("Called 'isActive(...)' for a thread which is no longer running!");
 		}
+		return _OT$activation.isActive(thread);
 	}
 
 // ***** for restoring the activation state after a within block:	---->*****
-	private static final int _OT$INACTIVE = 0;
-	private static final int _OT$IMPLICIT_ACTIVE = 1;
-	private static final int _OT$EXPLICIT_ACTIVE = 2;
+	private static final int _OT$INACTIVE = TeamActivation.INACTIVE;
+	private static final int _OT$IMPLICIT_ACTIVE = TeamActivation.IMPLICIT_ACTIVE;
+	private static final int _OT$EXPLICIT_ACTIVE = TeamActivation.EXPLICIT_ACTIVE;
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public synchronized int _OT$saveActivationState() {
-		int old_state = _OT$INACTIVE;
-		if (_OT$lazyGlobalActiveFlag) {
-			old_state = _OT$EXPLICIT_ACTIVE;
-		} else {
-			Thread current_thread = Thread.currentThread();
-			if (_OT$activatedThreads.containsKey(current_thread)) {
-				old_state = _OT$IMPLICIT_ACTIVE;
-				if (((Boolean)_OT$activatedThreads.get(current_thread)).booleanValue()) {
-					old_state = _OT$EXPLICIT_ACTIVE;
-				}
-			}
-		}
-		return old_state;
+		return _OT$activation.getState(); // global activation counts as explicit
 	}
 
 	/**
@@ -359,7 +320,7 @@ public /* team */ class Team implements ITeam {
 			else { // team was active before: has to be reactivated:
 				boolean explicit = (old_state == _OT$EXPLICIT_ACTIVE);
 				synchronized (this) {
-					_OT$activatedThreads.put(Thread.currentThread(), Boolean.valueOf(explicit));
+					_OT$activation.setState(Thread.currentThread(), explicit ? _OT$EXPLICIT_ACTIVE : _OT$IMPLICIT_ACTIVE);
 				}
 				doRegistration();
 			}
@@ -379,6 +340,8 @@ public /* team */ class Team implements ITeam {
 	}
 
 	private void doUnregistration() {
+		if (_OT$activation.hasOpenScopes())
+			return; // open activation scopes rely on the registration
 		if (_OT$registrationState == _OT$REGISTERED) {
 			if (_OT$teamManager != null)
 				_OT$teamManager.handleTeamStateChange(this, ITeamManager.TeamStateChange.UNREGISTER);
@@ -499,7 +462,7 @@ public /* team */ class Team implements ITeam {
 	 * {@link #readGlobalActivationState(ObjectInputStream)} from its readObject().
 	 */
 	protected void writeGlobalActivationState(ObjectOutputStream out) throws IOException {
-		out.writeBoolean(this._OT$globalActive);
+		out.writeBoolean(this._OT$activation.isGlobal());
 	}
 	/**
 	 * If a serializable team wishes to persist its global activation status it must
@@ -509,9 +472,8 @@ public /* team */ class Team implements ITeam {
 	 * correspondingly during deserialization when this method is called.
 	 */
 	protected void readGlobalActivationState(ObjectInputStream in) throws IOException {
-		this._OT$globalActive = in.readBoolean();
-		if (this._OT$globalActive) {
-			this._OT$lazyGlobalActiveFlag = true;
+		if (in.readBoolean()) {
+			this._OT$activation.setGlobal(true);
 			this.doRegistration();
 		}
 	}
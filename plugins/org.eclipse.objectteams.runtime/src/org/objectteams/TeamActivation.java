@@ -0,0 +1,458 @@
+/**********************************************************************
+ * This file is part of the "Object Teams Runtime Environment"
+ *
+ * Copyright 2026 Object Teams contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Please visit http://www.eclipse.org/objectteams for updates and contact.
+ *
+ * Contributors:
+ *		Object Teams contributors - Initial API and implementation
+ **********************************************************************/
+package org.objectteams;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is for internal use, only.
+ *
+ * Stores the activation state of one team instance, globally and per thread.
+ * <p>
+ * Each thread for which the team has been (de)activated or queried owns one {@link Entry}.
+ * The current thread finds its entry through a ThreadLocal, so querying the activation
+ * for the current thread is a lock-free read of a volatile field.
+ * Entries are also registered in a concurrent map keyed by thread id, so that other threads
+ * can query or (de)activate the team for a given thread and find the same entry. Neither
+ * queries nor the first lookup by a thread take a lock. An entry references its thread weakly,
+ * entries of threads that have been garbage collected are expunged when the next thread
+ * registers, or when asking {@link #hasActiveThreads()}.
+ * All modifications of activation states are synchronized on this object.
+ * </p><p>
+ * Global activation never enumerates threads: while the team is globally active,
+ * every thread is active unless its entry is {@link #EXCLUDED}, which records
+ * a deactivation for that specific thread. Threads created later are covered without
+ * any notification.
+ * </p><p>
+ * If activation is inheritable, a thread for which the team is active passes an
+ * explicit activation to each thread it creates, via an InheritableThreadLocal.
+ * This happens at thread construction and thus requires no weaving of <code>run()</code>
+ * (which does not exist, e.g., for virtual threads running a lambda).
+ * </p><p>
+ * Entering an {@link ActivationScope} only sets a flag in the entry of the current thread,
+ * taking no lock and writing no shared state. While the flag is set, the team is explicitly
+ * active for that thread, regardless of its state. Fast paths only need to know whether
+ * scopes are in use at all, which changes when scopes are opened or closed, not per entry.
+ * </p>
+ */
+public final class TeamActivation {
+
+	public static final int INACTIVE = 0;
+	public static final int IMPLICIT_ACTIVE = 1;
+	public static final int EXPLICIT_ACTIVE = 2;
+	/** Internal state: deactivated for one thread while the team is globally active. */
+	private static final int EXCLUDED = -1;
+
+	/** Activation state of the team for one thread. */
+	private static final class Entry {
+		/** One of EXCLUDED, INACTIVE, IMPLICIT_ACTIVE, EXPLICIT_ACTIVE; written while holding the TeamActivation monitor. */
+		volatile int state;
+		/** Nesting depth of implicit activations, accessed by the owning thread only. */
+		int implicitActivations;
+		/** Nesting depth of activation scopes, accessed by the owning thread only. */
+		int scopeDepth;
+		/** Whether the owning thread is inside an activation scope, written by the owning thread only. */
+		volatile boolean scoped;
+
+		/** The owning thread, null while an inherited entry has not yet been claimed by its thread. */
+		Owner owner;
+		/** For an entry created by inheritance: its key in inheritedEntries. */
+		Inheritance inheritance;
+
+		Entry(int state) {
+			this.state = state;
+		}
+	}
+
+	/** Weak reference to an inherited entry, enqueued if its thread ends without claiming the entry. */
+	private static final class Inheritance extends WeakReference<Entry> {
+		Inheritance(Entry entry, ReferenceQueue<Entry> queue) {
+			super(entry, queue);
+		}
+	}
+
+	/** Weak reference from an entry to its thread, enqueued once the thread has been garbage collected. */
+	private static final class Owner extends WeakReference<Thread> {
+		final Long threadId;
+		final Entry entry;
+
+		Owner(Thread thread, Entry entry, ReferenceQueue<Thread> queue) {
+			super(thread, queue);
+			this.threadId = thread.getId();
+			this.entry = entry;
+		}
+	}
+
+	private final ThreadLocal<Entry> currentEntry = new ThreadLocal<Entry>();
+	private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+	private final ReferenceQueue<Thread> collectedThreads = new ReferenceQueue<Thread>();
+	/**
+	 * Entries passed to new threads that have not yet been claimed by their thread.
+	 * These are always active, deactivating them removes them from this map.
+	 */
+	private final ConcurrentHashMap<Inheritance, Boolean> inheritedEntries = new ConcurrentHashMap<Inheritance, Boolean>();
+	private final ReferenceQueue<Entry> unclaimedEntries = new ReferenceQueue<Entry>();
+	/** Number of entries whose state is IMPLICIT_ACTIVE or EXPLICIT_ACTIVE, including unclaimed inherited entries. */
+	private final AtomicInteger activeCount = new AtomicInteger();
+	/** Number of entries whose state is EXCLUDED. */
+	private volatile int excludedCount;
+	/** Number of open activation scopes, written while holding the monitor of this. */
+	private volatile int openScopes;
+	/** Whether scopes are open, or threads are still inside a closed scope. Written while holding the monitor of this. */
+	private volatile boolean scopesInUse;
+	private volatile boolean global;
+	private volatile boolean inheritable;
+	/** Created when activation first becomes inheritable, holds the same entry as currentEntry. */
+	private volatile InheritableThreadLocal<Entry> inheritableEntry;
+
+	/** Answer whether the team is globally active. */
+	public boolean isGlobal() {
+		return this.global;
+	}
+
+	/**
+	 * Globally (de)activate the team.
+	 * Activation forgets all per-thread deactivations, deactivation forgets all per-thread activations.
+	 */
+	public synchronized void setGlobal(boolean active) {
+		if (active) {
+			if (this.excludedCount > 0)
+				for (Entry entry : this.entries.values())
+					if (entry.state == EXCLUDED)
+						entry.state = INACTIVE;
+			this.excludedCount = 0;
+		} else {
+			clear();
+		}
+		this.global = active;
+	}
+
+	/**
+	 * Answer the activation state for the current thread, as one of INACTIVE, IMPLICIT_ACTIVE, EXPLICIT_ACTIVE.
+	 * Global activation counts as explicit activation.
+	 * Does not block once the thread is known.
+	 */
+	public int getState() {
+		if (this.global && this.excludedCount == 0 && this.activeCount.get() == 0)
+			return EXPLICIT_ACTIVE;
+		Entry entry = currentEntry();
+		if (entry.scoped)
+			return EXPLICIT_ACTIVE;
+		int state = entry.state;
+		if (this.global) {
+			switch (state) {
+			case EXCLUDED:			return INACTIVE;
+			case IMPLICIT_ACTIVE: 	return IMPLICIT_ACTIVE;
+			default:				return EXPLICIT_ACTIVE;
+			}
+		}
+		return state;
+	}
+
+	/** Answer whether the team is active for the current thread. Does not block once the thread is known. */
+	public boolean isActive() {
+		if (this.global) {
+			if (this.excludedCount == 0) // fast path, not even touching the ThreadLocal
+				return true;
+			Entry entry = currentEntry();
+			return entry.state != EXCLUDED || entry.scoped;
+		}
+		if (this.activeCount.get() == 0 && !this.scopesInUse)
+			return false;
+		Entry entry = currentEntry();
+		return entry.state > INACTIVE || entry.scoped;
+	}
+
+	/**
+	 * Answer whether the team is active for the given thread. Does not block.
+	 * For the current thread this includes an activation inherited from the creating thread,
+	 * another thread's inherited activation is only seen once that thread has used the team.
+	 */
+	public boolean isActive(Thread thread) {
+		if (thread == Thread.currentThread())
+			return isActive();
+		Entry entry = this.entries.get(thread.getId());
+		if (this.global)
+			return entry == null || entry.state != EXCLUDED || entry.scoped;
+		return entry != null && (entry.state > INACTIVE || entry.scoped);
+	}
+
+	/**
+	 * Answer whether the team has been activated specifically for the given thread, disregarding global activation.
+	 * Like {@link #isActive(Thread)} this includes an inherited activation of the current thread.
+	 */
+	public boolean isActiveSpecificallyFor(Thread thread) {
+		Entry entry = (thread == Thread.currentThread()) ? currentEntry() : this.entries.get(thread.getId());
+		return entry != null && (entry.state > INACTIVE || entry.scoped);
+	}
+
+	/** Set the activation state for the given thread to IMPLICIT_ACTIVE or EXPLICIT_ACTIVE. */
+	public synchronized void setState(Thread thread, int state) {
+		Entry entry = (thread == Thread.currentThread()) ? currentEntry() : getEntry(thread);
+		setState(entry, state);
+	}
+
+	/** Deactivate for the given thread. While the team is globally active, this excludes the thread from the global activation. */
+	public synchronized void deactivate(Thread thread) {
+		Entry entry = (thread == Thread.currentThread()) ? currentEntry() : getEntry(thread);
+		setState(entry, this.global ? EXCLUDED : INACTIVE);
+	}
+
+	/**
+	 * Undo an activation that has been passed to the given thread when its <code>run()</code> started,
+	 * see {@link TeamThreadManager}. The thread may continue (e.g., as an executor worker),
+	 * so only the passed activation is revoked: an explicit (de)activation by the thread itself
+	 * and open activation scopes are kept. Entries of ended threads are expunged once the thread has been collected.
+	 */
+	public synchronized void release(Thread thread) {
+		Entry entry = (thread == Thread.currentThread()) ? this.currentEntry.get() : this.entries.get(thread.getId());
+		// the activation was only passed if the thread was inactive before:
+		if (entry != null && entry.state == EXPLICIT_ACTIVE)
+			setState(entry, this.global ? EXCLUDED : INACTIVE);
+	}
+
+	/** Deactivate for all threads. */
+	public synchronized void clear() {
+		// a thread claiming its inherited entry registers it before removing it from inheritedEntries,
+		// so visiting inheritedEntries before entries finds every entry in one of both maps:
+		for (Inheritance inheritance : this.inheritedEntries.keySet()) {
+			if (this.inheritedEntries.remove(inheritance) != null) {
+				Entry entry = inheritance.get();
+				if (entry != null)
+					setState(entry, INACTIVE);
+				else
+					this.activeCount.decrementAndGet(); // thread has ended, entry not yet enqueued
+			}
+		}
+		for (Entry entry : this.entries.values())
+			setState(entry, INACTIVE);
+	}
+
+	/** Answer whether the team is active for any thread. */
+	public synchronized boolean hasActiveThreads() {
+		if (this.global || this.scopesInUse)
+			return true;
+		expungeCollectedThreads();
+		expungeUnclaimedEntries();
+		return this.activeCount.get() > 0;
+	}
+
+	/**
+	 * Define whether threads created by a thread for which this team is active
+	 * should start with the team activated.
+	 */
+	public synchronized void setInheritable(boolean inheritable) {
+		if (inheritable && this.inheritableEntry == null) {
+			this.inheritableEntry = new InheritableThreadLocal<Entry>() {
+				@Override
+				protected Entry childValue(Entry parentEntry) {
+					return inheritFrom(parentEntry);
+				}
+			};
+			Entry entry = this.currentEntry.get();
+			if (entry != null)
+				this.inheritableEntry.set(entry);
+		}
+		this.inheritable = inheritable;
+	}
+
+	/** Answer the nesting depth of implicit activations for the current thread. */
+	public int getImplicitActivations() {
+		return currentEntry().implicitActivations;
+	}
+
+	/** Enter one level of implicit activation for the current thread. */
+	public void incrementImplicitActivations() {
+		currentEntry().implicitActivations++;
+	}
+
+	/** Leave one level of implicit activation for the current thread. */
+	public void decrementImplicitActivations() {
+		currentEntry().implicitActivations--;
+	}
+
+	/** Open a new activation scope for the given team, which is the owner of this activation. */
+	public synchronized ActivationScope openScope(ITeam team) {
+		this.openScopes++;
+		this.scopesInUse = true;
+		return new ActivationScope(team, this);
+	}
+
+	/** Answer whether activation scopes are open, which keep the team registered. */
+	public boolean hasOpenScopes() {
+		return this.openScopes > 0;
+	}
+
+	/** Record that an activation scope has been closed. Threads still inside the scope keep it in use until they exit. */
+	public synchronized void closeScope() {
+		this.openScopes--;
+		updateScopesInUse();
+	}
+
+	/**
+	 * Enter an activation scope on the current thread.
+	 * Takes no lock and writes no shared state once the thread is known, unless all scopes have been closed concurrently.
+	 */
+	public void enterScope() {
+		Entry entry = currentEntry();
+		if (entry.scopeDepth++ == 0) {
+			entry.scoped = true;
+			// pairs with closeScope(): either it sees this entry as scoped, or we see that no scope is open:
+			if (this.openScopes == 0)
+				synchronized (this) {
+					updateScopesInUse();
+				}
+		}
+	}
+
+	/** Leave an activation scope on the current thread. Takes no lock unless this ends the use of closed scopes. */
+	public void exitScope() {
+		Entry entry = currentEntry();
+		if (entry.scopeDepth == 0)
+			throw new IllegalStateException("Activation scope not entered on this thread");
+		if (--entry.scopeDepth == 0) {
+			entry.scoped = false;
+			if (this.openScopes == 0 && this.scopesInUse)
+				synchronized (this) {
+					updateScopesInUse();
+				}
+		}
+	}
+
+	// caller must hold the monitor of this
+	private void updateScopesInUse() {
+		if (this.openScopes > 0) {
+			this.scopesInUse = true;
+			return;
+		}
+		for (Entry entry : this.entries.values()) {
+			if (entry.scoped) {
+				this.scopesInUse = true;
+				return;
+			}
+		}
+		this.scopesInUse = false;
+	}
+
+	// called in the parent thread while constructing a child thread, takes no lock
+	private Entry inheritFrom(Entry parentEntry) {
+		if (!this.inheritable || parentEntry == null || parentEntry.state <= INACTIVE)
+			return null;
+		expungeUnclaimedEntries();
+		Entry entry = new Entry(EXPLICIT_ACTIVE);
+		entry.inheritance = new Inheritance(entry, this.unclaimedEntries);
+		this.activeCount.incrementAndGet();
+		this.inheritedEntries.put(entry.inheritance, Boolean.TRUE);
+		return entry;
+	}
+
+	/** Account for inherited entries whose threads have ended before claiming them. Takes no lock. */
+	private void expungeUnclaimedEntries() {
+		Reference<? extends Entry> unclaimed;
+		while ((unclaimed = this.unclaimedEntries.poll()) != null)
+			if (this.inheritedEntries.remove(unclaimed) != null)
+				this.activeCount.decrementAndGet();
+	}
+
+	private Entry currentEntry() {
+		Entry entry = this.currentEntry.get();
+		if (entry == null) {
+			Thread thread = Thread.currentThread();
+			InheritableThreadLocal<Entry> inheritable = this.inheritableEntry;
+			Entry inherited = (inheritable != null) ? inheritable.get() : null;
+			if (inherited != null) {
+				// claim: register before removing from inheritedEntries, see clear():
+				entry = register(thread, inherited);
+				boolean unclaimed = this.inheritedEntries.remove(inherited.inheritance) != null;
+				if (entry != inherited && unclaimed) {
+					// an explicit (de)activation for this thread supersedes the inherited activation:
+					synchronized (this) {
+						setState(inherited, INACTIVE);
+					}
+				}
+			} else {
+				entry = getEntry(thread); // common case, lock-free
+			}
+			this.currentEntry.set(entry);
+			if (inheritable != null && entry != inherited)
+				inheritable.set(entry);
+		}
+		return entry;
+	}
+
+	/** Answer the entry of the given thread, creating it if needed. Does not block unless entries must be expunged. */
+	private Entry getEntry(Thread thread) {
+		Entry entry = this.entries.get(thread.getId());
+		if (entry == null)
+			entry = register(thread, new Entry(INACTIVE));
+		return entry;
+	}
+
+	/** Register the given entry for the given thread, unless another entry is already registered, which is then answered. */
+	private Entry register(Thread thread, Entry entry) {
+		entry.owner = new Owner(thread, entry, this.collectedThreads);
+		Entry existing = this.entries.putIfAbsent(entry.owner.threadId, entry);
+		if (existing != null) {
+			entry.owner.clear();
+			entry.owner = null;
+			return existing;
+		}
+		Reference<? extends Thread> collected = this.collectedThreads.poll();
+		if (collected != null) {
+			synchronized (this) {
+				expunge((Owner) collected);
+				expungeCollectedThreads();
+			}
+		}
+		return entry;
+	}
+
+	// caller must hold the monitor of this
+	private void expungeCollectedThreads() {
+		Reference<? extends Thread> collected;
+		while ((collected = this.collectedThreads.poll()) != null)
+			expunge((Owner) collected);
+	}
+
+	// caller must hold the monitor of this
+	private void expunge(Owner owner) {
+		if (this.entries.remove(owner.threadId, owner.entry)) {
+			setState(owner.entry, INACTIVE);
+			if (owner.entry.scoped) {
+				owner.entry.scoped = false;
+				updateScopesInUse();
+			}
+		}
+	}
+
+	// caller must hold the monitor of this
+	private void setState(Entry entry, int state) {
+		int old = entry.state;
+		if (old <= INACTIVE && state > INACTIVE)
+			this.activeCount.incrementAndGet();
+		else if (old > INACTIVE && state <= INACTIVE)
+			this.activeCount.decrementAndGet();
+		if (old != EXCLUDED && state == EXCLUDED)
+			this.excludedCount++;
+		else if (old == EXCLUDED && state != EXCLUDED)
+			this.excludedCount--;
+		entry.state = state;
+	}
+}
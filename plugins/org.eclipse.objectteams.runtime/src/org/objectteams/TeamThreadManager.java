@@ -15,15 +15,25 @@
  **********************************************************************/
 package org.objectteams;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.WeakHashMap;
 
 
 /**
  * This class is for internal use, only.
  *
- * Maintain information about existing threads as to manage
- * team activation per thread vs. globally.
+ * Receives notifications about threads starting and ending <code>run()</code>
+ * (woven into implementors of Runnable/Thread) in order to pass
+ * inheritable team activation from the creating thread to the new thread.
+ * <p>
+ * Global activation does not depend on these notifications, and threads are never
+ * enumerated or remembered, so the cost per thread does not grow with the number of threads
+ * (e.g., when using virtual threads). Inheritable activation is primarily passed on
+ * at thread construction by {@link TeamActivation}, the notifications additionally cover
+ * Runnables created in one thread and run in another (e.g., by an executor).
+ * </p>
  *
  * @author Chistine Hundt
  * @author Stephan Herrmann
@@ -31,90 +41,55 @@ import java.util.WeakHashMap;
 public class TeamThreadManager {
 
 	private static Object token = new Object();
+	private static final ITeam[] NO_TEAMS = new ITeam[0];
 
-	private static HashSet<ITeam> globalActiveTeams = new HashSet<ITeam>();
 	private static WeakHashMap<ITeam,Object> teamsWithActivationInheritance = new WeakHashMap<ITeam,Object>();
-	private static HashSet<Thread> existingThreads = new HashSet<Thread>();
+	/** Teams activated by the outermost notified <code>run()</code> of the current thread, if any. */
+	private static ThreadLocal<List<ITeam>> inheritedTeams = new ThreadLocal<List<ITeam>>();
 
 	public static boolean newThreadStarted(boolean isMain, Thread parent) {
 		Thread currentThread = Thread.currentThread();
-		// already registered?
-		if (existingThreads.contains(currentThread))
+		// already registered, or run() invoked directly by the creating thread?
+		if (inheritedTeams.get() != null || (!isMain && (parent == null || parent == currentThread)))
 			return false;
 		// workaround for application hang on Mac OS with Apple JVM:
 		if (System.getProperty("os.name").startsWith("Mac"))
 			if (currentThread.getName().equals("AWT-Shutdown"))
 				return false;
 
-		ITeam[] globalTeams;
-		ITeam[] inheritableTeams;
-		synchronized (TeamThreadManager.class) {
-			boolean isFirst = existingThreads.isEmpty();
-			existingThreads.add(currentThread);
-			if (isMain || isFirst) {
-				for (Thread thread : fetchSystemThreads(currentThread))
-					if (thread != null)
-						existingThreads.add(thread);
-			}
-
-			globalTeams = globalActiveTeams.toArray(new ITeam[globalActiveTeams.size()]);
-			inheritableTeams = teamsWithActivationInheritance.keySet().toArray(new ITeam[teamsWithActivationInheritance.size()]);
-		}
-		// activate teams outside synchronized block:
-		for (ITeam t : globalTeams)
-			t.activate(currentThread); // small version? global -> already registered...!
+		List<ITeam> activated = Collections.emptyList();
 		if (parent != null)
-			for (ITeam t : inheritableTeams)
-				if (t.internalIsActiveSpecificallyFor(parent))
+			for (ITeam t : getInheritableTeams())
+				// a thread created by parent usually has inherited the activation already (see TeamActivation):
+				if (t.internalIsActiveSpecificallyFor(parent) && !t.isActive(currentThread)) {
 					t.activate(currentThread); // pass activation from parent to child thread
+					if (activated.isEmpty())
+						activated = new ArrayList<ITeam>();
+					activated.add(t);
+				}
+		inheritedTeams.set(activated);
 		return true;
 	}
 
-	/* Fetch all existing threads existing at this point in time. Result array is padded with nulls. */
-	private static Thread[] fetchSystemThreads(Thread currentThread) {
-		ThreadGroup group = currentThread.getThreadGroup();
-		{
-			ThreadGroup parentGroup;
-			while ((parentGroup= group.getParent()) != null)
-				group = parentGroup;
-		}
-		int size = group.activeCount();
-		Thread[] allThreads;
-		do {
-			size += 2;
-			allThreads = new Thread[size];
-		} while (group.enumerate(allThreads) == size);
-		return allThreads;
-	}
-
 	public static void threadEnded() {
-		ITeam[] teamsToDeactivate = internalThreadEnded();
-		// + remove per thread activation:
-		for (ITeam t : teamsToDeactivate)
-			//t.deactivate(Thread.currentThread()); // small version?
-			t.deactivateForEndedThread(Thread.currentThread());
-	}
-	private synchronized static ITeam[] internalThreadEnded() {
-		existingThreads.remove(Thread.currentThread());
-		// fetch all global active teams for deactivation:
-		return globalActiveTeams.toArray(new ITeam[globalActiveTeams.size()]);
+		List<ITeam> activated = inheritedTeams.get();
+		inheritedTeams.remove();
+		if (activated != null)
+			// revoke the per thread activation passed in by newThreadStarted, the thread may continue:
+			for (ITeam t : activated)
+				t.deactivateForEndedThread(Thread.currentThread());
 	}
 
-	public synchronized static void addGlobalActiveTeam(ITeam t) {
-		globalActiveTeams.add(t);
+	private synchronized static ITeam[] getInheritableTeams() {
+		if (teamsWithActivationInheritance.isEmpty())
+			return NO_TEAMS;
+		return teamsWithActivationInheritance.keySet().toArray(new ITeam[teamsWithActivationInheritance.size()]);
 	}
 
-	public synchronized static void removeGlobalActiveTeam(ITeam t) {
-		globalActiveTeams.remove(t);
-	}
-
-	public static HashSet<Thread> getExistingThreads() {
-		return existingThreads;
-	}
-	public static void registerTeamForActivationInheritance(ITeam aTeam) {
+	public synchronized static void registerTeamForActivationInheritance(ITeam aTeam) {
 		teamsWithActivationInheritance.put(aTeam,token);
 	}
-	public static void unRegisterTeamForActivationInheritance(ITeam aTeam) {
+	public synchronized static void unRegisterTeamForActivationInheritance(ITeam aTeam) {
 		teamsWithActivationInheritance.remove(aTeam);
 	}
 
@@ -104,6 +104,10 @@ public class AbstractOTJLDTest extends AbstractComparableTest {
 				"java.base=ALL-UNNAMED",
 				"--add-reads",
 				"jdk.net=ALL-UNNAMED",
+				"--add-reads",
+				"java.management=ALL-UNNAMED",
+				"--add-reads",
+				"jdk.management=ALL-UNNAMED",
 				"--add-opens",
 				"java.base/java.lang=ALL-UNNAMED"
 			};
@@ -8387,4 +8387,150 @@ public class CallinMethodBinding extends AbstractOTJLDTest {
     		"");
 
     }
+
+    // static base method with primitive signature is called while no team is active: dispatch must not allocate
+    public void testAllocationFreeDispatch1() {
+    	runConformTest(
+    		new String[] {
+    			"TeamAFD1.java",
+    			"public team class TeamAFD1 {\n" +
+    			"	protected class R playedBy TAFD1 {\n" +
+    			"		static void log(int i) { System.out.print(\"log\"+i); }\n" +
+    			"		log <- before twice;\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) {\n" +
+    			"		new TeamAFD1();\n" +
+    			"		TAFD1.measure();\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TAFD1.java",
+    			"public class TAFD1 {\n" +
+    			"	public static int twice(int i) { return 2*i; }\n" +
+    			"	static void measure() {\n" +
+    			"		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();\n" +
+    			"		long tid = Thread.currentThread().getId();\n" +
+    			"		int sum = 0;\n" +
+    			"		for (int i = 0; i < 100000; i++) sum += twice(i);\n" +
+    			"		long before = bean.getThreadAllocatedBytes(tid);\n" +
+    			"		for (int i = 0; i < 100000; i++) sum += twice(i);\n" +
+    			"		long allocated = bean.getThreadAllocatedBytes(tid) - before;\n" +
+    			"		System.out.print(allocated < 10000 ? \"OK\" : \"allocated \"+allocated+\" \"+sum);\n" +
+    			"	}\n" +
+    			"}\n"
+    		},
+    		"OK");
+    }
+
+    // static base method with primitive signature is called while the team is active only for another thread:
+    // dispatch must not allocate
+    public void testAllocationFreeDispatch2() {
+    	runConformTest(
+    		new String[] {
+    			"TeamAFD2.java",
+    			"public team class TeamAFD2 {\n" +
+    			"	protected class R playedBy TAFD2 {\n" +
+    			"		static void log(int i) { System.out.print(\"log\"+i); }\n" +
+    			"		log <- before twice;\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) throws InterruptedException {\n" +
+    			"		final Object lock = new Object();\n" +
+    			"		final boolean[] done = new boolean[1];\n" +
+    			"		Thread other = new Thread() {\n" +
+    			"			public void run() {\n" +
+    			"				synchronized (lock) {\n" +
+    			"					while (!done[0])\n" +
+    			"						try { lock.wait(); } catch (InterruptedException e) { return; }\n" +
+    			"				}\n" +
+    			"			}\n" +
+    			"		};\n" +
+    			"		other.start();\n" +
+    			"		new TeamAFD2().activate(other);\n" +
+    			"		TAFD2.measure();\n" +
+    			"		synchronized (lock) { done[0] = true; lock.notifyAll(); }\n" +
+    			"		other.join();\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TAFD2.java",
+    			"public class TAFD2 {\n" +
+    			"	public static int twice(int i) { return 2*i; }\n" +
+    			"	static void measure() {\n" +
+    			"		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();\n" +
+    			"		long tid = Thread.currentThread().getId();\n" +
+    			"		int sum = 0;\n" +
+    			"		for (int i = 0; i < 100000; i++) sum += twice(i);\n" +
+    			"		long before = bean.getThreadAllocatedBytes(tid);\n" +
+    			"		for (int i = 0; i < 100000; i++) sum += twice(i);\n" +
+    			"		long allocated = bean.getThreadAllocatedBytes(tid) - before;\n" +
+    			"		System.out.print(allocated < 10000 ? \"OK\" : \"allocated \"+allocated+\" \"+sum);\n" +
+    			"	}\n" +
+    			"}\n"
+    		},
+    		"OK");
+    }
+
+    // static base methods with primitive signatures are called while the team is active: callins run, results are returned unboxed
+    public void testAllocationFreeDispatch3() {
+    	runConformTest(
+    		new String[] {
+    			"TeamAFD3.java",
+    			"public team class TeamAFD3 {\n" +
+    			"	protected class R playedBy TAFD3 {\n" +
+    			"		static void log(int i) { System.out.print(\"log\"+i+\" \"); }\n" +
+    			"		log <- before twice;\n" +
+    			"		static void logAfter(long l) { System.out.print(\"after\"+l+\" \"); }\n" +
+    			"		logAfter <- after inc;\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) {\n" +
+    			"		new TeamAFD3().activate();\n" +
+    			"		System.out.print(TAFD3.twice(21));\n" +
+    			"		System.out.print(\" \");\n" +
+    			"		System.out.print(TAFD3.inc(4L));\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TAFD3.java",
+    			"public class TAFD3 {\n" +
+    			"	public static int twice(int i) { return 2*i; }\n" +
+    			"	public static long inc(long l) { return l+1; }\n" +
+    			"}\n"
+    		},
+    		"log21 42 after4 5");
+    }
+
+    // callins to instance and static base methods, woven with the base dispatch linked via invokedynamic
+    public void testDispatchHandles1() {
+    	runConformTest(
+    		new String[] {
+    			"TeamDH1.java",
+    			"public team class TeamDH1 {\n" +
+    			"	protected class R playedBy TDH1 {\n" +
+    			"		void log(int i) { System.out.print(\"log\"+i+\" \"); }\n" +
+    			"		log <- before twice;\n" +
+    			"		callin int inc(int i) {\n" +
+    			"			int result = base.inc(i);\n" +
+    			"			return result + 10;\n" +
+    			"		}\n" +
+    			"		inc <- replace twice;\n" +
+    			"		static void logStatic(long l) { System.out.print(\"after\"+l+\" \"); }\n" +
+    			"		logStatic <- after incStatic;\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) {\n" +
+    			"		new TeamDH1().activate();\n" +
+    			"		System.out.print(new TDH1().twice(21));\n" +
+    			"		System.out.print(\" \");\n" +
+    			"		System.out.print(TDH1.incStatic(4L));\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TDH1.java",
+    			"public class TDH1 {\n" +
+    			"	public int twice(int i) { return 2*i; }\n" +
+    			"	public static long incStatic(long l) { return l+1; }\n" +
+    			"}\n"
+    		},
+    		"log21 52 after4 5",
+    		null/*classLibraries*/,
+    		true/*shouldFlushOutputDirectory*/,
+    		new String[] { "-Dot.dispatch.handles" }/*vmArguments*/,
+    		getCompilerOptions(),
+    		null/*no custom requestor*/);
+    }
 }
@@ -1746,4 +1746,163 @@ public class OverridingAccessRestrictions extends AbstractOTJLDTest {
     		},
     		"55");
     }
+
+    // decapsulating get/set of private base fields of primitive and reference types
+    public void testDecapsulationIndy1() throws Exception {
+    	runConformTest(
+    		new String[] {
+				"pdi1/MyTeam.java",
+				"package pdi1;\n" +
+				"import base pdi1_1.Base;\n" +
+				"public team class MyTeam {\n" +
+				"	protected class R playedBy Base {\n" +
+				"		protected int getCount() -> get int count;\n" +
+				"		protected void setCount(int c) -> set int count;\n" +
+				"		protected long getTotal() -> get long total;\n" +
+				"		protected void setTotal(long t) -> set long total;\n" +
+				"		protected String getName() -> get String name;\n" +
+				"		protected void setName(String n) -> set String name;\n" +
+				"		protected int add(int i, long l) -> int add(int i, long l);\n" +
+				"	}\n" +
+				"	void test(Base as R r) {\n" +
+				"		r.setCount(r.getCount() + 1);\n" +
+				"		r.setTotal(r.getTotal() * 2);\n" +
+				"		r.setName(r.getName() + \"x\");\n" +
+				"		System.out.print(r.getCount() + \" \" + r.getTotal() + \" \" + r.getName() + \" \" + r.add(5, 100L));\n" +
+				"	}\n" +
+				"	public static void main(String... args) {\n" +
+				"		new MyTeam().test(new pdi1_1.Base());\n" +
+				"	}\n" +
+				"}\n",
+    			"pdi1_1/Base.java",
+    			"package pdi1_1;\n" +
+    			"public class Base {\n" +
+    			"	private int count = 1;\n" +
+    			"	private long total = 10L;\n" +
+    			"	private String name = \"b\";\n" +
+    			"	private int add(int i, long l) { return (int) (count + i + l); }\n" +
+    			"}\n"
+    		},
+    		"2 20 bx 107");
+    }
+
+    // decapsulating access to private static base fields and methods
+    public void testDecapsulationIndy2() throws Exception {
+    	runConformTest(
+    		new String[] {
+				"pdi2/MyTeam.java",
+				"package pdi2;\n" +
+				"import base pdi2_1.Base;\n" +
+				"public team class MyTeam {\n" +
+				"	protected class R playedBy Base {\n" +
+				"		protected abstract static String getTag();\n" +
+				"		String getTag() -> get String tag;\n" +
+				"		protected abstract static void setTag(String t);\n" +
+				"		void setTag(String t) -> set String tag;\n" +
+				"		protected abstract static double half(double d);\n" +
+				"		double half(double d) -> double half(double d);\n" +
+				"	}\n" +
+				"	void test() {\n" +
+				"		R.setTag(R.getTag() + \"2\");\n" +
+				"		System.out.print(R.getTag() + \" \" + R.half(5.0));\n" +
+				"	}\n" +
+				"	public static void main(String... args) {\n" +
+				"		new MyTeam().test();\n" +
+				"	}\n" +
+				"}\n",
+    			"pdi2_1/Base.java",
+    			"package pdi2_1;\n" +
+    			"public class Base {\n" +
+    			"	private static String tag = \"T\";\n" +
+    			"	private static double half(double d) { return d / 2; }\n" +
+    			"}\n"
+    		},
+    		"T2 2.5");
+    }
+
+    // role constructor creating its base via a private base constructor
+    public void testDecapsulationIndy3() throws Exception {
+    	runConformTest(
+    		new String[] {
+				"pdi3/MyTeam.java",
+				"package pdi3;\n" +
+				"import base pdi3_1.Base;\n" +
+				"public team class MyTeam {\n" +
+				"	protected class R playedBy Base {\n" +
+				"		protected R(int c, String n) { base(c, n); }\n" +
+				"		protected String describe() -> String describe();\n" +
+				"	}\n" +
+				"	void test() {\n" +
+				"		System.out.print(new R(3, \"b\").describe());\n" +
+				"	}\n" +
+				"	public static void main(String... args) {\n" +
+				"		new MyTeam().test();\n" +
+				"	}\n" +
+				"}\n",
+    			"pdi3_1/Base.java",
+    			"package pdi3_1;\n" +
+    			"public class Base {\n" +
+    			"	private int count;\n" +
+    			"	private String name;\n" +
+    			"	private Base(int c, String n) { this.count = c; this.name = n; }\n" +
+    			"	public String describe() { return name + count; }\n" +
+    			"}\n"
+    		},
+    		"b3");
+    }
+
+    // decapsulating callouts, base constructor call and static callout copy-inherited from a team compiled separately
+    public void testDecapsulationIndy4() throws Exception {
+    	compileOrder = new String[][] {
+    		new String[] { "pdi4_1/Base.java", "pdi4_2/SuperTeam.java" },
+    		new String[] { "pdi4/SubTeam.java" },
+    	};
+    	runConformTest(
+    		new String[] {
+				"pdi4/SubTeam.java",
+				"package pdi4;\n" +
+				"public team class SubTeam extends pdi4_2.SuperTeam {\n" +
+				"	protected class R {\n" +
+				"		protected String getName() -> get String name;\n" +
+				"	}\n" +
+				"	void test() {\n" +
+				"		R r = new R(3);\n" +
+				"		r.inc();\n" +
+				"		System.out.print(r.getCount() + \" \" + r.add(5, 100L) + \" \" + r.tag() + \" \" + r.getName());\n" +
+				"	}\n" +
+				"	public static void main(String... args) {\n" +
+				"		new SubTeam().test();\n" +
+				"	}\n" +
+				"}\n",
+				"pdi4_2/SuperTeam.java",
+				"package pdi4_2;\n" +
+				"import base pdi4_1.Base;\n" +
+				"public team class SuperTeam {\n" +
+				"	protected class R playedBy Base {\n" +
+				"		protected R(int c) { base(c); }\n" +
+				"		protected int getCount() -> get int count;\n" +
+				"		protected void setCount(int c) -> set int count;\n" +
+				"		protected int add(int i, long l) -> int add(int i, long l);\n" +
+				"		protected abstract static String getTag();\n" +
+				"		String getTag() -> get String tag;\n" +
+				"		protected String tag() {\n" +
+				"			return getTag();\n" +
+				"		}\n" +
+				"		protected void inc() {\n" +
+				"			setCount(getCount() + 1);\n" +
+				"		}\n" +
+				"	}\n" +
+				"}\n",
+    			"pdi4_1/Base.java",
+    			"package pdi4_1;\n" +
+    			"public class Base {\n" +
+    			"	private int count;\n" +
+    			"	private String name = \"b\";\n" +
+    			"	private static String tag = \"T\";\n" +
+    			"	private Base(int c) { this.count = c; }\n" +
+    			"	private int add(int i, long l) { return (int) (count + i + l); }\n" +
+    			"}\n"
+    		},
+    		"4 109 T b");
+    }
 }
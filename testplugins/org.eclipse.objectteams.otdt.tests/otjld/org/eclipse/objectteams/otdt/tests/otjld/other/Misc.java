@@ -16,6 +16,8 @@
  **********************************************************************/
 package org.eclipse.objectteams.otdt.tests.otjld.other;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import junit.framework.Test;
@@ -746,5 +748,133 @@ public class Misc extends AbstractOTJLDTest {
 			"Hello finale\n" + 
 			"Says null");
      }
-}
 
+     // woven bytes held for later redefinition are bounded, bytes evicted beyond the limit are used for redefinition
+     public void testBoundedBytecodeRetention() {
+    	 if (this.weavingScheme == WeavingScheme.OTRE) return;
+    	 if (this.verifier != null)
+    		 this.verifier.shutDown();
+    	 this.verifier = getTestVerifier(false); // don't reuse a vm without the limit
+    	 this.createdVerifier = true;
+    	 runConformTest(
+    		new String[] {
+    			"bbr/Main.java",
+    			"package bbr;\n" +
+    			"public class Main {\n" +
+    			"	public static void main(String[] args) throws Exception {\n" +
+    			"		new Base1().m(); new Base2().m(); new Base3().m(); new Base4().m();\n" +
+    			"		new Team1().activate(); // loaded after all bases, so Base1 is redefined from its retained bytes\n" +
+    			"		new Base1().m();\n" +
+    			"		Object provider = Class.forName(\"org.eclipse.objectteams.otredyn.bytecode.BytecodeProviderFactory\").getMethod(\"getBytecodeProvider\").invoke(null);\n" +
+    			"		long resident = ((Long) provider.getClass().getMethod(\"getResidentBytes\").invoke(provider)).longValue();\n" +
+    			"		System.out.print(resident <= 2048 ? \"|bounded\" : \"|resident \"+resident);\n" +
+    			"	}\n" +
+    			"}\n",
+    			"bbr/Base1.java",
+    			"package bbr;\n" +
+    			"public class Base1 { public void m() { System.out.print(1); } }\n",
+    			"bbr/Base2.java",
+    			"package bbr;\n" +
+    			"public class Base2 { public void m() { System.out.print(2); } }\n",
+    			"bbr/Base3.java",
+    			"package bbr;\n" +
+    			"public class Base3 { public void m() { System.out.print(3); } }\n",
+    			"bbr/Base4.java",
+    			"package bbr;\n" +
+    			"public class Base4 { public void m() { System.out.print(4); } }\n",
+    			"bbr/Team1.java",
+    			"package bbr;\n" +
+    			"public team class Team1 {\n" +
+    			"	protected class R playedBy Base1 {\n" +
+    			"		void r() { System.out.print(\"R\"); }\n" +
+    			"		r <- before m;\n" +
+    			"	}\n" +
+    			"}\n"
+    		},
+    		"1234R1|bounded",
+    		null/*classLibraries*/,
+    		false/*shouldFlushOutputDirectory*/,
+    		new String[] { "-Dot.bytecode.store.max=2048" }/*vmArguments*/,
+    		getCompilerOptions(),
+    		null/*requestor*/);
+     }
+
+     // the load time weaving of unchanged classes is served from the weaving cache, a changed class is woven anew
+     public void testWovenBytecodeCache() throws IOException {
+    	 if (this.weavingScheme == WeavingScheme.OTRE) return;
+    	 if (this.verifier != null)
+    		 this.verifier.shutDown();
+    	 this.verifier = getTestVerifier(false); // each run needs a new vm, which reads the cache at start-up
+    	 this.createdVerifier = true;
+    	 File cache = File.createTempFile("otdre", ".cache");
+    	 try {
+    		 String[] vmArguments = new String[] { "-Dot.weaving.cache="+cache.getAbsolutePath() };
+    		 String teamSource =
+    			"package wbc;\n" +
+    			"public team class Team1 {\n" +
+    			"	protected class R playedBy Base1 {\n" +
+    			"		void r() { System.out.print(\"R\"); }\n" +
+    			"		r <- before m;\n" +
+    			"	}\n" +
+    			"	public static void main(String[] args) {\n" +
+    			"		new Team1().activate();\n" +
+    			"		new Base1().m();\n" +
+    			"		new Base2().m();\n" +
+    			"	}\n" +
+    			"}\n";
+    		 String base1Source =
+    			"package wbc;\n" +
+    			"public class Base1 { public void m() { System.out.print(1); } }\n";
+    		 runConformTest(
+    			new String[] {
+    				"wbc/Team1.java", teamSource,
+    				"wbc/Base1.java", base1Source,
+    				"wbc/Base2.java",
+    				"package wbc;\n" +
+    				"public class Base2 { public void m() { System.out.print(\"v1\"); } }\n"
+    			},
+    			"R1v1",
+    			null/*classLibraries*/,
+    			true/*shouldFlushOutputDirectory*/,
+    			vmArguments,
+    			getCompilerOptions(),
+    			null/*requestor*/);
+    		 long size = cache.length();
+    		 assertTrue("Woven classes should be stored", size > 8); // beyond the header
+
+    		 runConformTest(
+    			new String[] {
+    				"wbc/Team1.java", teamSource,
+    				"wbc/Base1.java", base1Source,
+    				"wbc/Base2.java",
+    				"package wbc;\n" +
+    				"public class Base2 { public void m() { System.out.print(\"v1\"); } }\n"
+    			},
+    			"R1v1",
+    			null/*classLibraries*/,
+    			true/*shouldFlushOutputDirectory*/,
+    			vmArguments,
+    			getCompilerOptions(),
+    			null/*requestor*/);
+    		 assertEquals("Unchanged classes should be served from the cache", size, cache.length());
+
+    		 runConformTest(
+    			new String[] {
+    				"wbc/Team1.java", teamSource,
+    				"wbc/Base1.java", base1Source,
+    				"wbc/Base2.java",
+    				"package wbc;\n" +
+    				"public class Base2 { public void m() { System.out.print(\"v2\"); } }\n"
+    			},
+    			"R1v2",
+    			null/*classLibraries*/,
+    			true/*shouldFlushOutputDirectory*/,
+    			vmArguments,
+    			getCompilerOptions(),
+    			null/*requestor*/);
+    		 assertTrue("Changed class should be woven and stored anew", cache.length() > size);
+    	 } finally {
+    		 cache.delete();
+    	 }
+     }
+}
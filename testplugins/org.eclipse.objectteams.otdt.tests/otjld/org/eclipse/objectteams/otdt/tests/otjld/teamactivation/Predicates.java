@@ -3244,4 +3244,60 @@ public class Predicates extends AbstractOTJLDTest {
     		},
     		"bar");
     }
+
+    // binding guards and a binding base guard of before and after callins, the after guard inspects the base result
+    public void testBindingGuards1() {
+    	runConformTest(
+    		new String[] {
+    			"TeamBG1.java",
+    			"public team class TeamBG1 {\n" +
+    			"	protected class R playedBy TBG1 {\n" +
+    			"		void log(int i) { System.out.print(\"log\"+i+\" \"); }\n" +
+    			"		void log(int i) <- before int m(int i) when (i > 1);\n" +
+    			"		void big(int i) { System.out.print(\"big\"+i+\" \"); }\n" +
+    			"		bg: void big(int i) <- after int m(int i) base when (i > 2);\n" +
+    			"		void res(int i) { System.out.print(\"res\"+i+\" \"); }\n" +
+    			"		rs: void res(int i) <- after int m(int i) when (result > 6);\n" +
+    			"		precedence after rs, bg;\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) {\n" +
+    			"		new TeamBG1().activate();\n" +
+    			"		TBG1 b = new TBG1();\n" +
+    			"		for (int i = 1; i <= 4; i++)\n" +
+    			"			b.m(i);\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TBG1.java",
+    			"public class TBG1 {\n" +
+    			"	public int m(int i) { System.out.print(\"m\"+i+\" \"); return 2*i; }\n" +
+    			"}\n"
+    		},
+    		"m1 log2 m2 log3 m3 big3 log4 m4 res4 big4");
+    }
+
+    // binding guards of callins to static base methods
+    public void testBindingGuards2() {
+    	runConformTest(
+    		new String[] {
+    			"TeamBG2.java",
+    			"public team class TeamBG2 {\n" +
+    			"	protected class R playedBy TBG2 {\n" +
+    			"		static void log(int i) { System.out.print(\"log\"+i+\" \"); }\n" +
+    			"		void log(int i) <- before int s(int i) when (i > 1);\n" +
+    			"		static void big(int i) { System.out.print(\"big\"+i+\" \"); }\n" +
+    			"		void big(int i) <- after int s(int i) base when (result > 4);\n" +
+    			"	}\n" +
+    			"	public static void main(String... args) {\n" +
+    			"		new TeamBG2().activate();\n" +
+    			"		for (int i = 1; i <= 3; i++)\n" +
+    			"			TBG2.s(i);\n" +
+    			"	}\n" +
+    			"}\n",
+    			"TBG2.java",
+    			"public class TBG2 {\n" +
+    			"	public static int s(int i) { System.out.print(\"s\"+i+\" \"); return 2*i; }\n" +
+    			"}\n"
+    		},
+    		"s1 log2 s2 log3 s3 big3");
+    }
 }